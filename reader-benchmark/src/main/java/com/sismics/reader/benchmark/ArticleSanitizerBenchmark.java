@@ -0,0 +1,79 @@
+package com.sismics.reader.benchmark;
+
+import com.sismics.reader.core.dao.file.rss.RssReader;
+import com.sismics.reader.core.model.jpa.Article;
+import com.sismics.reader.core.util.sanitizer.ArticleSanitizer;
+import com.sismics.util.UrlUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the article sanitizer on the feeds of the article sanitizer test.
+ * The score is the number of sanitized articles per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleSanitizerBenchmark {
+    /**
+     * Sanitized feed.
+     */
+    @Param({ "feed_atom_akewea.xml", "feed_rss2_dilbert.xml", "feed_atom_github_user.xml", "feed_rss2_korben.xml", "feed_rss2_slashdot.xml" })
+    public String fixture;
+
+    /**
+     * Base URIs of the articles.
+     */
+    private final List<String> baseUriList = new ArrayList<String>();
+
+    /**
+     * Descriptions of the articles.
+     */
+    private final List<String> descriptionList = new ArrayList<String>();
+
+    /**
+     * Index of the next sanitized article.
+     */
+    private int index;
+
+    private final ArticleSanitizer articleSanitizer = new ArticleSanitizer();
+
+    @Setup
+    public void setUp() throws Exception {
+        RssReader reader = new RssReader();
+        try (InputStream is = ArticleSanitizerBenchmark.class.getResourceAsStream("/feed/" + fixture)) {
+            reader.readRssFeed(is);
+        }
+        for (Article article : reader.getArticleList()) {
+            baseUriList.add(UrlUtil.getBaseUri(reader.getFeed(), article));
+            descriptionList.add(article.getDescription());
+        }
+    }
+
+    @Benchmark
+    public String sanitize() {
+        index = (index + 1) % descriptionList.size();
+        return articleSanitizer.sanitize(baseUriList.get(index), descriptionList.get(index));
+    }
+
+    public static void main(String[] args) throws Exception {
+        JmhRunner.run(ArticleSanitizerBenchmark.class);
+    }
+}
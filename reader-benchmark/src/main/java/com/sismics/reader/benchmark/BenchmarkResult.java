@@ -0,0 +1,177 @@
+package com.sismics.reader.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Result of a benchmark run, which can be stored as a baseline and compared to the following runs.
+ */
+public class BenchmarkResult {
+    /**
+     * Parameters of the run.
+     */
+    private final Map<String, String> parameterMap = new LinkedHashMap<String, String>();
+
+    /**
+     * Measured values.
+     */
+    private final Map<Metric, Double> metricMap = new LinkedHashMap<Metric, Double>();
+
+    /**
+     * Sets a parameter of the run.
+     *
+     * @param name Parameter name
+     * @param value Parameter value
+     * @return This result
+     */
+    public BenchmarkResult setParameter(String name, Object value) {
+        parameterMap.put(name, String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Sets a measured value.
+     *
+     * @param metric Metric
+     * @param value Value
+     * @return This result
+     */
+    public BenchmarkResult setMetric(Metric metric, double value) {
+        metricMap.put(metric, value);
+        return this;
+    }
+
+    /**
+     * Compares this result to a baseline.
+     *
+     * @param baseline Baseline
+     * @param tolerance Tolerated relative degradation of each metric
+     * @return Regressions, empty if none
+     */
+    public List<String> getRegressionList(BenchmarkResult baseline, double tolerance) {
+        List<String> regressionList = new ArrayList<String>();
+        if (!parameterMap.equals(baseline.parameterMap)) {
+            regressionList.add(MessageFormat.format("Parameters differ from the baseline: {0} vs {1}",
+                    parameterMap, baseline.parameterMap));
+            return regressionList;
+        }
+        for (Map.Entry<Metric, Double> entry : metricMap.entrySet()) {
+            Metric metric = entry.getKey();
+            Double baselineValue = baseline.metricMap.get(metric);
+            if (baselineValue == null || baselineValue == 0) {
+                continue;
+            }
+            double change = (entry.getValue() - baselineValue) / baselineValue;
+            if ((metric.higherIsBetter ? -change : change) > tolerance) {
+                regressionList.add(MessageFormat.format("{0}: {1,number,#.##} vs {2,number,#.##} in the baseline ({3,number,+#%;-#%})",
+                        metric.key, entry.getValue(), baselineValue, change));
+            }
+        }
+        return regressionList;
+    }
+
+    /**
+     * Loads a result from a file.
+     *
+     * @param file File
+     * @return Result
+     */
+    public static BenchmarkResult load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            properties.load(is);
+        }
+        BenchmarkResult result = new BenchmarkResult();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("parameter.")) {
+                result.setParameter(name.substring("parameter.".length()), properties.getProperty(name));
+            }
+        }
+        for (Metric metric : Metric.values()) {
+            String value = properties.getProperty("metric." + metric.key);
+            if (value != null) {
+                result.setMetric(metric, Double.parseDouble(value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Saves this result to a file.
+     *
+     * @param file File
+     */
+    public void save(File file) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, String> entry : parameterMap.entrySet()) {
+            properties.setProperty("parameter." + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Metric, Double> entry : metricMap.entrySet()) {
+            properties.setProperty("metric." + entry.getKey().key, String.valueOf(entry.getValue()));
+        }
+        try (OutputStream os = new FileOutputStream(file)) {
+            properties.store(os, "Feed synchronization benchmark baseline");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : parameterMap.entrySet()) {
+            sb.append(String.format("%-28s %s%n", entry.getKey(), entry.getValue()));
+        }
+        for (Map.Entry<Metric, Double> entry : metricMap.entrySet()) {
+            sb.append(String.format("%-28s %,.2f%n", entry.getKey().key, entry.getValue()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Measured metric.
+     */
+    public enum Metric {
+        /**
+         * Synchronized feeds per second.
+         */
+        FEEDS_PER_SECOND("feedsPerSecond", true),
+
+        /**
+         * Median synchronization time of a feed (in milliseconds).
+         */
+        LATENCY_P50("latencyP50", false),
+
+        /**
+         * 99th percentile of the synchronization time of a feed (in milliseconds).
+         */
+        LATENCY_P99("latencyP99", false),
+
+        /**
+         * Prepared SQL statements per feed (the statements executed through plain JDBC are not counted).
+         */
+        STATEMENTS_PER_FEED("statementsPerFeed", false),
+
+        /**
+         * Bytes allocated per feed.
+         */
+        ALLOCATED_BYTES_PER_FEED("allocatedBytesPerFeed", false);
+
+        private final String key;
+
+        private final boolean higherIsBetter;
+
+        Metric(String key, boolean higherIsBetter) {
+            this.key = key;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
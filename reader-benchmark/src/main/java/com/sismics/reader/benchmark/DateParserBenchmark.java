@@ -0,0 +1,108 @@
+package com.sismics.reader.benchmark;
+
+import com.sismics.reader.core.dao.file.rss.RssReader;
+import com.sismics.util.DateParser;
+import com.sismics.util.DateUtil;
+import org.joda.time.format.DateTimeFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the date parsing on the corpus of the date utilities test.
+ * Each date stands for a feed of ITEM_COUNT articles dated in the same format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateParserBenchmark {
+    private static final int ITEM_COUNT = 20;
+
+    private static final String[] RSS_DATES = {
+            "Sat, 15 Jun 2013 00:07:27 +0200",
+            "Fri, 22 Mar 2013 04:00:00 -0000",
+            "Thu, 19 Dec 2013 10:46:28 GMT",
+            "Wed, 17 Apr 2013 15:40:23 GMT",
+            "05 Apr 2013 12:25:20 +0000",
+            "Mon, 22 Jun 2015 15:25 EDT",
+            "Thu, 12 Dec 2013 09:00:00 EST",
+            "Thu, 02 May 2013 10:31:40 PDT",
+            "Wed, 27 Mar 2013 21:13:03 EDT",
+            "Thu, 04 APR 2013 20:37:27 AEST",
+            "Sun,  5 Oct 2014 23:51:21 EDT",
+            "Mon Jun 22 2015 20:12:20 GMT+0900 (JST)",
+            "Fri Jan 06 2017 16:13:28 GMT+0900 (JST)",
+            "Sun, 29 Feb 2004 12:00:00 +0530",
+            "Mon, 29 Feb 2004 12:00:00 +0530",
+    };
+
+    private static final String[] ATOM_DATES = {
+            "2013-04-11T12:12:56+02:00",
+            "2015-11-25T14:45:42Z",
+            "2013-04-01T20:34:13.252+09:00",
+            "2004-09-15T14:13:08-05:00",
+            "2013-07-05T08:37:50+0900",
+            "1969-12-31T23:59:59Z",
+    };
+
+    private static final DateTimeFormatter[] DF_RSS_LIST = DateUtil.getFormatterArray(
+            "EEE, dd MMM yyyy HH:mm zzz",
+            "EEE, dd MMM yyyy HH:mm:ss Z",
+            "EEE, dd MMM yyyy HH:mm:ss zzz",
+            "EEE,  d MMM yyyy HH:mm:ss zzz",
+            "dd MMM yyyy HH:mm:ss Z",
+            "yyyy-mm-dd HH:mm:ss",
+            "EEE, dd MMM yyyy HH:mm:ss",
+            "dd MMM yyyy HH:mm:ss zzz",
+            "EEE MMM dd yyyy HH:mm:ss 'GMT'Z Z");
+
+    private static final DateTimeFormatter[] DF_ATOM_LIST = DateUtil.getFormatterArray(
+            "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    @Benchmark
+    public void formatter(Blackhole blackhole) {
+        for (String date : RSS_DATES) {
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                blackhole.consume(DateUtil.parseDate(date, RssReader.DF_RSS));
+            }
+        }
+        for (String date : ATOM_DATES) {
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                blackhole.consume(DateUtil.parseDate(date, RssReader.DF_ATOM));
+            }
+        }
+    }
+
+    @Benchmark
+    public void dateParser(Blackhole blackhole) {
+        for (String date : RSS_DATES) {
+            DateParser dateParser = new DateParser(DF_RSS_LIST);
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                blackhole.consume(dateParser.parse(date));
+            }
+        }
+        for (String date : ATOM_DATES) {
+            DateParser dateParser = new DateParser(DF_ATOM_LIST);
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                blackhole.consume(dateParser.parse(date));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        JmhRunner.run(DateParserBenchmark.class);
+    }
+}
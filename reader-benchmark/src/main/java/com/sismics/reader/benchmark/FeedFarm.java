@@ -0,0 +1,405 @@
+package com.sismics.reader.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.reader.core.dao.file.rss.RssReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local HTTP server serving a farm of synthetic feeds, cloned from the parser test fixtures.
+ * The feed number i is served at /feed/i from the fixture i modulo the number of fixtures.
+ * The farm works in rounds: at each round, a given proportion of the feeds fail, and another one publishes
+ * a new article. The outcome of a feed is a function of its number and of the round, so that runs are reproducible.
+ */
+public class FeedFarm {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(FeedFarm.class);
+
+    /**
+     * Fixtures of the feeds.
+     */
+    private final List<Fixture> fixtureList;
+
+    /**
+     * Content of the fixtures, by fixture and version.
+     */
+    private final Map<String, byte[]> contentMap = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * Latency of each response (in milliseconds).
+     */
+    private final int latency;
+
+    /**
+     * Proportion of the feeds failing at each round.
+     */
+    private final double errorRate;
+
+    /**
+     * Proportion of the feeds publishing a new article at each round.
+     */
+    private final double churnRate;
+
+    /**
+     * Proportion of the feeds sending cache validators.
+     */
+    private final double validatorRate;
+
+    /**
+     * Current round.
+     */
+    private volatile int round;
+
+    /**
+     * HTTP server.
+     */
+    private HttpServer server;
+
+    /**
+     * Executor of the HTTP server.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Constructor of FeedFarm.
+     *
+     * @param latency Latency of each response (in milliseconds)
+     * @param errorRate Proportion of the feeds failing at each round
+     * @param churnRate Proportion of the feeds publishing a new article at each round
+     * @param validatorRate Proportion of the feeds sending cache validators
+     */
+    public FeedFarm(int latency, double errorRate, double churnRate, double validatorRate) throws Exception {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.churnRate = churnRate;
+        this.validatorRate = validatorRate;
+        this.fixtureList = loadFixtureList();
+    }
+
+    /**
+     * Starts the HTTP server.
+     *
+     * @param threadCount Number of threads serving the requests
+     */
+    public void start(int threadCount) throws IOException {
+        executor = Executors.newFixedThreadPool(threadCount, new ThreadFactoryBuilder()
+                .setNameFormat(getThreadNamePrefix() + "%d")
+                .setDaemon(true)
+                .build());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        server.setExecutor(executor);
+        server.createContext("/feed/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Stops the HTTP server.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts a new round.
+     */
+    public void nextRound() {
+        round++;
+    }
+
+    /**
+     * Returns the URL of a feed.
+     *
+     * @param feedNumber Feed number
+     * @return Feed URL
+     */
+    public String getFeedUrl(int feedNumber) {
+        return "http://localhost:" + server.getAddress().getPort() + "/feed/" + feedNumber;
+    }
+
+    /**
+     * Returns the prefix of the names of the threads serving the requests.
+     *
+     * @return Thread name prefix
+     */
+    public String getThreadNamePrefix() {
+        return "feed-farm-";
+    }
+
+    /**
+     * Getter of fixtureList.
+     *
+     * @return fixtureList
+     */
+    public List<Fixture> getFixtureList() {
+        return fixtureList;
+    }
+
+    /**
+     * Serves a feed.
+     *
+     * @param exchange HTTP exchange
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            int feedNumber = Integer.parseInt(exchange.getRequestURI().getPath().substring("/feed/".length()));
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+
+            if (isSelected(feedNumber, round, errorRate, 1)) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            Fixture fixture = fixtureList.get(feedNumber % fixtureList.size());
+            int version = getVersion(feedNumber);
+            if (isSelected(feedNumber, 0, validatorRate, 3)) {
+                String etag = "\"" + fixture.name + "-" + version + "\"";
+                exchange.getResponseHeaders().add("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+
+            byte[] body = getContent(fixture, version);
+            exchange.getResponseHeaders().add("Content-Type", "application/xml");
+            if (fixture.gzip) {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (NumberFormatException e) {
+            exchange.sendResponseHeaders(404, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the version of a feed at the current round, ie. the number of articles it has published since the start.
+     *
+     * @param feedNumber Feed number
+     * @return Version
+     */
+    private int getVersion(int feedNumber) {
+        int version = 0;
+        for (int i = 1; i <= round; i++) {
+            if (isSelected(feedNumber, i, churnRate, 2)) {
+                version++;
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Returns the content of a version of a fixture.
+     *
+     * @param fixture Fixture
+     * @param version Number of synthetic articles to add
+     * @return Content, compressed if the fixture is
+     */
+    private byte[] getContent(Fixture fixture, int version) throws IOException {
+        String key = fixture.name + "-" + version;
+        byte[] content = contentMap.get(key);
+        if (content == null) {
+            // Work on bytes mapped to chars one to one, whatever the encoding of the fixture
+            StringBuilder sb = new StringBuilder(new String(fixture.content, Charsets.ISO_8859_1));
+            int index = sb.lastIndexOf(fixture.format.closingTag);
+            for (int i = 1; i <= version; i++) {
+                sb.insert(index, fixture.format.getArticle(fixture.name, i));
+            }
+            content = sb.toString().getBytes(Charsets.ISO_8859_1);
+            if (fixture.gzip) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+                    gos.write(content);
+                }
+                content = bos.toByteArray();
+            }
+            contentMap.put(key, content);
+        }
+        return content;
+    }
+
+    /**
+     * Returns true if a feed is selected at a given round, with a given probability.
+     *
+     * @param feedNumber Feed number
+     * @param round Round
+     * @param rate Probability of selection
+     * @param salt Salt distinguishing the selections
+     * @return Feed selected
+     */
+    private static boolean isSelected(int feedNumber, int round, double rate, int salt) {
+        if (rate <= 0) {
+            return false;
+        }
+        int hash = Arrays.hashCode(new int[] { feedNumber, round, salt }) * 0x9E3779B9;
+        return (hash >>> 8) / (double) (1 << 24) < rate;
+    }
+
+    /**
+     * Loads the fixtures which the parser understands.
+     *
+     * @return List of fixtures
+     */
+    private static List<Fixture> loadFixtureList() throws Exception {
+        URL fixtureUrl = FeedFarm.class.getResource("/feed");
+        File[] fileList = new File(fixtureUrl.toURI()).listFiles();
+        Arrays.sort(fileList);
+        List<Fixture> fixtureList = new ArrayList<Fixture>();
+        for (File file : fileList) {
+            String name = file.getName();
+            Format format = Format.getFormat(name);
+            if (format == null) {
+                continue;
+            }
+            boolean gzip = name.endsWith(".gzip");
+            byte[] content;
+            try (InputStream is = gzip ? new GZIPInputStream(file.toURI().toURL().openStream()) : file.toURI().toURL().openStream()) {
+                content = ByteStreams.toByteArray(is);
+            }
+            try {
+                new RssReader().readRssFeed(new ByteArrayInputStream(content));
+            } catch (Exception e) {
+                log.info(MessageFormat.format("Skipping fixture {0}: {1}", name, e.getMessage()));
+                continue;
+            }
+            if (new String(content, Charsets.ISO_8859_1).lastIndexOf(format.closingTag) < 0) {
+                log.info(MessageFormat.format("Skipping fixture {0}: no closing tag", name));
+                continue;
+            }
+            fixtureList.add(new Fixture(name, format, content, gzip));
+        }
+        return fixtureList;
+    }
+
+    /**
+     * Feed fixture.
+     */
+    public static class Fixture {
+        private final String name;
+
+        private final Format format;
+
+        private final byte[] content;
+
+        private final boolean gzip;
+
+        private Fixture(String name, Format format, byte[] content, boolean gzip) {
+            this.name = name;
+            this.format = format;
+            this.content = content;
+            this.gzip = gzip;
+        }
+
+        /**
+         * Getter of name.
+         *
+         * @return name
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Format of a fixture.
+     */
+    private enum Format {
+        RSS2("feed_rss2_", "</channel>") {
+            @Override
+            String getArticle(String name, int version) {
+                return "<item><title>Synthetic article " + version + "</title>"
+                        + "<link>http://localhost/" + name + "/" + version + "</link>"
+                        + "<guid>urn:benchmark:" + name + ":" + version + "</guid>"
+                        + "<description>Synthetic article " + version + " of " + name + "</description></item>";
+            }
+        },
+
+        RDF("feed_rdf_", "</rdf:RDF>") {
+            @Override
+            String getArticle(String name, int version) {
+                return "<item rdf:about=\"http://localhost/" + name + "/" + version + "\">"
+                        + "<title>Synthetic article " + version + "</title>"
+                        + "<link>http://localhost/" + name + "/" + version + "</link>"
+                        + "<description>Synthetic article " + version + " of " + name + "</description></item>";
+            }
+        },
+
+        ATOM("feed_atom_", "</feed>") {
+            @Override
+            String getArticle(String name, int version) {
+                return "<entry><title>Synthetic article " + version + "</title>"
+                        + "<link href=\"http://localhost/" + name + "/" + version + "\"/>"
+                        + "<id>urn:benchmark:" + name + ":" + version + "</id>"
+                        + "<updated>2014-02-01T10:00:00Z</updated>"
+                        + "<content type=\"html\">Synthetic article " + version + " of " + name + "</content></entry>";
+            }
+        };
+
+        private final String prefix;
+
+        private final String closingTag;
+
+        Format(String prefix, String closingTag) {
+            this.prefix = prefix;
+            this.closingTag = closingTag;
+        }
+
+        /**
+         * Returns a synthetic article, in this format.
+         *
+         * @param name Fixture name
+         * @param version Article number
+         * @return Article markup
+         */
+        abstract String getArticle(String name, int version);
+
+        /**
+         * Returns the format of a fixture.
+         *
+         * @param name Fixture file name
+         * @return Format, or null if not a feed
+         */
+        static Format getFormat(String name) {
+            for (Format format : values()) {
+                if (name.startsWith(format.prefix)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.sismics.reader.benchmark;
+
+import com.google.common.io.Files;
+import com.sismics.reader.benchmark.BenchmarkResult.Metric;
+import com.sismics.reader.core.constant.ConfigType;
+import com.sismics.reader.core.constant.Constants;
+import com.sismics.reader.core.dao.jpa.CategoryDao;
+import com.sismics.reader.core.dao.jpa.FeedDao;
+import com.sismics.reader.core.dao.jpa.FeedSubscriptionDao;
+import com.sismics.reader.core.dao.jpa.UserDao;
+import com.sismics.reader.core.model.context.AppContext;
+import com.sismics.reader.core.model.jpa.Category;
+import com.sismics.reader.core.model.jpa.Config;
+import com.sismics.reader.core.model.jpa.Feed;
+import com.sismics.reader.core.model.jpa.FeedSubscription;
+import com.sismics.reader.core.model.jpa.User;
+import com.sismics.reader.core.util.TransactionUtil;
+import com.sismics.util.context.ThreadLocalContext;
+import com.sismics.util.jpa.EMF;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feed synchronization throughput benchmark.
+ * A farm of synthetic feeds is served locally, and synchronized in rounds by the feed service against an in-memory HSQLDB.
+ * The first round imports all articles and is used as a warmup, the following rounds only see the articles published
+ * between 2 rounds.
+ *
+ * Parameters (system properties):
+ * <ul>
+ *     <li>benchmark.feeds: number of feeds (default 2000)</li>
+ *     <li>benchmark.subscribers: number of users subscribed to every feed (default 1)</li>
+ *     <li>benchmark.rounds: number of measured rounds (default 3)</li>
+ *     <li>benchmark.latency: latency of the feed farm (in milliseconds, default 20)</li>
+ *     <li>benchmark.errorRate: proportion of the feeds failing at each round (default 0.02)</li>
+ *     <li>benchmark.churnRate: proportion of the feeds publishing an article at each round (default 0.2)</li>
+ *     <li>benchmark.validatorRate: proportion of the feeds sending an entity tag (default 1)</li>
+ *     <li>benchmark.baseline: baseline file (default baseline.properties)</li>
+ *     <li>benchmark.updateBaseline: store the result as the new baseline (default false)</li>
+ *     <li>benchmark.tolerance: tolerated relative degradation of each metric (default 0.2)</li>
+ * </ul>
+ */
+public class FeedSyncBenchmark {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(FeedSyncBenchmark.class);
+
+    private final int feedCount = Integer.getInteger("benchmark.feeds", 2000);
+
+    private final int subscriberCount = Integer.getInteger("benchmark.subscribers", 1);
+
+    private final int roundCount = Integer.getInteger("benchmark.rounds", 3);
+
+    private final int latency = Integer.getInteger("benchmark.latency", 20);
+
+    private final double errorRate = Double.parseDouble(System.getProperty("benchmark.errorRate", "0.02"));
+
+    private final double churnRate = Double.parseDouble(System.getProperty("benchmark.churnRate", "0.2"));
+
+    private final double validatorRate = Double.parseDouble(System.getProperty("benchmark.validatorRate", "1"));
+
+    private final File baselineFile = new File(System.getProperty("benchmark.baseline", "baseline.properties"));
+
+    private final boolean updateBaseline = Boolean.getBoolean("benchmark.updateBaseline");
+
+    private final double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.2"));
+
+    /**
+     * Local feed farm.
+     */
+    private FeedFarm feedFarm;
+
+    public static void main(String[] args) throws Exception {
+        // Keep the data of the application out of the way
+        if (System.getProperty("reader.home") == null) {
+            System.setProperty("reader.home", Files.createTempDir().getAbsolutePath());
+        }
+
+        int status = new FeedSyncBenchmark().run();
+        System.exit(status);
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @return Exit status: 0 if no regression was detected
+     */
+    public int run() throws Exception {
+        feedFarm = new FeedFarm(latency, errorRate, churnRate, validatorRate);
+        feedFarm.start(64);
+        try {
+            log.info(MessageFormat.format("Serving {0} feeds cloned from {1} fixtures", feedCount, feedFarm.getFixtureList().size()));
+            setUp();
+
+            // Import the initial articles
+            long start = System.currentTimeMillis();
+            AppContext.getInstance().getFeedService().synchronizeAllFeeds();
+            log.info(MessageFormat.format("Warmup round: {0} ms", System.currentTimeMillis() - start));
+
+            BenchmarkResult result = measure();
+            System.out.println(result);
+
+            if (updateBaseline) {
+                result.save(baselineFile);
+                log.info(MessageFormat.format("Baseline saved to {0}", baselineFile.getAbsolutePath()));
+            } else if (baselineFile.isFile()) {
+                List<String> regressionList = result.getRegressionList(BenchmarkResult.load(baselineFile), tolerance);
+                for (String regression : regressionList) {
+                    System.out.println("REGRESSION " + regression);
+                }
+                if (!regressionList.isEmpty()) {
+                    return 1;
+                }
+                System.out.println("No regression against " + baselineFile.getPath());
+            } else {
+                log.warn(MessageFormat.format("No baseline at {0}, run with -Dbenchmark.updateBaseline=true to store one", baselineFile.getAbsolutePath()));
+            }
+            return 0;
+        } finally {
+            AppContext.getInstance().getFeedService().stopAndWait();
+            feedFarm.stop();
+        }
+    }
+
+    /**
+     * Creates the subscribers and the feeds.
+     */
+    private void setUp() {
+        TransactionUtil.handle(() -> {
+            // The farm is a single host: lift the limits protecting the publishers
+            EntityManager em = ThreadLocalContext.get().getEntityManager();
+            setConfig(em, ConfigType.FEED_HOST_REQUEST_RATE, Integer.MAX_VALUE);
+            setConfig(em, ConfigType.HTTP_MAX_CONNECTIONS_PER_HOST, 1000);
+
+            // Create the feeds, already fetched today so that no favicon is downloaded
+            Date now = new Date();
+            FeedDao feedDao = new FeedDao();
+            List<String> feedIdList = new ArrayList<String>();
+            for (int i = 0; i < feedCount; i++) {
+                Feed feed = new Feed();
+                feed.setRssUrl(feedFarm.getFeedUrl(i));
+                feed.setUrl(feed.getRssUrl());
+                feed.setTitle("Feed " + i);
+                feed.setLastFetchDate(now);
+                feed.setNextFetchDate(new Date(now.getTime() + TimeUnit.DAYS.toMillis(1)));
+                feedIdList.add(feedDao.create(feed));
+            }
+
+            // Subscribe the users to every feed
+            FeedSubscriptionDao feedSubscriptionDao = new FeedSubscriptionDao();
+            for (int i = 0; i < subscriberCount; i++) {
+                String userId = createUser("benchmark" + i);
+                Category category = new Category();
+                category.setUserId(userId);
+                category.setOrder(0);
+                String categoryId = new CategoryDao().create(category);
+                int order = 0;
+                for (String feedId : feedIdList) {
+                    FeedSubscription feedSubscription = new FeedSubscription();
+                    feedSubscription.setUserId(userId);
+                    feedSubscription.setFeedId(feedId);
+                    feedSubscription.setCategoryId(categoryId);
+                    feedSubscription.setOrder(order++);
+                    feedSubscription.setUnreadCount(0);
+                    feedSubscriptionDao.create(feedSubscription);
+                }
+            }
+        });
+
+        // The configuration is read when the context is created
+        TransactionUtil.handle(AppContext::getInstance);
+    }
+
+    /**
+     * Runs the measured rounds.
+     *
+     * @return Result
+     */
+    private BenchmarkResult measure() {
+        Statistics statistics = ((HibernateEntityManagerFactory) EMF.get()).getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        long statementCount = statistics.getPrepareStatementCount();
+        long allocatedBytes = getAllocatedBytes();
+        final Date startDate = new Date();
+        long start = System.nanoTime();
+        for (int i = 0; i < roundCount; i++) {
+            feedFarm.nextRound();
+            AppContext.getInstance().getFeedService().synchronizeAllFeeds();
+        }
+        long duration = System.nanoTime() - start;
+        allocatedBytes = getAllocatedBytes() - allocatedBytes;
+        statementCount = statistics.getPrepareStatementCount() - statementCount;
+
+        // Per-feed synchronization time, from fetch to persistence
+        final List<Integer> durationList = new ArrayList<Integer>();
+        TransactionUtil.handle(() -> {
+            EntityManager em = ThreadLocalContext.get().getEntityManager();
+            @SuppressWarnings("unchecked")
+            List<Integer> resultList = em.createQuery("select fs.duration from FeedSynchronization fs where fs.createDate >= :startDate")
+                    .setParameter("startDate", startDate)
+                    .getResultList();
+            durationList.addAll(resultList);
+        });
+        Collections.sort(durationList);
+
+        double syncCount = (double) feedCount * roundCount;
+        return new BenchmarkResult()
+                .setParameter("feeds", feedCount)
+                .setParameter("subscribers", subscriberCount)
+                .setParameter("rounds", roundCount)
+                .setParameter("latency", latency)
+                .setParameter("errorRate", errorRate)
+                .setParameter("churnRate", churnRate)
+                .setParameter("validatorRate", validatorRate)
+                .setMetric(Metric.FEEDS_PER_SECOND, syncCount / (duration / 1e9))
+                .setMetric(Metric.LATENCY_P50, getPercentile(durationList, 0.5))
+                .setMetric(Metric.LATENCY_P99, getPercentile(durationList, 0.99))
+                .setMetric(Metric.STATEMENTS_PER_FEED, statementCount / syncCount)
+                .setMetric(Metric.ALLOCATED_BYTES_PER_FEED, allocatedBytes / syncCount);
+    }
+
+    /**
+     * Returns the bytes allocated so far by the live threads, except the feed farm's.
+     *
+     * @return Allocated bytes
+     */
+    private long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBytes = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().startsWith(feedFarm.getThreadNamePrefix())) {
+                allocatedBytes += Math.max(0, threadMXBean.getThreadAllocatedBytes(thread.getId()));
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     *
+     * @param sortedList Sorted values
+     * @param percentile Percentile (between 0 and 1)
+     * @return Value
+     */
+    private static double getPercentile(List<Integer> sortedList, double percentile) {
+        if (sortedList.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedList.size()) - 1;
+        return sortedList.get(Math.max(0, index));
+    }
+
+    /**
+     * Creates a user.
+     *
+     * @param username Username
+     * @return User ID
+     */
+    private static String createUser(String username) {
+        User user = new User();
+        user.setRoleId(Constants.DEFAULT_USER_ROLE);
+        user.setUsername(username);
+        user.setPassword(username);
+        user.setEmail(username + "@reader.com");
+        user.setLocaleId("en");
+        user.setCreateDate(new Date());
+        try {
+            return new UserDao().create(user);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates or updates a configuration parameter.
+     *
+     * @param em Entity manager
+     * @param configType Configuration parameter
+     * @param value Value
+     */
+    private static void setConfig(EntityManager em, ConfigType configType, int value) {
+        Config config = new Config();
+        config.setId(configType);
+        config.setValue(String.valueOf(value));
+        em.merge(config);
+    }
+}
@@ -0,0 +1,39 @@
+package com.sismics.reader.benchmark;
+
+import com.google.common.base.Joiner;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the JMH microbenchmarks from exec:java.
+ */
+public class JmhRunner {
+    /**
+     * Runs the benchmarks of a class, with the GC profiler.
+     *
+     * @param benchmarkClass Benchmark class
+     */
+    public static void run(Class<?> benchmarkClass) throws Exception {
+        // The forked JVMs inherit the class path, which is Maven's when running from exec:java
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader instanceof URLClassLoader) {
+            List<String> pathList = new ArrayList<String>();
+            for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+                pathList.add(new File(url.toURI()).getPath());
+            }
+            System.setProperty("java.class.path", Joiner.on(File.pathSeparator).join(pathList));
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(benchmarkClass.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,60 @@
+package com.sismics.reader.benchmark;
+
+import com.google.common.io.ByteStreams;
+import com.sismics.reader.core.dao.file.rss.RssReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the feed parser on the test fixtures.
+ * Run with the GC profiler to see the allocation rate per parsed feed (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RssReaderBenchmark {
+    /**
+     * Parsed fixture.
+     */
+    @Param({ "feed_rss2_developpez.xml", "feed_rss2_korben.xml", "feed_rss2_gizmodo.gzip", "feed_atom_xkcd.xml", "feed_rdf_lxer.xml" })
+    public String fixture;
+
+    /**
+     * Content of the fixture.
+     */
+    private byte[] content;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (InputStream is = RssReaderBenchmark.class.getResourceAsStream("/feed/" + fixture)) {
+            content = ByteStreams.toByteArray(is);
+        }
+    }
+
+    @Benchmark
+    public RssReader readRssFeed() throws Exception {
+        RssReader rssReader = new RssReader();
+        rssReader.readRssFeed(new ByteArrayInputStream(content));
+        return rssReader;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JmhRunner.run(RssReaderBenchmark.class);
+    }
+}
@@ -0,0 +1,70 @@
+package com.sismics.reader.benchmark;
+
+import com.sismics.util.SaxParserUtil;
+import org.ccil.cowan.tagsoup.jaxp.SAXParserImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the per-document overhead of the SAX parsers: a new parser for each document,
+ * as opposed to the parsers reused by {@link SaxParserUtil}. The documents are tiny so that the overhead dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaxParserBenchmark {
+    private static final String XML = "<rss version=\"2.0\"><channel><title>Feed</title><item><title>Article</title></item></channel></rss>";
+
+    private static final String HTML = "<html><head><link rel=\"alternate\" type=\"application/rss+xml\" href=\"/feed\"></head><body><p>Page</body></html>";
+
+    private final DefaultHandler handler = new DefaultHandler();
+
+    @Benchmark
+    public void xmlNewParser() throws Exception {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        factory.setFeature("http://apache.org/xml/features/continue-after-fatal-error", true);
+        SAXParser parser = factory.newSAXParser();
+        parser.parse(new InputSource(new StringReader(XML)), handler);
+    }
+
+    @Benchmark
+    public void xmlPooledParser() throws Exception {
+        SaxParserUtil.parseXml(new InputSource(new StringReader(XML)), handler, true);
+    }
+
+    @Benchmark
+    public void htmlNewParser() throws Exception {
+        SAXParserImpl parser = SAXParserImpl.newInstance(null);
+        parser.setFeature("http://xml.org/sax/features/namespaces", true);
+        parser.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+        parser.parse(new InputSource(new StringReader(HTML)), handler);
+    }
+
+    @Benchmark
+    public void htmlPooledParser() throws Exception {
+        SaxParserUtil.parseHtml(new InputSource(new StringReader(HTML)), handler);
+    }
+
+    public static void main(String[] args) throws Exception {
+        JmhRunner.run(SaxParserBenchmark.class);
+    }
+}
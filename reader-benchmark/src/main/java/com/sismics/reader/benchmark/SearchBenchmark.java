@@ -0,0 +1,295 @@
+package com.sismics.reader.benchmark;
+
+import com.google.common.io.Files;
+import com.sismics.reader.core.dao.lucene.ArticleDocument;
+import com.sismics.reader.core.dao.lucene.FeedFilter;
+import com.sismics.reader.core.dao.lucene.ReaderStandardAnalyzer;
+import com.sismics.reader.core.model.jpa.Article;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortField.Type;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.grouping.GroupingSearch;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the full-text search on synthetic articles, each URL being published in several feeds.
+ * The same articles are indexed with a document per article, deduplicated at query time by grouping on the URL,
+ * and with a document per URL, sorted by date and paged with searchAfter.
+ * The score is the time to read a page of results of a user subscribed to some of the feeds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SearchBenchmark {
+    /**
+     * Number of articles.
+     */
+    @Param({ "500000" })
+    public int articleCount;
+
+    /**
+     * Number of articles of a URL.
+     */
+    @Param({ "1", "3" })
+    public int articlesPerUrl;
+
+    /**
+     * Number of feeds.
+     */
+    private static final int FEED_COUNT = 2000;
+
+    /**
+     * Number of feeds subscribed by the user.
+     */
+    private static final int SUBSCRIPTION_COUNT = 200;
+
+    /**
+     * Number of words of the vocabulary.
+     */
+    private static final int WORD_COUNT = 20000;
+
+    /**
+     * Proportion of the articles matching the query.
+     */
+    private static final double MATCH_RATE = 0.2;
+
+    /**
+     * Number of results of a page.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * Offset of the deep page.
+     */
+    private static final int DEEP_PAGE_OFFSET = 1000;
+
+    /**
+     * Term of the query.
+     */
+    private static final String QUERY_TERM = "benchmarkterm";
+
+    /**
+     * Order of the results, latest articles first.
+     */
+    private static final Sort SORT = new Sort(new SortField("date", Type.LONG, true));
+
+    private File tempDir;
+
+    private Directory articleDirectory;
+
+    private Directory urlDirectory;
+
+    private DirectoryReader articleReader;
+
+    private DirectoryReader urlReader;
+
+    private IndexSearcher articleSearcher;
+
+    private IndexSearcher urlSearcher;
+
+    private Query query;
+
+    private FeedFilter feedFilter;
+
+    /**
+     * Last result before the deep page in the URL index.
+     */
+    private ScoreDoc deepPageAfter;
+
+    @Setup
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDir();
+        articleDirectory = new MMapDirectory(new File(tempDir, "article"));
+        urlDirectory = new MMapDirectory(new File(tempDir, "url"));
+
+        // Index the same articles with both layouts, the articles of a URL are generated together
+        FieldType contentFieldType = new FieldType(TextField.TYPE_STORED);
+        contentFieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        Random random = new Random(42);
+        try (IndexWriter articleWriter = new IndexWriter(articleDirectory, newIndexWriterConfig());
+                IndexWriter urlWriter = new IndexWriter(urlDirectory, newIndexWriterConfig())) {
+            for (int i = 0; i < articleCount; i += articlesPerUrl) {
+                String url = "http://localhost/article/" + i;
+                boolean match = random.nextDouble() < MATCH_RATE;
+                ArticleDocument articleDocument = new ArticleDocument(url);
+                for (int j = 0; j < articlesPerUrl; j++) {
+                    Article article = new Article();
+                    article.setId(UUID.randomUUID().toString());
+                    article.setFeedId("feed" + random.nextInt(FEED_COUNT));
+                    article.setUrl(url);
+                    article.setTitle(randomText(random, 8, match));
+                    article.setDescription(randomText(random, 60, false));
+                    article.setPublicationDate(new Date(1400000000000L + random.nextInt(365 * 24 * 3600) * 1000L));
+
+                    Document document = new Document();
+                    document.add(new StringField("id", article.getId(), Field.Store.YES));
+                    document.add(new StringField("url", url, Field.Store.YES));
+                    document.add(new StringField("feedId", article.getFeedId(), Field.Store.YES));
+                    document.add(new LongField("date", article.getPublicationDate().getTime(), Field.Store.YES));
+                    document.add(new Field("title", article.getTitle(), contentFieldType));
+                    document.add(new Field("description", article.getDescription(), contentFieldType));
+                    articleWriter.addDocument(document);
+                    articleDocument.add(article);
+                }
+                urlWriter.addDocument(articleDocument.toDocument());
+            }
+        }
+        articleReader = DirectoryReader.open(articleDirectory);
+        urlReader = DirectoryReader.open(urlDirectory);
+        articleSearcher = new IndexSearcher(articleReader);
+        urlSearcher = new IndexSearcher(urlReader);
+
+        BooleanQuery booleanQuery = new BooleanQuery();
+        booleanQuery.add(new TermQuery(new Term("title", QUERY_TERM)), Occur.SHOULD);
+        booleanQuery.add(new TermQuery(new Term("description", QUERY_TERM)), Occur.SHOULD);
+        query = booleanQuery;
+
+        List<String> feedIdList = new ArrayList<String>();
+        for (int i = 0; i < SUBSCRIPTION_COUNT; i++) {
+            feedIdList.add("feed" + i * (FEED_COUNT / SUBSCRIPTION_COUNT));
+        }
+        feedFilter = new FeedFilter(feedIdList);
+
+        TopDocs topDocs = urlSearcher.search(query, feedFilter.getFilter(), DEEP_PAGE_OFFSET, SORT);
+        deepPageAfter = topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        articleReader.close();
+        urlReader.close();
+        articleDirectory.close();
+        urlDirectory.close();
+        delete(tempDir);
+    }
+
+    /**
+     * Deletes a file or a directory with its content.
+     *
+     * @param file File
+     */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Returns a new configuration of the index writers.
+     *
+     * @return Index writer configuration
+     */
+    private static IndexWriterConfig newIndexWriterConfig() {
+        return new IndexWriterConfig(Version.LUCENE_42, new ReaderStandardAnalyzer(Version.LUCENE_42))
+                .setRAMBufferSizeMB(64);
+    }
+
+    /**
+     * Returns a text of random words.
+     *
+     * @param random Random
+     * @param wordCount Number of words
+     * @param match True to include the term of the query
+     * @return Text
+     */
+    private static String randomText(Random random, int wordCount, boolean match) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            // Some words are much more frequent than others
+            int word = (int) (WORD_COUNT * Math.pow(random.nextDouble(), 3));
+            sb.append("word").append(word).append(' ');
+        }
+        if (match) {
+            sb.append(QUERY_TERM);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a page of results grouped by URL.
+     *
+     * @param offset Offset
+     * @return Results
+     */
+    private TopGroups<BytesRef> groupingSearch(int offset) throws Exception {
+        GroupingSearch groupingSearch = new GroupingSearch("url");
+        groupingSearch.setGroupSort(SORT);
+        groupingSearch.setFillSortFields(true);
+        groupingSearch.setCachingInMB(20, true);
+        groupingSearch.setAllGroups(true);
+        return groupingSearch.search(articleSearcher, feedFilter.getFilter(), query, offset, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public TopGroups<BytesRef> groupingFirstPage() throws Exception {
+        return groupingSearch(0);
+    }
+
+    @Benchmark
+    public TopGroups<BytesRef> groupingDeepPage() throws Exception {
+        return groupingSearch(DEEP_PAGE_OFFSET);
+    }
+
+    @Benchmark
+    public TopDocs urlFirstPage() throws Exception {
+        return urlSearcher.search(query, feedFilter.getFilter(), PAGE_SIZE, SORT);
+    }
+
+    @Benchmark
+    public TopDocs urlDeepPage() throws Exception {
+        return urlSearcher.searchAfter(deepPageAfter, query, feedFilter.getFilter(), PAGE_SIZE, SORT);
+    }
+
+    public static void main(String[] args) throws Exception {
+        JmhRunner.run(SearchBenchmark.class);
+    }
+}
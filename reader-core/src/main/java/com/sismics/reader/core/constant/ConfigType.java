@@ -10,4 +10,29 @@ public enum ConfigType {
      * Lucene directory storage type.
      */
     LUCENE_DIRECTORY_STORAGE,
+
+    /**
+     * Number of feeds downloaded in parallel.
+     */
+    FEED_SYNC_THREAD_COUNT,
+
+    /**
+     * Maximum number of concurrent HTTP connections to the same host.
+     */
+    HTTP_MAX_CONNECTIONS_PER_HOST,
+
+    /**
+     * Maximum size of an HTTP response body, compressed or not (in bytes).
+     */
+    HTTP_MAX_BODY_SIZE,
+
+    /**
+     * Maximum number of feed fetches per minute to the same host.
+     */
+    FEED_HOST_REQUEST_RATE,
+
+    /**
+     * Public base URL of the REST API, used as WebSub callback. WebSub is disabled if undefined.
+     */
+    WEBSUB_CALLBACK_URL,
 }
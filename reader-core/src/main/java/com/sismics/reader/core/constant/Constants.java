@@ -32,10 +32,40 @@ public class Constants {
     public static final String LUCENE_DIRECTORY_STORAGE_RAM = "RAM";
     
     /**
-     * File Lucene directory storage.
+     * File Lucene directory storage, memory-mapped on 64-bit JVMs.
      */
     public static final String LUCENE_DIRECTORY_STORAGE_FILE = "FILE";
     
+    /**
+     * Memory-mapped file Lucene directory storage.
+     */
+    public static final String LUCENE_DIRECTORY_STORAGE_MMAP = "MMAP";
+    
+    /**
+     * File Lucene directory storage read with NIO positional reads.
+     */
+    public static final String LUCENE_DIRECTORY_STORAGE_NIOFS = "NIOFS";
+    
+    /**
+     * Default number of feeds synchronized in parallel.
+     */
+    public static final int DEFAULT_FEED_SYNC_THREAD_COUNT = 4;
+    
+    /**
+     * Default maximum number of concurrent HTTP connections to the same host.
+     */
+    public static final int DEFAULT_HTTP_MAX_CONNECTIONS_PER_HOST = 2;
+    
+    /**
+     * Default maximum size of an HTTP response body, compressed or not (in bytes).
+     */
+    public static final int DEFAULT_HTTP_MAX_BODY_SIZE = 10 * 1024 * 1024;
+    
+    /**
+     * Default maximum number of feed fetches per minute to the same host.
+     */
+    public static final int DEFAULT_FEED_HOST_REQUEST_RATE = 60;
+    
     /**
      * Default generic user role.
      */
@@ -1,10 +1,11 @@
 package com.sismics.reader.core.dao.file.html;
 
+import com.sismics.util.SaxParserUtil;
 import org.apache.commons.lang.StringUtils;
-import org.ccil.cowan.tagsoup.jaxp.SAXParserImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -46,11 +47,7 @@ public class FaviconExtractor extends DefaultHandler {
      * @param is Input stream
      */
     public void readPage(InputStream is) throws Exception {
-        SAXParserImpl parser = SAXParserImpl.newInstance(null);
-        parser.setFeature("http://xml.org/sax/features/namespaces", true);    
-        parser.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
-    
-        parser.parse(is, this);
+        SaxParserUtil.parseHtml(new InputSource(is), this);
     }
     
     @Override
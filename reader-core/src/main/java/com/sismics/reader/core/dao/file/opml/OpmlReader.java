@@ -1,14 +1,14 @@
 package com.sismics.reader.core.dao.file.opml;
 
+import com.sismics.util.SaxParserUtil;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.text.MessageFormat;
@@ -69,12 +69,7 @@ public class OpmlReader extends DefaultHandler {
      * @param is Input stream
      */
     public void read(InputStream is) throws Exception {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        factory.setNamespaceAware(true);
-        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        SAXParser parser = factory.newSAXParser();
-
-        parser.parse(is, this);
+        SaxParserUtil.parseXml(new InputSource(is), this, false);
     }
     
     @Override
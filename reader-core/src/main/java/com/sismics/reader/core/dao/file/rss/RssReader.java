@@ -2,14 +2,14 @@ package com.sismics.reader.core.dao.file.rss;
 
 import com.sismics.reader.core.model.jpa.Article;
 import com.sismics.reader.core.model.jpa.Feed;
+import com.sismics.reader.core.util.FeedScheduleUtil;
 import com.sismics.reader.core.util.StreamUtil;
+import com.sismics.util.DateParser;
 import com.sismics.util.DateUtil;
+import com.sismics.util.SaxParserUtil;
 import com.sismics.util.UrlUtil;
 import org.apache.commons.lang.StringUtils;
-import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.DateTimeFormatterBuilder;
-import org.joda.time.format.DateTimeParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
@@ -18,8 +18,6 @@ import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.helpers.DefaultHandler;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.MalformedURLException;
@@ -33,44 +31,107 @@ import java.util.*;
 public class RssReader extends DefaultHandler {
     private static final Logger log = LoggerFactory.getLogger(RssReader.class);
 
+    /**
+     * Common date formats used in RSS feeds.
+     */
+    private static final DateTimeFormatter[] DF_RSS_LIST = DateUtil.getFormatterArray(
+            "EEE, dd MMM yyyy HH:mm zzz",
+            "EEE, dd MMM yyyy HH:mm:ss Z",
+            "EEE, dd MMM yyyy HH:mm:ss zzz",
+            "EEE,  d MMM yyyy HH:mm:ss zzz",
+            "dd MMM yyyy HH:mm:ss Z",
+            "yyyy-mm-dd HH:mm:ss",
+            "EEE, dd MMM yyyy HH:mm:ss",
+            "dd MMM yyyy HH:mm:ss zzz",
+            "EEE MMM dd yyyy HH:mm:ss 'GMT'Z Z");
+
     /**
      * A list of common date formats used in RSS feeds.
      */
-    public static final DateTimeFormatter DF_RSS = new DateTimeFormatterBuilder()
-            .append(null, new DateTimeParser[] {
-                    DateTimeFormat.forPattern("EEE, dd MMM yyyy HH:mm zzz").getParser(),
-                    DateTimeFormat.forPattern("EEE, dd MMM yyyy HH:mm:ss Z").getParser(),
-                    DateTimeFormat.forPattern("EEE, dd MMM yyyy HH:mm:ss zzz").getParser(),
-                    DateTimeFormat.forPattern("EEE,  d MMM yyyy HH:mm:ss zzz").getParser(),
-                    DateTimeFormat.forPattern("dd MMM yyyy HH:mm:ss Z").getParser(),
-                    DateTimeFormat.forPattern("yyyy-mm-dd HH:mm:ss").getParser(),
-                    DateTimeFormat.forPattern("EEE, dd MMM yyyy HH:mm:ss").getParser(),
-                    DateTimeFormat.forPattern("dd MMM yyyy HH:mm:ss zzz").getParser(),
-                    DateTimeFormat.forPattern("EEE MMM dd yyyy HH:mm:ss 'GMT'Z Z").getParser()
-                }).toFormatter().withOffsetParsed().withLocale(Locale.ENGLISH);
+    public static final DateTimeFormatter DF_RSS = DateUtil.getFormatter(DF_RSS_LIST);
     
+    /**
+     * Common date formats used in Atom feeds.
+     */
+    private static final DateTimeFormatter[] DF_ATOM_LIST = DateUtil.getFormatterArray(
+            "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
     /**
      * A list of common date formats used in Atom feeds.
      */
-    public static final DateTimeFormatter DF_ATOM = new DateTimeFormatterBuilder()
-            .append(null, new DateTimeParser[] {
-                    DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ssZ").getParser(),
-                    DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ").getParser()
-                }).toFormatter().withOffsetParsed().withLocale(Locale.ENGLISH);
+    public static final DateTimeFormatter DF_ATOM = DateUtil.getFormatter(DF_ATOM_LIST);
+
+    /**
+     * Common date formats used in Dublin Core.
+     */
+    private static final DateTimeFormatter[] DF_DC_LIST = DateUtil.getFormatterArray(
+            "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ");
 
     /**
      * A list of common date formats used in Dublin Core.
      */
-    public static final DateTimeFormatter DF_DC = new DateTimeFormatterBuilder()
-            .append(null, new DateTimeParser[] {
-                    DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ssZ").getParser(),
-                    DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ").getParser()
-                }).toFormatter().withOffsetParsed().withLocale(Locale.ENGLISH);
+    public static final DateTimeFormatter DF_DC = DateUtil.getFormatter(DF_DC_LIST);
+
+    /**
+     * Initial size of the buffers of element contents.
+     */
+    private static final int CONTENT_BUFFER_SIZE = 1024;
+
+    /**
+     * Largest buffer of element contents kept for the next feed.
+     */
+    private static final int CONTENT_BUFFER_MAX_SIZE = 256 * 1024;
+
+    /**
+     * Buffers of element contents, reused from a feed to the next by each parsing thread.
+     */
+    private static final ThreadLocal<char[]> contentBufferHolder = ThreadLocal.withInitial(() -> new char[CONTENT_BUFFER_SIZE]);
+
+    /**
+     * Contents of the current element. The buffer is reused from an element to the next.
+     */
+    private char[] contentBuffer;
+
+    /**
+     * Length of the contents of the current element, or -1 if the element has no content.
+     */
+    private int contentLength = -1;
+
+    /**
+     * Number of consecutive known articles after which the rest of the feed is skipped.
+     */
+    private static final int KNOWN_ARTICLE_RUN_MAX = 5;
+
+    /**
+     * GUIDs of the articles already known, or null to read the whole feed.
+     */
+    private Set<String> knownGuidSet;
 
     /**
-     * Contents of the current element.
+     * Number of consecutive known articles read so far.
      */
-    private String content;
+    private int knownArticleRunCount;
+
+    /**
+     * Publication date of the previous article.
+     */
+    private Date previousPublicationDate;
+
+    /**
+     * The parsing stopped on known articles before the end of the feed.
+     */
+    private boolean truncated;
+
+    /**
+     * Parsers of the dates, learning the format used by this feed.
+     */
+    private final DateParser rssDateParser = new DateParser(DF_RSS_LIST);
+
+    private final DateParser atomDateParser = new DateParser(DF_ATOM_LIST);
+
+    private final DateParser dcDateParser = new DateParser(DF_DC_LIST);
 
     private Feed feed;
     
@@ -84,6 +145,21 @@ public class RssReader extends DefaultHandler {
 
     private int fatalErrorCount;
 
+    /**
+     * Time to live of the feed, in minutes (RSS).
+     */
+    private Integer ttl;
+
+    /**
+     * Update period of the feed (syndication module).
+     */
+    private String syUpdatePeriod;
+
+    /**
+     * Number of updates per period (syndication module).
+     */
+    private Integer syUpdateFrequency;
+
     private final static String URI_XML = "http://www.w3.org/XML/1998/namespace";
     
     private final static String URI_ATOM = "http://www.w3.org/2005/Atom";
@@ -98,6 +174,8 @@ public class RssReader extends DefaultHandler {
     
     private final static String URI_THREAD = "http://purl.org/syndication/thread/1.0";
     
+    private final static String URI_SYNDICATION = "http://purl.org/rss/1.0/modules/syndication/";
+    
     private enum FeedType {
         RSS,
         
@@ -121,6 +199,12 @@ public class RssReader extends DefaultHandler {
         RSS_DESCRIPTION,
        
         RSS_LANGUAGE,
+        
+        RSS_TTL,
+        
+        SY_UPDATE_PERIOD,
+        
+        SY_UPDATE_FREQUENCY,
 
         ITEM,
 
@@ -198,28 +282,42 @@ public class RssReader extends DefaultHandler {
         elementStack = new Stack<Element>();
     }
 
+    /**
+     * Constructor of RssReader reading the feed until a run of known articles.
+     * The feed is read entirely if its articles are not sorted from the newest to the oldest.
+     * 
+     * @param knownGuidSet GUIDs of the articles already known
+     */
+    public RssReader(Set<String> knownGuidSet) {
+        this();
+        this.knownGuidSet = knownGuidSet;
+    }
+
     /**
      * Reads an RSS / Atom feed into feed and articles.
      * 
      * @param is Input stream
      */
     public void readRssFeed(InputStream is) throws Exception {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        factory.setNamespaceAware(true);
-        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        factory.setFeature("http://apache.org/xml/features/continue-after-fatal-error", true);
-        SAXParser parser = factory.newSAXParser();
-
         // Pass a character stream to the parser for it to pick-up the correct encoding.
         // See http://stackoverflow.com/questions/3482494/
         Reader reader = new XmlReader(StreamUtil.detectGzip(is), "UTF-8");
         InputSource source = new InputSource(reader);
         
+        contentBuffer = contentBufferHolder.get();
         try {
-            parser.parse(source, this);
+            SaxParserUtil.parseXml(source, this, true);
+        } catch (KnownArticleRunException e) {
+            // The following articles are already known
+            truncated = true;
         } catch (InternalError e) {
             // Fix for Oracle code throwing java.lang.InternalError disgracefully
             throw new Exception(e);
+        } finally {
+            if (contentBuffer.length <= CONTENT_BUFFER_MAX_SIZE) {
+                contentBufferHolder.set(contentBuffer);
+            }
+            contentBuffer = null;
         }
     
         if (feedType == FeedType.ATOM) {
@@ -240,6 +338,25 @@ public class RssReader extends DefaultHandler {
         }
         validateFeed();
         fixGuid();
+        
+        // WebSub hub advertised by the publisher
+        for (AtomLink atomLink : atomLinkList) {
+            if ("hub".equals(atomLink.getRel()) && feed.getHubUrl() == null) {
+                feed.setHubUrl(atomLink.getHref());
+            } else if ("self".equals(atomLink.getRel()) && feed.getHubTopic() == null) {
+                feed.setHubTopic(atomLink.getHref());
+            }
+        }
+        if (feed.getHubUrl() == null) {
+            feed.setHubTopic(null);
+        }
+        
+        // Refresh rate advertised by the publisher
+        if (ttl != null) {
+            feed.setUpdatePeriod(ttl);
+        } else {
+            feed.setUpdatePeriod(FeedScheduleUtil.getSyndicationUpdatePeriod(syUpdatePeriod, syUpdateFrequency));
+        }
     }
     
     @Override
@@ -281,9 +398,25 @@ public class RssReader extends DefaultHandler {
         } else if ((feedType == FeedType.RSS || feedType == FeedType.RDF) && currentElement == Element.RSS_CHANNEL
                 && "link".equalsIgnoreCase(localName) && !URI_ATOM.equals(uri)) {
             pushElement(Element.RSS_LINK);
+        } else if ((feedType == FeedType.RSS || feedType == FeedType.RDF) && currentElement == Element.RSS_CHANNEL
+                && "link".equalsIgnoreCase(localName) && URI_ATOM.equals(uri)) {
+            String rel = StringUtils.trimToNull(attributes.getValue("rel"));
+            String type = StringUtils.trimToNull(attributes.getValue("type"));
+            String href = StringUtils.trimToNull(attributes.getValue("href"));
+            atomLinkList.add(new AtomLink(rel, type, href));
+            pushElement(Element.ATOM_LINK);
         } else if ((feedType == FeedType.RSS || feedType == FeedType.RDF) && currentElement == Element.RSS_CHANNEL &&
                 "language".equals(localName)) {
             pushElement(Element.RSS_LANGUAGE);
+        } else if (feedType == FeedType.RSS && currentElement == Element.RSS_CHANNEL &&
+                "ttl".equalsIgnoreCase(localName)) {
+            pushElement(Element.RSS_TTL);
+        } else if ((currentElement == Element.RSS_CHANNEL || currentElement == Element.FEED) &&
+                "updatePeriod".equals(localName) && URI_SYNDICATION.equals(uri)) {
+            pushElement(Element.SY_UPDATE_PERIOD);
+        } else if ((currentElement == Element.RSS_CHANNEL || currentElement == Element.FEED) &&
+                "updateFrequency".equals(localName) && URI_SYNDICATION.equals(uri)) {
+            pushElement(Element.SY_UPDATE_FREQUENCY);
         } else if (((feedType == FeedType.RSS && currentElement == Element.RSS_CHANNEL) || (feedType == FeedType.RDF && currentElement == Element.RDF)) &&
                 "item".equalsIgnoreCase(localName)) {
             pushElement(Element.ITEM);
@@ -413,7 +546,9 @@ public class RssReader extends DefaultHandler {
 
     @Override
     public void endElement(String uri, String localName, String qName) throws SAXException {
-        if ("title".equalsIgnoreCase(localName) && currentElement == Element.RSS_TITLE) {
+        if ("item".equalsIgnoreCase(localName) && currentElement == Element.ITEM) {
+            endArticle();
+        } else if ("title".equalsIgnoreCase(localName) && currentElement == Element.RSS_TITLE) {
             feed.setTitle(getContent());
         } else if ("link".equalsIgnoreCase(localName) && currentElement == Element.RSS_LINK) {
             feed.setUrl(getContent());
@@ -421,6 +556,12 @@ public class RssReader extends DefaultHandler {
             feed.setDescription(getContent());
         } else if ("language".equalsIgnoreCase(localName) && currentElement == Element.RSS_LANGUAGE) {
             feed.setLanguage(getContent());
+        } else if ("ttl".equalsIgnoreCase(localName) && currentElement == Element.RSS_TTL) {
+            ttl = parseUpdateInteger(getContent());
+        } else if ("updatePeriod".equals(localName) && currentElement == Element.SY_UPDATE_PERIOD) {
+            syUpdatePeriod = getContent();
+        } else if ("updateFrequency".equals(localName) && currentElement == Element.SY_UPDATE_FREQUENCY) {
+            syUpdateFrequency = parseUpdateInteger(getContent());
         } else if ("title".equalsIgnoreCase(localName) && currentElement == Element.ITEM_TITLE) {
             article.setTitle(getContent());
         } else if ("guid".equalsIgnoreCase(localName) && currentElement == Element.ITEM_GUID) {
@@ -446,10 +587,10 @@ public class RssReader extends DefaultHandler {
         } else if ("creator".equalsIgnoreCase(localName) && currentElement == Element.ITEM_DC_CREATOR && URI_DC.equals(uri)) {
             article.setCreator(getContent());
         } else if ("date".equalsIgnoreCase(localName) && currentElement == Element.ITEM_DC_DATE && URI_DC.equals(uri)) {
-            Date publicationDate = DateUtil.parseDate(getContent(), DF_DC);
+            Date publicationDate = dcDateParser.parse(getContent());
             article.setPublicationDate(publicationDate);
         } else if ("pubDate".equalsIgnoreCase(localName) && currentElement == Element.ITEM_PUB_DATE) {
-            Date publicationDate = DateUtil.parseDate(getContent(), DF_RSS);
+            Date publicationDate = rssDateParser.parse(getContent());
             article.setPublicationDate(publicationDate);
         } else if ("encoded".equalsIgnoreCase(localName) && currentElement == Element.ITEM_CONTENT_ENCODED && URI_CONTENT.equals(uri)) {
             article.setDescription(getContent());
@@ -458,6 +599,7 @@ public class RssReader extends DefaultHandler {
             article.setUrl(url);
             String commentUrl = new AtomArticleCommentUrlGuesserStrategy().guess(atomArticleLinkList);
             article.setCommentUrl(commentUrl);
+            endArticle();
         } else if ("title".equalsIgnoreCase(localName) && currentElement == Element.ATOM_TITLE) {
             feed.setTitle(getContent());
         } else if ("subtitle".equalsIgnoreCase(localName) && currentElement == Element.ATOM_SUBTITLE) {
@@ -467,7 +609,7 @@ public class RssReader extends DefaultHandler {
         } else if ("title".equalsIgnoreCase(localName) && currentElement == Element.ENTRY_TITLE) {
             article.setTitle(getContent());
         } else if ("updated".equalsIgnoreCase(localName) && currentElement == Element.ENTRY_UPDATED) {
-            article.setPublicationDate(DateUtil.parseDate(getContent(), DF_ATOM));
+            article.setPublicationDate(atomDateParser.parse(getContent()));
         } else if ("id".equalsIgnoreCase(localName) && currentElement == Element.ENTRY_ID) {
             article.setGuid(getContent());
         } else if ("summary".equalsIgnoreCase(localName) && currentElement == Element.ENTRY_SUMMARY) {
@@ -480,10 +622,52 @@ public class RssReader extends DefaultHandler {
         } else if ("name".equalsIgnoreCase(localName) && currentElement == Element.AUTHOR_NAME) {
             article.setCreator(getContent());
         }
-        content = null;
+        contentLength = -1;
         popElement();
     }
 
+    /**
+     * Completes the current article, and stops the parsing after a run of known articles.
+     */
+    private void endArticle() throws SAXException {
+        GuidFixer.fixGuid(article);
+        if (knownGuidSet == null) {
+            return;
+        }
+
+        // Newer articles may follow the known ones if the feed is not sorted by date
+        Date publicationDate = article.getPublicationDate();
+        if (publicationDate == null || previousPublicationDate != null && publicationDate.after(previousPublicationDate)) {
+            knownGuidSet = null;
+            return;
+        }
+        previousPublicationDate = publicationDate;
+
+        if (!knownGuidSet.contains(article.getGuid())) {
+            knownArticleRunCount = 0;
+        } else if (++knownArticleRunCount >= KNOWN_ARTICLE_RUN_MAX) {
+            throw new KnownArticleRunException();
+        }
+    }
+
+    /**
+     * Parses a positive integer value of the update schedule.
+     * 
+     * @param value Value to parse
+     * @return Parsed value, or null if invalid
+     */
+    private Integer parseUpdateInteger(String value) {
+        try {
+            int result = Integer.parseInt(value);
+            return result > 0 ? result : null;
+        } catch (NumberFormatException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Error parsing update schedule: " + value);
+            }
+            return null;
+        }
+    }
+
     /**
      * Creates a new Feed.
      */
@@ -546,12 +730,14 @@ public class RssReader extends DefaultHandler {
 
     @Override
     public void characters(char[] ch, int start, int length) throws SAXException {
-        String newContent = new String(ch, start, length);
-        if (content == null) {
-            content = newContent;
-        } else {
-            content += newContent;
+        // SAX may deliver the text of an element in many chunks
+        int offset = Math.max(contentLength, 0);
+        int newLength = offset + length;
+        if (newLength > contentBuffer.length) {
+            contentBuffer = Arrays.copyOf(contentBuffer, Math.max(newLength, contentBuffer.length * 2));
         }
+        System.arraycopy(ch, start, contentBuffer, offset, length);
+        contentLength = newLength;
     }
     
     @Override
@@ -569,9 +755,21 @@ public class RssReader extends DefaultHandler {
      * @return Content
      */
     private String getContent() {
-        String content = StringUtils.trim(this.content);
-        this.content = null;
-        return content;
+        if (contentLength < 0) {
+            return null;
+        }
+        
+        // Trim the content, as String.trim() does
+        int begin = 0;
+        int end = contentLength;
+        while (begin < end && contentBuffer[begin] <= ' ') {
+            begin++;
+        }
+        while (end > begin && contentBuffer[end - 1] <= ' ') {
+            end--;
+        }
+        contentLength = -1;
+        return new String(contentBuffer, begin, end - begin);
     }
 
     /**
@@ -591,4 +789,40 @@ public class RssReader extends DefaultHandler {
     public List<Article> getArticleList() {
         return articleList;
     }
+
+    /**
+     * Returns the formats of the dates learned while reading the feed, to read the next version of the feed.
+     *
+     * @return Formats of the RSS, Atom and Dublin Core dates
+     */
+    public int[] getDateFormats() {
+        return new int[] { rssDateParser.getLastFormat(), atomDateParser.getLastFormat(), dcDateParser.getLastFormat() };
+    }
+
+    /**
+     * Sets the formats of the dates learned while reading a previous version of the feed.
+     *
+     * @param dateFormats Formats of the RSS, Atom and Dublin Core dates
+     */
+    public void setDateFormats(int[] dateFormats) {
+        rssDateParser.setLastFormat(dateFormats[0]);
+        atomDateParser.setLastFormat(dateFormats[1]);
+        dcDateParser.setLastFormat(dateFormats[2]);
+    }
+
+    /**
+     * Getter of truncated.
+     *
+     * @return truncated
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Exception stopping the parsing after a run of known articles.
+     */
+    private static class KnownArticleRunException extends SAXException {
+        private static final long serialVersionUID = 1L;
+    }
 }
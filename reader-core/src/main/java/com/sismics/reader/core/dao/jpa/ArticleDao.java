@@ -27,7 +27,7 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
         List<String> criteriaList = new ArrayList<String>();
         Map<String, Object> parameterMap = new HashMap<String, Object>();
 
-        StringBuilder sb = new StringBuilder("select a.ART_ID_C, a.ART_URL_C, a.ART_GUID_C, a.ART_TITLE_C, a.ART_CREATOR_C, a.ART_DESCRIPTION_C, a.ART_COMMENTURL_C, a.ART_COMMENTCOUNT_N, a.ART_ENCLOSUREURL_C, a.ART_ENCLOSURELENGTH_N, a.ART_ENCLOSURETYPE_C, a.ART_PUBLICATIONDATE_D, a.ART_CREATEDATE_D, a.ART_IDFEED_C ")
+        StringBuilder sb = new StringBuilder("select a.ART_ID_C, a.ART_URL_C, a.ART_GUID_C, a.ART_TITLE_C, a.ART_CREATOR_C, a.ART_DESCRIPTION_C, a.ART_COMMENTURL_C, a.ART_COMMENTCOUNT_N, a.ART_ENCLOSUREURL_C, a.ART_ENCLOSURELENGTH_N, a.ART_ENCLOSURETYPE_C, a.ART_PUBLICATIONDATE_D, a.ART_CREATEDATE_D, a.ART_RAWHASH_C, a.ART_IDFEED_C ")
                 .append("  from T_ARTICLE a ");
 
         // Adds search criteria
@@ -72,11 +72,12 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
         // Create the UUID
         article.setId(UUID.randomUUID().toString());
         article.setCreateDate(new Date());
+        article.setUpdateDate(article.getCreateDate());
 
         // Create the article
         EntityManager em = ThreadLocalContext.get().getEntityManager();
-        Query q = em.createNativeQuery("insert into T_ARTICLE(ART_ID_C, ART_IDFEED_C, ART_URL_C, ART_BASEURI_C, ART_GUID_C, ART_TITLE_C, ART_CREATOR_C, ART_DESCRIPTION_C, ART_COMMENTURL_C, ART_COMMENTCOUNT_N, ART_ENCLOSUREURL_C, ART_ENCLOSURELENGTH_N, ART_ENCLOSURETYPE_C, ART_PUBLICATIONDATE_D, ART_CREATEDATE_D)" +
-                "  values (:id, :feedId, :url, :baseUri, :guid, :title, :creator, :description, :commentUrl, " + DialectUtil.getNullParameter(":commentCount", article.getCommentCount())+ ", :enclosureUrl, " + DialectUtil.getNullParameter(":enclosureLength", article.getEnclosureLength())+ ", :enclosureType, :publicationDate, :createDate)")
+        Query q = em.createNativeQuery("insert into T_ARTICLE(ART_ID_C, ART_IDFEED_C, ART_URL_C, ART_BASEURI_C, ART_GUID_C, ART_TITLE_C, ART_CREATOR_C, ART_DESCRIPTION_C, ART_COMMENTURL_C, ART_COMMENTCOUNT_N, ART_ENCLOSUREURL_C, ART_ENCLOSURELENGTH_N, ART_ENCLOSURETYPE_C, ART_PUBLICATIONDATE_D, ART_CREATEDATE_D, ART_UPDATEDATE_D, ART_RAWHASH_C)" +
+                "  values (:id, :feedId, :url, :baseUri, :guid, :title, :creator, :description, :commentUrl, " + DialectUtil.getNullParameter(":commentCount", article.getCommentCount())+ ", :enclosureUrl, " + DialectUtil.getNullParameter(":enclosureLength", article.getEnclosureLength())+ ", :enclosureType, :publicationDate, :createDate, :updateDate, :rawHash)")
                 .setParameter("id", article.getId())
                 .setParameter("feedId", article.getFeedId())
                 .setParameter("url", article.getUrl())
@@ -89,7 +90,9 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
                 .setParameter("enclosureUrl", article.getEnclosureUrl())
                 .setParameter("enclosureType", article.getEnclosureType())
                 .setParameter("publicationDate", article.getPublicationDate())
-                .setParameter("createDate", article.getCreateDate());
+                .setParameter("createDate", article.getCreateDate())
+                .setParameter("updateDate", article.getUpdateDate())
+                .setParameter("rawHash", article.getRawHash());
         if (article.getCommentCount() != null) {
             q.setParameter("commentCount", article.getCommentCount());
         }
@@ -109,6 +112,7 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
      */
     public Article update(Article article) {
         // Get the article
+        article.setUpdateDate(new Date());
         EntityManager em = ThreadLocalContext.get().getEntityManager();
         Query q = em.createNativeQuery("update T_ARTICLE set" +
                 "  ART_URL_C = :url," +
@@ -119,7 +123,9 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
                 "  ART_COMMENTCOUNT_N = " + DialectUtil.getNullParameter(":commentCount", article.getCommentCount())+ "," +
                 "  ART_ENCLOSUREURL_C = :enclosureUrl," +
                 "  ART_ENCLOSURELENGTH_N = " + DialectUtil.getNullParameter(":enclosureLength", article.getEnclosureLength())+ "," +
-                "  ART_ENCLOSURETYPE_C = :enclosureType" +
+                "  ART_ENCLOSURETYPE_C = :enclosureType," +
+                "  ART_RAWHASH_C = :rawHash," +
+                "  ART_UPDATEDATE_D = :updateDate" +
                 "  where ART_ID_C = :id and ART_DELETEDATE_D is null")
                 .setParameter("url", article.getUrl())
                 .setParameter("title", article.getTitle())
@@ -128,6 +134,8 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
                 .setParameter("commentUrl", article.getCommentUrl())
                 .setParameter("enclosureUrl", article.getEnclosureUrl())
                 .setParameter("enclosureType", article.getEnclosureType())
+                .setParameter("rawHash", article.getRawHash())
+                .setParameter("updateDate", article.getUpdateDate())
                 .setParameter("id", article.getId());
         if (article.getCommentCount() != null) {
             q.setParameter("commentCount", article.getCommentCount());
@@ -141,15 +149,77 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
     }
 
     /**
-     * Returns the list of all articles.
+     * Returns a page of the articles having a URL, ordered by URL and ID.
+     * The pages start after the last article of the previous page, so that the database doesn't scan the previous pages again.
      * 
+     * @param lastArticle Last article of the previous page, or null for the first page
+     * @param limit Maximum number of articles
      * @return List of articles
      */
     @SuppressWarnings("unchecked")
-    public List<Article> findAll() {
+    public List<Article> findByUrlAfter(Article lastArticle, int limit) {
         EntityManager em = ThreadLocalContext.get().getEntityManager();
-        Query q = em.createQuery("select a from Article a where a.deleteDate is null order by a.id");
-        return q.getResultList();
+        Query q;
+        if (lastArticle == null) {
+            q = em.createQuery("select a from Article a where a.deleteDate is null and a.url is not null order by a.url, a.id");
+        } else {
+            q = em.createQuery("select a from Article a where a.deleteDate is null and a.url is not null and (a.url > :url or (a.url = :url and a.id > :id)) order by a.url, a.id")
+                    .setParameter("url", lastArticle.getUrl())
+                    .setParameter("id", lastArticle.getId());
+        }
+        return q.setMaxResults(limit).getResultList();
+    }
+    
+    /**
+     * Returns a page of the articles created, updated or deleted after an article, ordered by update date and ID.
+     * 
+     * @param updateDate Update date of the last article of the previous page
+     * @param lastId ID of the last article of the previous page
+     * @param limit Maximum number of articles
+     * @return List of articles, including the deleted articles
+     */
+    @SuppressWarnings("unchecked")
+    public List<Article> findUpdatedAfter(Date updateDate, String lastId, int limit) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createQuery("select a from Article a where a.updateDate > :updateDate or (a.updateDate = :updateDate and a.id > :lastId) order by a.updateDate, a.id")
+                .setParameter("updateDate", updateDate)
+                .setParameter("lastId", lastId);
+        return q.setMaxResults(limit).getResultList();
+    }
+    
+    /**
+     * Returns the raw content hashes of the latest articles of a feed.
+     * 
+     * @param feedId Feed ID
+     * @param limit Maximum number of articles
+     * @return Hashes of the raw contents (possibly null) by GUID
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getLatestRawHashMap(String feedId, int limit) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createQuery("select a.guid, a.rawHash from Article a where a.feedId = :feedId and a.deleteDate is null order by a.publicationDate desc")
+                .setParameter("feedId", feedId)
+                .setMaxResults(limit);
+        Map<String, String> rawHashMap = new HashMap<String, String>();
+        for (Object[] o : (List<Object[]>) q.getResultList()) {
+            rawHashMap.put((String) o[0], (String) o[1]);
+        }
+        return rawHashMap;
+    }
+    
+    /**
+     * Returns the number of articles of a feed created since a date.
+     * 
+     * @param feedId Feed ID
+     * @param createDateMin Minimum creation date
+     * @return Number of articles
+     */
+    public int getArticleCount(String feedId, Date createDateMin) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createQuery("select count(a.id) from Article a where a.feedId = :feedId and a.createDate >= :createDateMin and a.deleteDate is null")
+                .setParameter("feedId", feedId)
+                .setParameter("createDateMin", createDateMin);
+        return ((Long) q.getSingleResult()).intValue();
     }
     
     /**
@@ -160,7 +230,7 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
     public void delete(String id) {
         EntityManager em = ThreadLocalContext.get().getEntityManager();
         Date deleteDate = new Date();
-        em.createNativeQuery("update T_ARTICLE set ART_DELETEDATE_D = :deleteDate where ART_ID_C = :id and ART_DELETEDATE_D is null")
+        em.createNativeQuery("update T_ARTICLE set ART_DELETEDATE_D = :deleteDate, ART_UPDATEDATE_D = :deleteDate where ART_ID_C = :id and ART_DELETEDATE_D is null")
                 .setParameter("deleteDate", deleteDate)
                 .setParameter("id", id)
                 .executeUpdate();
@@ -169,4 +239,25 @@ public class ArticleDao extends BaseDao<ArticleDto, ArticleCriteria> {
                 .setParameter("articleId", id)
                 .executeUpdate();
     }
+    
+    /**
+     * Deletes a list of articles, and the user articles linked to them.
+     * 
+     * @param idList List of article IDs
+     */
+    public void delete(List<String> idList) {
+        if (idList.isEmpty()) {
+            return;
+        }
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Date deleteDate = new Date();
+        em.createNativeQuery("update T_ARTICLE set ART_DELETEDATE_D = :deleteDate, ART_UPDATEDATE_D = :deleteDate where ART_ID_C in (:idList) and ART_DELETEDATE_D is null")
+                .setParameter("deleteDate", deleteDate)
+                .setParameter("idList", idList)
+                .executeUpdate();
+        em.createNativeQuery("update T_USER_ARTICLE set USA_DELETEDATE_D = :deleteDate where USA_IDARTICLE_C in (:idList) and USA_DELETEDATE_D is null")
+                .setParameter("deleteDate", deleteDate)
+                .setParameter("idList", idList)
+                .executeUpdate();
+    }
 }
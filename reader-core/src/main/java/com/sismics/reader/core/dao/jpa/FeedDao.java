@@ -27,7 +27,7 @@ public class FeedDao extends BaseDao<FeedDto, FeedCriteria> {
         List<String> criteriaList = new ArrayList<String>();
         Map<String, Object> parameterMap = new HashMap<String, Object>();
 
-        StringBuilder sb = new StringBuilder("select f.FED_ID_C as id, f.FED_RSSURL_C ");
+        StringBuilder sb = new StringBuilder("select f.FED_ID_C as id, f.FED_RSSURL_C, f.FED_NEXTFETCHDATE_D, f.FED_ERRORCOUNT_N, f.FED_ETAG_C, f.FED_LASTMODIFIED_C, f.FED_CONTENTHASH_C, f.FED_TITLE_C, f.FED_LASTFETCHDATE_D ");
         if (criteria.isWithUserSubscription()) {
             sb.append(", (select count(fs.FES_ID_C)");
             sb.append("     from T_FEED_SUBSCRIPTION fs");
@@ -48,7 +48,21 @@ public class FeedDao extends BaseDao<FeedDto, FeedCriteria> {
                     " where fs.FES_IDFEED_C = f.FED_ID_C and fs.FES_DELETEDATE_D is null) > 0");
         }
 
+        if (criteria.getNextFetchDateMax() != null) {
+            criteriaList.add("(f.FED_NEXTFETCHDATE_D is null or f.FED_NEXTFETCHDATE_D <= :nextFetchDateMax)");
+            parameterMap.put("nextFetchDateMax", criteria.getNextFetchDateMax());
+        }
+
+        if (criteria.getErrorCountMin() != null) {
+            criteriaList.add("f.FED_ERRORCOUNT_N >= :errorCountMin");
+            parameterMap.put("errorCountMin", criteria.getErrorCountMin());
+        }
+
         SortCriteria sortCriteria = new SortCriteria("  order by f.FED_CREATEDATE_D asc");
+        if (criteria.getNextFetchDateMax() != null) {
+            // Most overdue feeds first
+            sortCriteria = new SortCriteria("  order by f.FED_NEXTFETCHDATE_D asc");
+        }
 
         return new QueryParam(sb.toString(), criteriaList, parameterMap, sortCriteria, filterCriteria, new FeedMapper());
     }
@@ -88,6 +102,24 @@ public class FeedDao extends BaseDao<FeedDto, FeedCriteria> {
         feedFromDb.setDeleteDate(new Date());
     }
     
+    /**
+     * Get an active feed by its ID.
+     * 
+     * @param id Feed ID
+     * @return Feed
+     */
+    public Feed getById(String id) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        
+        Query q = em.createQuery("select f from Feed f where f.id = :id and f.deleteDate is null")
+                .setParameter("id", id);
+        try {
+            return (Feed) q.getSingleResult();
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+    
     /**
      * Get an active feed by its URL.
      * 
@@ -127,7 +159,62 @@ public class FeedDao extends BaseDao<FeedDto, FeedCriteria> {
         feedFromDb.setLanguage(feed.getLanguage());
         feedFromDb.setDescription(feed.getDescription());
         feedFromDb.setLastFetchDate(feed.getLastFetchDate());
+        feedFromDb.setUpdatePeriod(feed.getUpdatePeriod());
+        feedFromDb.setNextFetchDate(feed.getNextFetchDate());
+        feedFromDb.setErrorCount(feed.getErrorCount());
+        feedFromDb.setEtag(feed.getEtag());
+        feedFromDb.setLastModified(feed.getLastModified());
+        feedFromDb.setContentHash(feed.getContentHash());
+        feedFromDb.setHubUrl(feed.getHubUrl());
+        feedFromDb.setHubTopic(feed.getHubTopic());
+        feedFromDb.setHubSecret(feed.getHubSecret());
+        feedFromDb.setHubLeaseDate(feed.getHubLeaseDate());
         
         return feed;
     }
+
+    /**
+     * Reschedules a feed after a synchronization error.
+     * 
+     * @param id Feed ID
+     * @param errorCount Number of consecutive synchronization errors
+     * @param nextFetchDate Next fetch date
+     */
+    public void updateSyncError(String id, int errorCount, Date nextFetchDate) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.createNativeQuery("update T_FEED set FED_ERRORCOUNT_N = :errorCount, FED_NEXTFETCHDATE_D = :nextFetchDate" +
+                "  where FED_ID_C = :id and FED_DELETEDATE_D is null")
+                .setParameter("errorCount", errorCount)
+                .setParameter("nextFetchDate", nextFetchDate)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Reschedules a feed.
+     * 
+     * @param id Feed ID
+     * @param nextFetchDate Next fetch date
+     */
+    public void updateNextFetchDate(String id, Date nextFetchDate) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.createNativeQuery("update T_FEED set FED_NEXTFETCHDATE_D = :nextFetchDate" +
+                "  where FED_ID_C = :id and FED_DELETEDATE_D is null")
+                .setParameter("nextFetchDate", nextFetchDate)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Returns the earliest next fetch date of the feeds having user subscriptions.
+     * 
+     * @return Next fetch date, or null if no feed is scheduled
+     */
+    public Date getMinNextFetchDate() {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createNativeQuery("select min(f.FED_NEXTFETCHDATE_D) from T_FEED f" +
+                "  where f.FED_DELETEDATE_D is null and exists (select fs.FES_ID_C from T_FEED_SUBSCRIPTION fs" +
+                "    where fs.FES_IDFEED_C = f.FED_ID_C and fs.FES_DELETEDATE_D is null)");
+        return (Date) q.getSingleResult();
+    }
 }
@@ -4,6 +4,7 @@ import com.google.common.collect.Lists;
 import com.sismics.reader.core.dao.jpa.criteria.FeedSubscriptionCriteria;
 import com.sismics.reader.core.dao.jpa.dto.FeedSubscriptionDto;
 import com.sismics.reader.core.dao.jpa.mapper.FeedSubscriptionMapper;
+import com.sismics.reader.core.event.SubscriptionChangedAsyncEvent;
 import com.sismics.reader.core.model.jpa.FeedSubscription;
 import com.sismics.reader.core.util.jpa.SortCriteria;
 import com.sismics.util.context.ThreadLocalContext;
@@ -80,6 +81,11 @@ public class FeedSubscriptionDao extends BaseDao<FeedSubscriptionDto, FeedSubscr
         feedSubscription.setCreateDate(new Date());
         em.persist(feedSubscription);
         
+        // The searches of the user are restricted to the subscribed feeds
+        SubscriptionChangedAsyncEvent subscriptionChangedAsyncEvent = new SubscriptionChangedAsyncEvent();
+        subscriptionChangedAsyncEvent.setUserId(feedSubscription.getUserId());
+        ThreadLocalContext.get().addAsyncEvent(subscriptionChangedAsyncEvent);
+        
         return feedSubscription.getId();
     }
     
@@ -119,6 +125,43 @@ public class FeedSubscriptionDao extends BaseDao<FeedSubscriptionDto, FeedSubscr
                 .executeUpdate();
     }
 
+    /**
+     * Increments the number of unread articles in all user subscriptions to a feed.
+     *
+     * @param feedId Feed ID
+     * @param count Number of new unread articles
+     */
+    public void incrementUnreadCount(String feedId, int count) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.createNativeQuery("update T_FEED_SUBSCRIPTION set FES_UNREADCOUNT_N = FES_UNREADCOUNT_N + :count" +
+                "  where FES_IDFEED_C = :feedId and FES_DELETEDATE_D is null")
+                .setParameter("feedId", feedId)
+                .setParameter("count", count)
+                .executeUpdate();
+    }
+
+    /**
+     * Decrements the number of unread articles in the user subscriptions to a feed, before its articles are deleted.
+     * Each subscription is decremented by the number of unread user articles linked to the deleted articles, in one statement.
+     *
+     * @param feedId Feed ID
+     * @param articleIdList IDs of the deleted articles
+     */
+    public void decrementUnreadCount(String feedId, List<String> articleIdList) {
+        if (articleIdList.isEmpty()) {
+            return;
+        }
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.createNativeQuery("update T_FEED_SUBSCRIPTION fs set FES_UNREADCOUNT_N = FES_UNREADCOUNT_N -" +
+                "  (select count(ua.USA_ID_C) from T_USER_ARTICLE ua" +
+                "    where ua.USA_IDUSER_C = fs.FES_IDUSER_C and ua.USA_IDARTICLE_C in (:articleIdList)" +
+                "    and ua.USA_DELETEDATE_D is null and ua.USA_READDATE_D is null)" +
+                "  where fs.FES_IDFEED_C = :feedId and fs.FES_DELETEDATE_D is null")
+                .setParameter("articleIdList", articleIdList)
+                .setParameter("feedId", feedId)
+                .executeUpdate();
+    }
+
     /**
      * Moves the subscription to the specified display order, and reorders adjacent subscription.
      * 
@@ -162,6 +205,9 @@ public class FeedSubscriptionDao extends BaseDao<FeedSubscriptionDto, FeedSubscr
 
         // Delete the subscription
         feedSubscriptionFromDb.setDeleteDate(new Date());
+        SubscriptionChangedAsyncEvent subscriptionChangedAsyncEvent = new SubscriptionChangedAsyncEvent();
+        subscriptionChangedAsyncEvent.setUserId(feedSubscriptionFromDb.getUserId());
+        ThreadLocalContext.get().addAsyncEvent(subscriptionChangedAsyncEvent);
     }
     
     /**
@@ -183,6 +229,20 @@ public class FeedSubscriptionDao extends BaseDao<FeedSubscriptionDto, FeedSubscr
         }
     }
 
+    /**
+     * Returns the IDs of the feeds subscribed by a user.
+     * 
+     * @param userId User ID
+     * @return List of feed IDs
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> findFeedIdByUser(String userId) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createQuery("select distinct fs.feedId from FeedSubscription fs where fs.userId = :userId and fs.deleteDate is null")
+                .setParameter("userId", userId);
+        return q.getResultList();
+    }
+
     /**
      * Returns active subscriptions in a category.
      * 
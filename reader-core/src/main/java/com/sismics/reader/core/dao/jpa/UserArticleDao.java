@@ -9,10 +9,13 @@ import com.sismics.util.context.ThreadLocalContext;
 import com.sismics.util.jpa.BaseDao;
 import com.sismics.util.jpa.QueryParam;
 import com.sismics.util.jpa.filter.FilterCriteria;
+import org.hibernate.Session;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.Query;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.util.*;
 
 /**
@@ -21,6 +24,10 @@ import java.util.*;
  * @author jtremeaux
  */
 public class UserArticleDao extends BaseDao<UserArticleDto, UserArticleCriteria> {
+    /**
+     * Number of rows sent to the database in each JDBC batch.
+     */
+    private static final int BATCH_SIZE = 500;
 
     @Override
     protected QueryParam getQueryParam(UserArticleCriteria criteria, FilterCriteria filterCriteria) {
@@ -129,6 +136,44 @@ public class UserArticleDao extends BaseDao<UserArticleDto, UserArticleCriteria>
         return userArticle.getId();
     }
     
+    /**
+     * Creates the user articles of a batch of articles for a list of users, using JDBC batching.
+     * The pending changes are flushed first, so that the articles can be referenced.
+     * 
+     * @param articleIdList List of article IDs
+     * @param userIdList List of user IDs
+     */
+    public void createBatch(final List<String> articleIdList, final List<String> userIdList) {
+        if (articleIdList.isEmpty() || userIdList.isEmpty()) {
+            return;
+        }
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.flush();
+        
+        final Timestamp createDate = new Timestamp(System.currentTimeMillis());
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("insert into T_USER_ARTICLE" +
+                    "  (USA_ID_C, USA_IDUSER_C, USA_IDARTICLE_C, USA_CREATEDATE_D) values (?, ?, ?, ?)")) {
+                int batchSize = 0;
+                for (String articleId : articleIdList) {
+                    for (String userId : userIdList) {
+                        ps.setString(1, UUID.randomUUID().toString());
+                        ps.setString(2, userId);
+                        ps.setString(3, articleId);
+                        ps.setTimestamp(4, createDate);
+                        ps.addBatch();
+                        if (++batchSize % BATCH_SIZE == 0) {
+                            ps.executeBatch();
+                        }
+                    }
+                }
+                if (batchSize % BATCH_SIZE != 0) {
+                    ps.executeBatch();
+                }
+            }
+        });
+    }
+    
     /**
      * Updates a user subscription to an article.
      * 
@@ -4,6 +4,7 @@ import com.sismics.reader.core.constant.Constants;
 import com.sismics.reader.core.dao.jpa.criteria.UserCriteria;
 import com.sismics.reader.core.dao.jpa.dto.UserDto;
 import com.sismics.reader.core.dao.jpa.mapper.UserMapper;
+import com.sismics.reader.core.event.SubscriptionChangedAsyncEvent;
 import com.sismics.reader.core.model.jpa.User;
 import com.sismics.util.context.ThreadLocalContext;
 import com.sismics.util.jpa.BaseDao;
@@ -213,6 +214,9 @@ public class UserDao extends BaseDao<UserDto, UserCriteria> {
                 .setParameter("userId", userFromDb.getId())
                 .setParameter("dateNow", dateNow)
                 .executeUpdate();
+        SubscriptionChangedAsyncEvent subscriptionChangedAsyncEvent = new SubscriptionChangedAsyncEvent();
+        subscriptionChangedAsyncEvent.setUserId(userFromDb.getId());
+        ThreadLocalContext.get().addAsyncEvent(subscriptionChangedAsyncEvent);
 
         em.createQuery("update Category c set c.deleteDate = :dateNow where c.userId = :userId and c.deleteDate is null")
                 .setParameter("userId", userFromDb.getId())
@@ -1,5 +1,7 @@
 package com.sismics.reader.core.dao.jpa.criteria;
 
+import java.util.Date;
+
 /**
  * Feed criteria.
  *
@@ -15,6 +17,16 @@ public class FeedCriteria {
      * Returns only feed having user subscriptions.
      */
     private boolean withUserSubscription;
+    
+    /**
+     * Returns only feeds due for a fetch at this date.
+     */
+    private Date nextFetchDateMax;
+    
+    /**
+     * Minimum number of consecutive synchronization errors.
+     */
+    private Integer errorCountMin;
 
     /**
      * Getter of feedUrl.
@@ -54,4 +66,41 @@ public class FeedCriteria {
         return this;
     }
 
+    /**
+     * Getter of nextFetchDateMax.
+     *
+     * @return nextFetchDateMax
+     */
+    public Date getNextFetchDateMax() {
+        return nextFetchDateMax;
+    }
+
+    /**
+     * Setter of nextFetchDateMax.
+     *
+     * @param nextFetchDateMax nextFetchDateMax
+     */
+    public FeedCriteria setNextFetchDateMax(Date nextFetchDateMax) {
+        this.nextFetchDateMax = nextFetchDateMax;
+        return this;
+    }
+
+    /**
+     * Getter of errorCountMin.
+     *
+     * @return errorCountMin
+     */
+    public Integer getErrorCountMin() {
+        return errorCountMin;
+    }
+
+    /**
+     * Setter of errorCountMin.
+     *
+     * @param errorCountMin errorCountMin
+     */
+    public FeedCriteria setErrorCountMin(Integer errorCountMin) {
+        this.errorCountMin = errorCountMin;
+        return this;
+    }
 }
@@ -73,6 +73,11 @@ public class ArticleDto {
      */
     private Date createDate;
 
+    /**
+     * Hash of the title and description before sanitization.
+     */
+    private String rawHash;
+
     /**
      * Feed ID.
      */
@@ -248,6 +253,24 @@ public class ArticleDto {
         this.createDate = createDate;
     }
 
+    /**
+     * Getter of rawHash.
+     *
+     * @return rawHash
+     */
+    public String getRawHash() {
+        return rawHash;
+    }
+
+    /**
+     * Setter of rawHash.
+     *
+     * @param rawHash rawHash
+     */
+    public void setRawHash(String rawHash) {
+        this.rawHash = rawHash;
+    }
+
     /**
      * Getter of enclosureUrl.
      *
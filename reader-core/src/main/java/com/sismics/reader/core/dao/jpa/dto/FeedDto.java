@@ -1,5 +1,7 @@
 package com.sismics.reader.core.dao.jpa.dto;
 
+import java.util.Date;
+
 /**
  * Feed DTO.
  *
@@ -15,6 +17,41 @@ public class FeedDto {
      * Feed RSS URL.
      */
     private String rssUrl;
+    
+    /**
+     * Next scheduled fetch date.
+     */
+    private Date nextFetchDate;
+    
+    /**
+     * Number of consecutive synchronization errors.
+     */
+    private int errorCount;
+    
+    /**
+     * Entity tag returned by the server on the last fetch.
+     */
+    private String etag;
+    
+    /**
+     * Last modification date returned by the server on the last fetch.
+     */
+    private String lastModified;
+    
+    /**
+     * Hash of the content returned by the server on the last fetch.
+     */
+    private String contentHash;
+    
+    /**
+     * Feed title.
+     */
+    private String title;
+    
+    /**
+     * Last fetch date.
+     */
+    private Date lastFetchDate;
 
     /**
      * Getter of id.
@@ -51,4 +88,130 @@ public class FeedDto {
     public void setRssUrl(String rssUrl) {
         this.rssUrl = rssUrl;
     }
+
+    /**
+     * Getter of nextFetchDate.
+     *
+     * @return nextFetchDate
+     */
+    public Date getNextFetchDate() {
+        return nextFetchDate;
+    }
+
+    /**
+     * Setter of nextFetchDate.
+     *
+     * @param nextFetchDate nextFetchDate
+     */
+    public void setNextFetchDate(Date nextFetchDate) {
+        this.nextFetchDate = nextFetchDate;
+    }
+
+    /**
+     * Getter of errorCount.
+     *
+     * @return errorCount
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Setter of errorCount.
+     *
+     * @param errorCount errorCount
+     */
+    public void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * Getter of etag.
+     *
+     * @return etag
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Setter of etag.
+     *
+     * @param etag etag
+     */
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    /**
+     * Getter of lastModified.
+     *
+     * @return lastModified
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Setter of lastModified.
+     *
+     * @param lastModified lastModified
+     */
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Getter of contentHash.
+     *
+     * @return contentHash
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Setter of contentHash.
+     *
+     * @param contentHash contentHash
+     */
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Getter of title.
+     *
+     * @return title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Setter of title.
+     *
+     * @param title title
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Getter of lastFetchDate.
+     *
+     * @return lastFetchDate
+     */
+    public Date getLastFetchDate() {
+        return lastFetchDate;
+    }
+
+    /**
+     * Setter of lastFetchDate.
+     *
+     * @param lastFetchDate lastFetchDate
+     */
+    public void setLastFetchDate(Date lastFetchDate) {
+        this.lastFetchDate = lastFetchDate;
+    }
 }
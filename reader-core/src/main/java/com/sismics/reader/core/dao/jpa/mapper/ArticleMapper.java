@@ -24,6 +24,7 @@ public class ArticleMapper extends ResultMapper<ArticleDto> {
         dto.setEnclosureType(stringValue(o[i++]));
         dto.setPublicationDate(dateValue(o[i++]));
         dto.setCreateDate(dateValue(o[i++]));
+        dto.setRawHash(stringValue(o[i++]));
         dto.setFeedId(stringValue(o[i]));
 
         return dto;
@@ -12,7 +12,14 @@ public class FeedMapper extends ResultMapper<FeedDto> {
         int i = 0;
         FeedDto dto = new FeedDto();
         dto.setId(stringValue(o[i++]));
-        dto.setRssUrl(stringValue(o[i]));
+        dto.setRssUrl(stringValue(o[i++]));
+        dto.setNextFetchDate(dateValue(o[i++]));
+        dto.setErrorCount(intValue(o[i++]));
+        dto.setEtag(stringValue(o[i++]));
+        dto.setLastModified(stringValue(o[i++]));
+        dto.setContentHash(stringValue(o[i++]));
+        dto.setTitle(stringValue(o[i++]));
+        dto.setLastFetchDate(dateValue(o[i]));
 
         return dto;
     }
@@ -1,33 +1,42 @@
 package com.sismics.reader.core.dao.lucene;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sismics.reader.core.dao.jpa.dto.UserArticleDto;
 import com.sismics.reader.core.model.context.AppContext;
 import com.sismics.reader.core.model.jpa.Article;
+import com.sismics.reader.core.service.IndexingService;
 import com.sismics.reader.core.util.LuceneUtil;
 import com.sismics.reader.core.util.jpa.PaginatedList;
-import org.apache.lucene.document.*;
-import org.apache.lucene.index.FieldInfo.IndexOptions;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.flexible.standard.QueryParserUtil;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.*;
 import org.apache.lucene.search.SortField.Type;
-import org.apache.lucene.search.grouping.GroupDocs;
-import org.apache.lucene.search.grouping.GroupingSearch;
-import org.apache.lucene.search.grouping.TopGroups;
 import org.apache.lucene.search.postingshighlight.Passage;
 import org.apache.lucene.search.postingshighlight.PassageFormatter;
 import org.apache.lucene.search.postingshighlight.PassageScorer;
 import org.apache.lucene.search.postingshighlight.PostingsHighlighter;
-import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Version;
 
 import java.text.BreakIterator;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * Lucene Article DAO.
@@ -35,21 +44,94 @@ import java.util.Map;
  * @author bgamard
  */
 public class ArticleDao {
+    /**
+     * Number of results read at once by a cached search.
+     */
+    private static final int SEARCH_CACHE_RESULT_COUNT = 100;
+    
+    /**
+     * Order of the search results, latest articles first.
+     */
+    private static final Sort SORT = new Sort(new SortField("date", Type.LONG, true));
+    
+    /**
+     * Highlighter of the search results, it can be shared between searches.
+     */
+    private static final PostingsHighlighter HIGHLIGHTER = new PostingsHighlighter(1000000, BreakIterator.getSentenceInstance(Locale.ROOT), new PassageScorer(), new PassageFormatter() {
+        @Override
+        public String format(Passage passages[], String content) {
+            StringBuilder sb = new StringBuilder();
+            int pos = 0;
+            for (Passage passage : passages) {
+                for (int i = 0; i < passage.getNumMatches(); i++) {
+                    int start = passage.getMatchStarts()[i];
+                    int end = passage.getMatchEnds()[i];
+                    sb.append(content.substring(pos, start));
+                    sb.append("<span class=\"highlight\">");
+                    sb.append(content.substring(start, end));
+                    sb.append("</span>");
+                    pos = end;
+                }
+            }
+            if (pos < content.length()) {
+                sb.append(content.substring(pos));
+            }
+            return sb.toString();
+        }
+    });
 
     /**
      * Destroy and rebuild index.
+     * The articles are read by pages ordered by URL, and the documents of their URLs are built and indexed in parallel.
      * 
-     * @param articleList The list of articles
+     * @param pageReader Reader of the page of articles following an article (null for the first page)
      */
-    public void rebuildIndex(final List<Article> articleList) {
-        LuceneUtil.handle(indexWriter -> {
-            // Empty index
-            indexWriter.deleteAll();
-
-            // Add all articles
-            for (Article article : articleList) {
-                Document document = getDocumentFromArticle(article);
-                indexWriter.addDocument(document);
+    public void rebuildIndex(final Function<Article, List<Article>> pageReader) {
+        LuceneUtil.rebuild(indexWriter -> {
+            // Run the caller when all threads are busy, so that only a few pages are in memory
+            int threadCount = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(threadCount),
+                    new ThreadFactoryBuilder().setNameFormat("index-rebuild-%d").setDaemon(true).build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            final AtomicReference<Exception> error = new AtomicReference<Exception>();
+            try {
+                // The articles of the last URL of a page may continue on the next page
+                ArticleDocument articleDocument = null;
+                List<Article> articleList = pageReader.apply(null);
+                while (!articleList.isEmpty() && error.get() == null) {
+                    final List<ArticleDocument> articleDocumentList = new ArrayList<ArticleDocument>();
+                    for (Article article : articleList) {
+                        if (articleDocument != null && !articleDocument.getUrl().equals(article.getUrl())) {
+                            articleDocumentList.add(articleDocument);
+                            articleDocument = null;
+                        }
+                        if (articleDocument == null) {
+                            articleDocument = new ArticleDocument(article.getUrl());
+                        }
+                        articleDocument.add(article);
+                    }
+                    executor.execute(() -> {
+                        try {
+                            for (ArticleDocument pageArticleDocument : articleDocumentList) {
+                                indexWriter.addDocument(pageArticleDocument.toDocument());
+                            }
+                        } catch (Exception e) {
+                            error.compareAndSet(null, e);
+                        }
+                    });
+                    articleList = pageReader.apply(articleList.get(articleList.size() - 1));
+                }
+                if (articleDocument != null && error.get() == null) {
+                    indexWriter.addDocument(articleDocument.toDocument());
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            }
+            if (error.get() != null) {
+                throw error.get();
             }
         });
     }
@@ -63,9 +145,9 @@ public class ArticleDao {
     public void create(final List<Article> articleList) {
         LuceneUtil.handle(indexWriter -> {
             // Add all articles
+            write(indexWriter, articleList, Collections.<Article>emptyList());
             for (Article article : articleList) {
-                Document document = getDocumentFromArticle(article);
-                indexWriter.addDocument(document);
+                updateHighWaterMark(article);
             }
         });
     }
@@ -78,9 +160,9 @@ public class ArticleDao {
     public void update(final List<Article> articleList) {
         LuceneUtil.handle(indexWriter -> {
             // Update all articles
+            write(indexWriter, articleList, Collections.<Article>emptyList());
             for (Article article : articleList) {
-                Document document = getDocumentFromArticle(article);
-                indexWriter.updateDocument(new Term("id", article.getId()), document);
+                updateHighWaterMark(article);
             }
         });
     }
@@ -93,20 +175,258 @@ public class ArticleDao {
     public void delete(final List<Article> articleList) {
         LuceneUtil.handle(indexWriter -> {
             // Delete all articles
-            for (Article article : articleList) {
-                indexWriter.deleteDocuments(new Term("id", article.getId()));
-            }
+            write(indexWriter, Collections.<Article>emptyList(), articleList);
         });
     }
 
+    /**
+     * Catch up with the articles created, updated or deleted in the database.
+     * The articles already in the index are replaced, so that an article can be caught up twice.
+     * 
+     * @param pageReader Reader of the page of articles following an article (null for the first page)
+     * @return Number of articles caught up
+     */
+    public int catchUp(final Function<Article, List<Article>> pageReader) {
+        int articleCount = 0;
+        List<Article> articleList = pageReader.apply(null);
+        while (!articleList.isEmpty()) {
+            final List<Article> pageArticleList = articleList;
+            final List<Article> indexedArticleList = new ArrayList<Article>();
+            final List<Article> deletedArticleList = new ArrayList<Article>();
+            for (Article article : pageArticleList) {
+                if (article.getDeleteDate() != null) {
+                    deletedArticleList.add(article);
+                } else {
+                    indexedArticleList.add(article);
+                }
+            }
+            LuceneUtil.handle(indexWriter -> {
+                write(indexWriter, indexedArticleList, deletedArticleList);
+                for (Article article : pageArticleList) {
+                    updateHighWaterMark(article);
+                }
+            });
+            articleCount += articleList.size();
+            articleList = pageReader.apply(articleList.get(articleList.size() - 1));
+        }
+        return articleCount;
+    }
+    
+    /**
+     * Writes articles in the documents of their URLs.
+     * The documents are read from the previous writes not visible to the searchers yet, or from the index.
+     * 
+     * @param indexWriter Index writer
+     * @param indexedArticleList Articles to add or replace
+     * @param deletedArticleList Articles to remove
+     */
+    private void write(IndexWriter indexWriter, List<Article> indexedArticleList, List<Article> deletedArticleList) throws Exception {
+        LiveArticleDocuments liveArticleDocuments = AppContext.getInstance().getIndexingService().getLiveArticleDocuments();
+        
+        // Documents modified by this write, by URL
+        Map<String, ArticleDocument> articleDocumentMap = new LinkedHashMap<String, ArticleDocument>();
+        Set<String> removedArticleIdSet = new HashSet<String>();
+        for (Article article : deletedArticleList) {
+            ArticleDocument articleDocument = getArticleDocumentById(liveArticleDocuments, articleDocumentMap, article.getId());
+            if (articleDocument != null && articleDocument.remove(article.getId())) {
+                removedArticleIdSet.add(article.getId());
+            }
+        }
+        for (Article article : indexedArticleList) {
+            // The URL of the article may have changed
+            ArticleDocument articleDocument = getArticleDocumentById(liveArticleDocuments, articleDocumentMap, article.getId());
+            if (articleDocument != null && !articleDocument.getUrl().equals(article.getUrl())) {
+                articleDocument.remove(article.getId());
+                removedArticleIdSet.add(article.getId());
+            }
+            if (article.getUrl() == null) {
+                // The documents are identified by URL
+                continue;
+            }
+            articleDocument = getArticleDocument(liveArticleDocuments, articleDocumentMap, article.getUrl());
+            if (articleDocument == null) {
+                articleDocument = new ArticleDocument(article.getUrl());
+                articleDocumentMap.put(article.getUrl(), articleDocument);
+            }
+            articleDocument.add(article);
+            removedArticleIdSet.remove(article.getId());
+        }
+        
+        for (ArticleDocument articleDocument : articleDocumentMap.values()) {
+            Term urlTerm = new Term("url", articleDocument.getUrl());
+            if (articleDocument.isEmpty()) {
+                indexWriter.deleteDocuments(urlTerm);
+            } else {
+                indexWriter.updateDocument(urlTerm, articleDocument.toDocument());
+            }
+        }
+        
+        // The next writes read the written documents until the searchers see them
+        for (String articleId : removedArticleIdSet) {
+            liveArticleDocuments.delete(articleId);
+        }
+        for (ArticleDocument articleDocument : articleDocumentMap.values()) {
+            liveArticleDocuments.add(articleDocument);
+        }
+    }
+    
+    /**
+     * Returns the document containing an article.
+     * 
+     * @param liveArticleDocuments Documents of the previous writes
+     * @param articleDocumentMap Documents already modified, by URL
+     * @param articleId Article ID
+     * @return Document, or null if the article is not indexed
+     */
+    private ArticleDocument getArticleDocumentById(LiveArticleDocuments liveArticleDocuments,
+            Map<String, ArticleDocument> articleDocumentMap, String articleId) throws Exception {
+        for (ArticleDocument articleDocument : articleDocumentMap.values()) {
+            if (articleDocument.contains(articleId)) {
+                return articleDocument;
+            }
+        }
+        ArticleDocument articleDocument = liveArticleDocuments.getByArticleId(articleId);
+        if (articleDocument == null) {
+            return null;
+        }
+        if (articleDocumentMap.containsKey(articleDocument.getUrl())) {
+            // The article has been removed from its document by this write
+            return null;
+        }
+        articleDocumentMap.put(articleDocument.getUrl(), articleDocument);
+        return articleDocument;
+    }
+    
+    /**
+     * Returns the document of a URL, from the documents already modified or from the previous writes.
+     * 
+     * @param liveArticleDocuments Documents of the previous writes
+     * @param articleDocumentMap Documents already modified, by URL
+     * @param url URL
+     * @return Document, or null if none
+     */
+    private ArticleDocument getArticleDocument(LiveArticleDocuments liveArticleDocuments,
+            Map<String, ArticleDocument> articleDocumentMap, String url) throws Exception {
+        ArticleDocument articleDocument = articleDocumentMap.get(url);
+        if (articleDocument == null) {
+            articleDocument = liveArticleDocuments.get(url);
+            if (articleDocument != null) {
+                articleDocumentMap.put(url, articleDocument);
+            }
+        }
+        return articleDocument;
+    }
+    
+    /**
+     * Records an indexed article in the high-water mark of the index.
+     * 
+     * @param article Article
+     */
+    private void updateHighWaterMark(Article article) {
+        if (article.getUpdateDate() != null) {
+            AppContext.getInstance().getIndexingService().updateHighWaterMark(article.getUpdateDate(), article.getId());
+        }
+    }
+
+    /**
+     * Search articles.
+     * 
+     * @param paginatedList The list of articles
+     * @param searchQuery The query
+     * @param feedFilter Filter on the feeds of the articles, null to search all articles
+     * @return Articles in the order of the results
+     */
+    public Map<String, Article> search(PaginatedList<UserArticleDto> paginatedList, String searchQuery, FeedFilter feedFilter) throws Exception {
+        return search(paginatedList, searchQuery, feedFilter, null);
+    }
+    
     /**
      * Search articles.
+     * The results of the searches of a user are cached until the index changes,
+     * so that repeating a search or reading its next pages doesn't search and highlight again.
      * 
      * @param paginatedList The list of articles
      * @param searchQuery The query
-     * @return List of articles
+     * @param feedFilter Filter on the feeds of the articles, null to search all articles
+     * @param cacheKey Key of the search in the cache (e.g. the user ID with the filter), null to search without cache
+     * @return Articles in the order of the results
+     */
+    public Map<String, Article> search(PaginatedList<UserArticleDto> paginatedList, String searchQuery, FeedFilter feedFilter, String cacheKey) throws Exception {
+        IndexingService indexingService = AppContext.getInstance().getIndexingService();
+        IndexSearcher searcher = indexingService.acquireSearcher();
+        try {
+            int offset = paginatedList.getOffset();
+            int end = offset + paginatedList.getLimit();
+            Query query = null;
+            Filter filter = feedFilter == null ? null : feedFilter.getFilter();
+            ArticleSearch articleSearch = null;
+            if (cacheKey != null) {
+                // The cache is emptied when the searcher changes, its document numbers are not valid anymore
+                Cache<String, ArticleSearch> searchCache = indexingService.getSearchCache(searcher);
+                String searchCacheKey = ((DirectoryReader) searcher.getIndexReader()).getVersion() + "\n" + cacheKey + "\n"
+                        + CharMatcher.WHITESPACE.trimAndCollapseFrom(searchQuery, ' ').toLowerCase(Locale.ROOT);
+                articleSearch = searchCache.getIfPresent(searchCacheKey);
+                if (articleSearch == null) {
+                    query = getQuery(searchQuery);
+                    TopDocs topDocs = searcher.search(query, filter, Math.max(end, SEARCH_CACHE_RESULT_COUNT), SORT);
+                    articleSearch = new ArticleSearch(topDocs.totalHits);
+                    articleSearch.add(topDocs.scoreDocs);
+                    searchCache.put(searchCacheKey, articleSearch);
+                }
+            } else {
+                query = getQuery(searchQuery);
+                TopDocs topDocs = searcher.search(query, filter, Math.max(end, 1), SORT);
+                articleSearch = new ArticleSearch(topDocs.totalHits);
+                articleSearch.add(topDocs.scoreDocs);
+            }
+            paginatedList.setResultCount(articleSearch.getResultCount());
+            
+            synchronized (articleSearch) {
+                List<ScoreDoc> scoreDocList = articleSearch.getScoreDocList();
+                if (scoreDocList.size() < end && scoreDocList.size() < articleSearch.getResultCount()) {
+                    // Read the next results from the last result read
+                    if (query == null) {
+                        query = getQuery(searchQuery);
+                    }
+                    articleSearch.add(searcher.searchAfter(articleSearch.getLastScoreDoc(), query, filter,
+                            Math.max(end - scoreDocList.size(), SEARCH_CACHE_RESULT_COUNT), SORT).scoreDocs);
+                }
+                
+                // Highlight the results of the page not highlighted yet
+                List<Article> articleList = articleSearch.getArticleList();
+                end = Math.min(end, scoreDocList.size());
+                List<Integer> indexList = new ArrayList<Integer>();
+                for (int i = offset; i < end; i++) {
+                    if (articleList.get(i) == null) {
+                        indexList.add(i);
+                    }
+                }
+                if (!indexList.isEmpty()) {
+                    if (query == null) {
+                        query = getQuery(searchQuery);
+                    }
+                    highlight(searcher, query, feedFilter, articleSearch, indexList);
+                }
+                
+                Map<String, Article> articleMap = new LinkedHashMap<String, Article>();
+                for (int i = offset; i < end; i++) {
+                    Article article = articleList.get(i);
+                    articleMap.put(article.getId(), article);
+                }
+                return articleMap;
+            }
+        } finally {
+            indexingService.releaseSearcher(searcher);
+        }
+    }
+    
+    /**
+     * Build the query of a search.
+     * 
+     * @param searchQuery The query
+     * @return Query
      */
-    public Map<String, Article> search(PaginatedList<UserArticleDto> paginatedList, String searchQuery) throws Exception {
+    private Query getQuery(String searchQuery) throws Exception {
         // Escape query and add quotes so QueryParser generate a PhraseQuery
         searchQuery = "\"" + QueryParserUtil.escape(searchQuery) + "\"";
         
@@ -120,86 +440,38 @@ public class ArticleDao {
         BooleanQuery query = new BooleanQuery();
         query.add(titleQuery, Occur.SHOULD);
         query.add(descriptionQuery, Occur.SHOULD);
-        
-        // Grouping
-        GroupingSearch groupingSearch = new GroupingSearch("url");
-        groupingSearch.setGroupSort(new Sort(new SortField("date", Type.LONG, true)));
-        groupingSearch.setFillSortFields(true);
-        groupingSearch.setCachingInMB(20, true);
-        groupingSearch.setAllGroups(true);
-        
-        // Searching
-        IndexSearcher searcher = new IndexSearcher(AppContext.getInstance().getIndexingService().getDirectoryReader());
-        TopGroups<BytesRef> topGroups = groupingSearch.search(searcher, query, paginatedList.getOffset(), paginatedList.getLimit());
-        int total = topGroups.totalGroupCount == null ? 0 : topGroups.totalGroupCount;
-        paginatedList.setResultCount(total);
-        ScoreDoc[] scoreDocs = new ScoreDoc[topGroups.groups.length];
-        int j = 0;
-        for (GroupDocs<BytesRef> groupDocs : topGroups.groups) {
-            scoreDocs[j++] = groupDocs.scoreDocs[0];
+        return query;
+    }
+    
+    /**
+     * Highlight results of a search.
+     * 
+     * @param searcher Searcher of the search
+     * @param query The query
+     * @param feedFilter Filter on the feeds of the articles
+     * @param articleSearch Search
+     * @param indexList Indexes of the highlighted results
+     */
+    private void highlight(IndexSearcher searcher, Query query, FeedFilter feedFilter, ArticleSearch articleSearch,
+            List<Integer> indexList) throws Exception {
+        ScoreDoc[] scoreDocs = new ScoreDoc[indexList.size()];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            scoreDocs[i] = articleSearch.getScoreDocList().get(indexList.get(i));
         }
-        TopDocs topDocs = new TopDocs(total, scoreDocs, 0);
+        TopDocs topDocs = new TopDocs(articleSearch.getResultCount(), scoreDocs, 0);
+        Map<String, String[]> highlights = HIGHLIGHTER.highlightFields(new String[] { "title", "description" }, query, searcher, topDocs, 3);
         
-        // Highlighting
-        PostingsHighlighter highlighter = new PostingsHighlighter(1000000, BreakIterator.getSentenceInstance(Locale.ROOT), new PassageScorer(), new PassageFormatter() {
-            @Override
-            public String format(Passage passages[], String content) {
-                StringBuilder sb = new StringBuilder();
-                int pos = 0;
-                for (Passage passage : passages) {
-                    for (int i = 0; i < passage.getNumMatches(); i++) {
-                        int start = passage.getMatchStarts()[i];
-                        int end = passage.getMatchEnds()[i];
-                        sb.append(content.substring(pos, start));
-                        sb.append("<span class=\"highlight\">");
-                        sb.append(content.substring(start, end));
-                        sb.append("</span>");
-                        pos = end;
-                    }
-                }
-                if (pos < content.length()) {
-                    sb.append(content.substring(pos));
-                }
-                return sb.toString();
-            }
-        });
-        Map<String, String[]> highlights = highlighter.highlightFields(new String[] { "title", "description" }, query, searcher, topDocs, 3);
-        
-        // Extract article ids
-        Map<String, Article> articleList = new HashMap<String, Article>();
         for (int i = 0; i < scoreDocs.length; i++) {
-            String id = searcher.doc(scoreDocs[i].doc).get("id");
+            // Return the latest article of the URL in the feeds searched
+            ArticleDocument articleDocument = ArticleDocument.fromDocument(searcher.doc(scoreDocs[i].doc));
+            String id = articleDocument.getLatestArticleId(feedFilter == null ? null : feedFilter.getFeedIdSet());
             String title = highlights.get("title")[i];
             String description = highlights.get("description")[i];
             Article article = new Article();
             article.setId(id);
             article.setTitle(title);
             article.setDescription(description);
-            articleList.put(id, article);
+            articleSearch.getArticleList().set(indexList.get(i), article);
         }
-        
-        return articleList;
-    }
-    
-    /**
-     * Build Lucene document from article.
-     * 
-     * @param article Article
-     * @return Document
-     */
-    private org.apache.lucene.document.Document getDocumentFromArticle(Article article) {
-        // Index character offsets for the highlighter
-        FieldType fieldType = new FieldType(TextField.TYPE_STORED);
-        fieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
-        
-        // Building document
-        org.apache.lucene.document.Document document = new org.apache.lucene.document.Document();
-        document.add(new StringField("id", article.getId(), Field.Store.YES));
-        document.add(new StringField("url", article.getUrl(), Field.Store.YES));
-        document.add(new LongField("date", article.getPublicationDate().getTime(), Field.Store.YES));
-        document.add(new Field("title", article.getTitle(), fieldType));
-        document.add(new Field("description", article.getDescription(), fieldType));
-        
-        return document;
     }
 }
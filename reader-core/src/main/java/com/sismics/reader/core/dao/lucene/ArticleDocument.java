@@ -0,0 +1,218 @@
+package com.sismics.reader.core.dao.lucene;
+
+import com.google.common.base.Strings;
+import com.sismics.reader.core.model.jpa.Article;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.FieldInfo.IndexOptions;
+import org.apache.lucene.index.IndexableField;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Document of the index, shared by all the articles of a URL.
+ * The articles are listed in parallel stored fields (ID, feed ID, publication date, title and description),
+ * and the content indexed is the content of the latest article.
+ */
+public class ArticleDocument {
+    /**
+     * Type of the content fields, with the character offsets for the highlighter.
+     */
+    private static final FieldType CONTENT_FIELD_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        CONTENT_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_FIELD_TYPE.freeze();
+    }
+
+    /**
+     * URL of the articles.
+     */
+    private final String url;
+
+    /**
+     * IDs of the articles.
+     */
+    private final List<String> idList = new ArrayList<String>();
+
+    /**
+     * Feed IDs of the articles.
+     */
+    private final List<String> feedIdList = new ArrayList<String>();
+
+    /**
+     * Publication dates of the articles (in milliseconds).
+     */
+    private final List<Long> dateList = new ArrayList<Long>();
+
+    /**
+     * Titles of the articles.
+     */
+    private final List<String> titleList = new ArrayList<String>();
+
+    /**
+     * Descriptions of the articles.
+     */
+    private final List<String> descriptionList = new ArrayList<String>();
+
+    /**
+     * Constructor of ArticleDocument.
+     *
+     * @param url URL of the articles
+     */
+    public ArticleDocument(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Reads a document from the index.
+     *
+     * @param document Stored fields of the document
+     * @return Document of the articles
+     */
+    public static ArticleDocument fromDocument(Document document) {
+        ArticleDocument articleDocument = new ArticleDocument(document.get("url"));
+        String[] ids = document.getValues("id");
+        String[] feedIds = document.getValues("feedId");
+        IndexableField[] dates = document.getFields("articleDate");
+        String[] titles = document.getValues("articleTitle");
+        String[] descriptions = document.getValues("articleDescription");
+        for (int i = 0; i < ids.length; i++) {
+            articleDocument.idList.add(ids[i]);
+            articleDocument.feedIdList.add(feedIds[i]);
+            articleDocument.dateList.add(dates[i].numericValue().longValue());
+            articleDocument.titleList.add(titles[i]);
+            articleDocument.descriptionList.add(descriptions[i]);
+        }
+        return articleDocument;
+    }
+
+    /**
+     * Adds or replaces an article.
+     *
+     * @param article Article
+     */
+    public void add(Article article) {
+        remove(article.getId());
+        idList.add(article.getId());
+        feedIdList.add(article.getFeedId());
+        dateList.add(article.getPublicationDate().getTime());
+        titleList.add(Strings.nullToEmpty(article.getTitle()));
+        descriptionList.add(Strings.nullToEmpty(article.getDescription()));
+    }
+
+    /**
+     * Removes an article.
+     *
+     * @param articleId Article ID
+     * @return True if the article was in the document
+     */
+    public boolean remove(String articleId) {
+        int index = idList.indexOf(articleId);
+        if (index < 0) {
+            return false;
+        }
+        idList.remove(index);
+        feedIdList.remove(index);
+        dateList.remove(index);
+        titleList.remove(index);
+        descriptionList.remove(index);
+        return true;
+    }
+
+    /**
+     * Returns true if an article is in the document.
+     *
+     * @param articleId Article ID
+     * @return True if the article is in the document
+     */
+    public boolean contains(String articleId) {
+        return idList.contains(articleId);
+    }
+
+    /**
+     * Returns the ID of the latest article in some feeds.
+     *
+     * @param feedIdSet Feed IDs, null for all feeds
+     * @return Article ID, or null if no article is in these feeds
+     */
+    public String getLatestArticleId(Collection<String> feedIdSet) {
+        int index = getLatestIndex(feedIdSet);
+        return index < 0 ? null : idList.get(index);
+    }
+
+    /**
+     * Returns the index of the latest article in some feeds, the last added one if several articles have the same date.
+     *
+     * @param feedIdSet Feed IDs, null for all feeds
+     * @return Index of the article, or -1 if no article is in these feeds
+     */
+    private int getLatestIndex(Collection<String> feedIdSet) {
+        int index = -1;
+        long latestDate = Long.MIN_VALUE;
+        for (int i = 0; i < idList.size(); i++) {
+            if ((feedIdSet == null || feedIdSet.contains(feedIdList.get(i))) && dateList.get(i) >= latestDate) {
+                index = i;
+                latestDate = dateList.get(i);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns true if the document has no more articles.
+     *
+     * @return True if the document has no more articles
+     */
+    public boolean isEmpty() {
+        return idList.isEmpty();
+    }
+
+    /**
+     * Builds the Lucene document, indexing the content of the latest article.
+     * The date of the latest article sorts the search results.
+     *
+     * @return Document
+     */
+    public Document toDocument() {
+        Document document = new Document();
+        document.add(new StringField("url", url, Field.Store.YES));
+        for (int i = 0; i < idList.size(); i++) {
+            document.add(new StringField("id", idList.get(i), Field.Store.YES));
+            document.add(new StringField("feedId", feedIdList.get(i), Field.Store.YES));
+            document.add(new StoredField("articleDate", dateList.get(i)));
+            document.add(new StoredField("articleTitle", titleList.get(i)));
+            document.add(new StoredField("articleDescription", descriptionList.get(i)));
+        }
+        int latestIndex = getLatestIndex(null);
+        document.add(new LongField("date", dateList.get(latestIndex), Field.Store.YES));
+        document.add(new Field("title", titleList.get(latestIndex), CONTENT_FIELD_TYPE));
+        document.add(new Field("description", descriptionList.get(latestIndex), CONTENT_FIELD_TYPE));
+        return document;
+    }
+
+    /**
+     * Getter of url.
+     *
+     * @return url
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Getter of idList.
+     *
+     * @return idList
+     */
+    public List<String> getIdList() {
+        return idList;
+    }
+}
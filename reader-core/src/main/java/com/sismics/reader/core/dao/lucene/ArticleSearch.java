@@ -0,0 +1,85 @@
+package com.sismics.reader.core.dao.lucene;
+
+import com.sismics.reader.core.model.jpa.Article;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of an article search read so far, kept to serve the next pages.
+ * The document numbers are only valid in the index reader of the search.
+ */
+public class ArticleSearch {
+    /**
+     * Total number of results.
+     */
+    private final int resultCount;
+
+    /**
+     * Documents of the results read so far, in the order of the results.
+     */
+    private final List<ScoreDoc> scoreDocList = new ArrayList<ScoreDoc>();
+
+    /**
+     * Highlighted articles of the results, null until a page containing them is returned.
+     */
+    private final List<Article> articleList = new ArrayList<Article>();
+
+    /**
+     * Constructor of ArticleSearch.
+     *
+     * @param resultCount Total number of results
+     */
+    public ArticleSearch(int resultCount) {
+        this.resultCount = resultCount;
+    }
+
+    /**
+     * Adds the next results.
+     *
+     * @param scoreDocs Documents of the results
+     */
+    public void add(ScoreDoc[] scoreDocs) {
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            scoreDocList.add(scoreDoc);
+            articleList.add(null);
+        }
+    }
+
+    /**
+     * Returns the last result read, after which the next results are searched.
+     *
+     * @return Document of the last result, null if none
+     */
+    public ScoreDoc getLastScoreDoc() {
+        return scoreDocList.isEmpty() ? null : scoreDocList.get(scoreDocList.size() - 1);
+    }
+
+    /**
+     * Getter of resultCount.
+     *
+     * @return resultCount
+     */
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    /**
+     * Getter of scoreDocList.
+     *
+     * @return scoreDocList
+     */
+    public List<ScoreDoc> getScoreDocList() {
+        return scoreDocList;
+    }
+
+    /**
+     * Getter of articleList.
+     *
+     * @return articleList
+     */
+    public List<Article> getArticleList() {
+        return articleList;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sismics.reader.core.dao.lucene;
+
+import org.apache.lucene.queries.TermsFilter;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filter of the documents having articles in some feeds.
+ * The matches of the filter are cached per segment.
+ */
+public class FeedFilter {
+    /**
+     * Feed IDs.
+     */
+    private final Set<String> feedIdSet;
+
+    /**
+     * Lucene filter.
+     */
+    private final Filter filter;
+
+    /**
+     * Constructor of FeedFilter.
+     *
+     * @param feedIdList Feed IDs
+     */
+    public FeedFilter(List<String> feedIdList) {
+        feedIdSet = new HashSet<String>(feedIdList);
+        if (feedIdList.isEmpty()) {
+            // No feed, no document
+            filter = new QueryWrapperFilter(new BooleanQuery());
+        } else {
+            List<BytesRef> feedIdTermList = new ArrayList<BytesRef>();
+            for (String feedId : feedIdSet) {
+                feedIdTermList.add(new BytesRef(feedId));
+            }
+            filter = new CachingWrapperFilter(new TermsFilter("feedId", feedIdTermList));
+        }
+    }
+
+    /**
+     * Getter of feedIdSet.
+     *
+     * @return feedIdSet
+     */
+    public Set<String> getFeedIdSet() {
+        return feedIdSet;
+    }
+
+    /**
+     * Getter of filter.
+     *
+     * @return filter
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+}
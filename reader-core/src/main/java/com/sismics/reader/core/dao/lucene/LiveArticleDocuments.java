@@ -0,0 +1,123 @@
+package com.sismics.reader.core.dao.lucene;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LiveFieldValues;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Documents written to the index, by URL, and the URL of each written article.
+ * The documents are kept until a refresh of the searchers makes them visible,
+ * so that a write reads the previous writes without reopening the searchers.
+ */
+public class LiveArticleDocuments implements Closeable {
+    /**
+     * Value of a deleted document.
+     */
+    private static final ArticleDocument DELETED_DOCUMENT = new ArticleDocument("");
+
+    /**
+     * Value of the URL of a deleted article.
+     */
+    private static final String DELETED_URL = "";
+
+    /**
+     * Documents, by URL.
+     */
+    private final LiveFieldValues<ArticleDocument> documentValues;
+
+    /**
+     * URLs of the documents, by article ID.
+     */
+    private final LiveFieldValues<String> urlValues;
+
+    /**
+     * Constructor of LiveArticleDocuments.
+     *
+     * @param searcherManager Manager of the searchers of the index writer
+     */
+    public LiveArticleDocuments(ReferenceManager<IndexSearcher> searcherManager) {
+        documentValues = new LiveFieldValues<ArticleDocument>(searcherManager, DELETED_DOCUMENT) {
+            @Override
+            protected ArticleDocument lookupFromSearcher(IndexSearcher searcher, String url) throws IOException {
+                TopDocs topDocs = searcher.search(new TermQuery(new Term("url", url)), 1);
+                if (topDocs.scoreDocs.length == 0) {
+                    return null;
+                }
+                return ArticleDocument.fromDocument(searcher.doc(topDocs.scoreDocs[0].doc));
+            }
+        };
+        urlValues = new LiveFieldValues<String>(searcherManager, DELETED_URL) {
+            @Override
+            protected String lookupFromSearcher(IndexSearcher searcher, String articleId) throws IOException {
+                TopDocs topDocs = searcher.search(new TermQuery(new Term("id", articleId)), 1);
+                if (topDocs.scoreDocs.length == 0) {
+                    return null;
+                }
+                return searcher.doc(topDocs.scoreDocs[0].doc).get("url");
+            }
+        };
+    }
+
+    /**
+     * Returns the document of a URL.
+     * The document is shared with the next writes, it must only be modified by a write.
+     *
+     * @param url URL
+     * @return Document, or null if none
+     */
+    public ArticleDocument get(String url) throws IOException {
+        return documentValues.get(url);
+    }
+
+    /**
+     * Returns the document containing an article.
+     *
+     * @param articleId Article ID
+     * @return Document, or null if the article is not indexed
+     */
+    public ArticleDocument getByArticleId(String articleId) throws IOException {
+        String url = urlValues.get(articleId);
+        if (url == null) {
+            return null;
+        }
+        ArticleDocument articleDocument = documentValues.get(url);
+        return articleDocument != null && articleDocument.contains(articleId) ? articleDocument : null;
+    }
+
+    /**
+     * Records a document written to the index, an empty document being deleted.
+     *
+     * @param articleDocument Document
+     */
+    public void add(ArticleDocument articleDocument) {
+        if (articleDocument.isEmpty()) {
+            documentValues.delete(articleDocument.getUrl());
+            return;
+        }
+        documentValues.add(articleDocument.getUrl(), articleDocument);
+        for (String articleId : articleDocument.getIdList()) {
+            urlValues.add(articleId, articleDocument.getUrl());
+        }
+    }
+
+    /**
+     * Records an article removed from the index.
+     *
+     * @param articleId Article ID
+     */
+    public void delete(String articleId) {
+        urlValues.delete(articleId);
+    }
+
+    @Override
+    public void close() {
+        documentValues.close();
+        urlValues.close();
+    }
+}
@@ -0,0 +1,40 @@
+package com.sismics.reader.core.event;
+
+import com.google.common.base.Objects;
+
+import java.util.Date;
+
+/**
+ * Index catch up event.
+ */
+public class CatchUpIndexAsyncEvent {
+    /**
+     * Articles updated after this date are indexed.
+     */
+    private Date updateDate;
+    
+    /**
+     * Getter of updateDate.
+     *
+     * @return updateDate
+     */
+    public Date getUpdateDate() {
+        return updateDate;
+    }
+
+    /**
+     * Setter of updateDate.
+     *
+     * @param updateDate updateDate
+     */
+    public void setUpdateDate(Date updateDate) {
+        this.updateDate = updateDate;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("updateDate", updateDate)
+                .toString();
+    }
+}
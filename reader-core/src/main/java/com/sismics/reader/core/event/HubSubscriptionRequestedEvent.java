@@ -0,0 +1,109 @@
+package com.sismics.reader.core.event;
+
+import com.google.common.base.Objects;
+
+/**
+ * Event raised on request to subscribe to the WebSub hub of a feed.
+ */
+public class HubSubscriptionRequestedEvent {
+    /**
+     * URL of the hub.
+     */
+    private String hubUrl;
+    
+    /**
+     * Topic URL.
+     */
+    private String topic;
+    
+    /**
+     * Callback URL.
+     */
+    private String callbackUrl;
+    
+    /**
+     * Secret shared with the hub.
+     */
+    private String secret;
+    
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("hubUrl", hubUrl)
+                .add("topic", topic)
+                .add("callbackUrl", callbackUrl)
+                .toString();
+    }
+
+    /**
+     * Getter of hubUrl.
+     *
+     * @return hubUrl
+     */
+    public String getHubUrl() {
+        return hubUrl;
+    }
+
+    /**
+     * Setter of hubUrl.
+     *
+     * @param hubUrl hubUrl
+     */
+    public void setHubUrl(String hubUrl) {
+        this.hubUrl = hubUrl;
+    }
+
+    /**
+     * Getter of topic.
+     *
+     * @return topic
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Setter of topic.
+     *
+     * @param topic topic
+     */
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    /**
+     * Getter of callbackUrl.
+     *
+     * @return callbackUrl
+     */
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    /**
+     * Setter of callbackUrl.
+     *
+     * @param callbackUrl callbackUrl
+     */
+    public void setCallbackUrl(String callbackUrl) {
+        this.callbackUrl = callbackUrl;
+    }
+
+    /**
+     * Getter of secret.
+     *
+     * @return secret
+     */
+    public String getSecret() {
+        return secret;
+    }
+
+    /**
+     * Setter of secret.
+     *
+     * @param secret secret
+     */
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+}
@@ -0,0 +1,38 @@
+package com.sismics.reader.core.event;
+
+import com.google.common.base.Objects;
+
+/**
+ * Subscriptions of a user changed event.
+ */
+public class SubscriptionChangedAsyncEvent {
+    /**
+     * User ID.
+     */
+    private String userId;
+
+    /**
+     * Getter of userId.
+     *
+     * @return userId
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Setter of userId.
+     *
+     * @param userId userId
+     */
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("userId", userId)
+                .toString();
+    }
+}
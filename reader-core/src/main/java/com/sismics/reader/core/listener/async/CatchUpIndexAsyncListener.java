@@ -0,0 +1,61 @@
+package com.sismics.reader.core.listener.async;
+
+import com.google.common.eventbus.Subscribe;
+import com.sismics.reader.core.dao.lucene.ArticleDao;
+import com.sismics.reader.core.event.CatchUpIndexAsyncEvent;
+import com.sismics.reader.core.model.jpa.Article;
+import com.sismics.reader.core.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Listener on index catch up.
+ */
+public class CatchUpIndexAsyncListener {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(CatchUpIndexAsyncListener.class);
+
+    /**
+     * Number of articles read from the database at once.
+     */
+    private static final int PAGE_SIZE = 500;
+
+    /**
+     * Index the articles created, updated or deleted since the last commit of the index.
+     * 
+     * @param catchUpIndexAsyncEvent Index catch up event
+     */
+    @Subscribe
+    public void onCatchUpIndex(final CatchUpIndexAsyncEvent catchUpIndexAsyncEvent) throws Exception {
+        if (log.isInfoEnabled()) {
+            log.info("Catch up index event: " + catchUpIndexAsyncEvent.toString());
+        }
+        
+        // Stream the articles by pages, each page is read in its own transaction
+        final com.sismics.reader.core.dao.jpa.ArticleDao jpaArticleDao = new com.sismics.reader.core.dao.jpa.ArticleDao();
+        final Date updateDate = catchUpIndexAsyncEvent.getUpdateDate();
+        ArticleDao articleDao = new ArticleDao();
+        int articleCount = articleDao.catchUp(lastArticle -> {
+            final List<Article> articleList = new ArrayList<Article>();
+            TransactionUtil.handle(() -> {
+                if (lastArticle == null) {
+                    articleList.addAll(jpaArticleDao.findUpdatedAfter(updateDate, "", PAGE_SIZE));
+                } else {
+                    articleList.addAll(jpaArticleDao.findUpdatedAfter(lastArticle.getUpdateDate(), lastArticle.getId(), PAGE_SIZE));
+                }
+            });
+            return articleList;
+        });
+        
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("{0} articles caught up in the index", articleCount));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sismics.reader.core.listener.async;
+
+import com.google.common.base.Charsets;
+import com.google.common.eventbus.Subscribe;
+import com.sismics.reader.core.event.HubSubscriptionRequestedEvent;
+import com.sismics.reader.core.util.http.WebSubUtil;
+import com.sismics.util.HttpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.net.URLEncoder;
+import java.text.MessageFormat;
+
+/**
+ * Listener on a WebSub hub subscription request.
+ * The hub verifies the intent of the subscriber by calling back the REST API, which activates the subscription.
+ */
+public class HubSubscriptionRequestedAsyncListener {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(HubSubscriptionRequestedAsyncListener.class);
+
+    /**
+     * Process the event.
+     * 
+     * @param hubSubscriptionRequestedEvent Hub subscription requested event
+     */
+    @Subscribe
+    public void onHubSubscriptionRequested(final HubSubscriptionRequestedEvent hubSubscriptionRequestedEvent) throws Exception {
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Hub subscription requested event: {0}", hubSubscriptionRequestedEvent.toString()));
+        }
+        
+        String data = "hub.mode=subscribe"
+                + "&hub.topic=" + URLEncoder.encode(hubSubscriptionRequestedEvent.getTopic(), Charsets.UTF_8.name())
+                + "&hub.callback=" + URLEncoder.encode(hubSubscriptionRequestedEvent.getCallbackUrl(), Charsets.UTF_8.name())
+                + "&hub.secret=" + URLEncoder.encode(hubSubscriptionRequestedEvent.getSecret(), Charsets.UTF_8.name())
+                + "&hub.lease_seconds=" + WebSubUtil.LEASE_SECONDS;
+        try {
+            HttpUtil.postUrl(new URL(hubSubscriptionRequestedEvent.getHubUrl()), data);
+        } catch (Exception e) {
+            // The feed is still polled, we will try again on next synchronization
+            log.warn(MessageFormat.format("Error subscribing to hub {0} : {1}", hubSubscriptionRequestedEvent.getHubUrl(), e.getMessage()));
+        }
+    }
+}
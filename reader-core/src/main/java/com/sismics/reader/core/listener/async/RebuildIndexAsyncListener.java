@@ -8,6 +8,7 @@ import com.sismics.reader.core.util.TransactionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -21,6 +22,11 @@ public class RebuildIndexAsyncListener {
      */
     private static final Logger log = LoggerFactory.getLogger(RebuildIndexAsyncListener.class);
 
+    /**
+     * Number of articles read from the database at once.
+     */
+    private static final int PAGE_SIZE = 500;
+
     /**
      * Rebuild articles index.
      * 
@@ -32,14 +38,13 @@ public class RebuildIndexAsyncListener {
             log.info("Rebuild index event: " + rebuildIndexAsyncEvent.toString());
         }
         
-        // Fetch all articles
-        TransactionUtil.handle(() -> {
-            com.sismics.reader.core.dao.jpa.ArticleDao jpaArticleDao = new com.sismics.reader.core.dao.jpa.ArticleDao();
-            List<Article> articleList = jpaArticleDao.findAll();
-
-            // Rebuild index
-            ArticleDao articleDao = new ArticleDao();
-            articleDao.rebuildIndex(articleList);
+        // Stream the articles by pages, each page is read in its own transaction
+        final com.sismics.reader.core.dao.jpa.ArticleDao jpaArticleDao = new com.sismics.reader.core.dao.jpa.ArticleDao();
+        ArticleDao articleDao = new ArticleDao();
+        articleDao.rebuildIndex(lastArticle -> {
+            final List<Article> articleList = new ArrayList<Article>();
+            TransactionUtil.handle(() -> articleList.addAll(jpaArticleDao.findByUrlAfter(lastArticle, PAGE_SIZE)));
+            return articleList;
         });
     }
 }
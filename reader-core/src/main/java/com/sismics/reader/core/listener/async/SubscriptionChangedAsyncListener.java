@@ -0,0 +1,31 @@
+package com.sismics.reader.core.listener.async;
+
+import com.google.common.eventbus.Subscribe;
+import com.sismics.reader.core.event.SubscriptionChangedAsyncEvent;
+import com.sismics.reader.core.model.context.AppContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener on the changes of the subscriptions of a user.
+ */
+public class SubscriptionChangedAsyncListener {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionChangedAsyncListener.class);
+
+    /**
+     * Forgets the filter of the searches of the user, once the subscriptions are committed.
+     * 
+     * @param subscriptionChangedAsyncEvent Subscriptions changed event
+     */
+    @Subscribe
+    public void onSubscriptionChanged(final SubscriptionChangedAsyncEvent subscriptionChangedAsyncEvent) throws Exception {
+        if (log.isInfoEnabled()) {
+            log.info("Subscription changed event: " + subscriptionChangedAsyncEvent.toString());
+        }
+        
+        AppContext.getInstance().getIndexingService().invalidateFeedFilter(subscriptionChangedAsyncEvent.getUserId());
+    }
+}
@@ -3,12 +3,14 @@ package com.sismics.reader.core.model.context;
 import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import com.sismics.reader.core.constant.ConfigType;
+import com.sismics.reader.core.constant.Constants;
 import com.sismics.reader.core.dao.jpa.ConfigDao;
 import com.sismics.reader.core.listener.async.*;
 import com.sismics.reader.core.listener.sync.DeadEventListener;
 import com.sismics.reader.core.model.jpa.Config;
 import com.sismics.reader.core.service.FeedService;
 import com.sismics.reader.core.service.IndexingService;
+import com.sismics.reader.core.util.http.ReaderHttpClient;
 import com.sismics.util.EnvironmentUtil;
 
 import java.util.ArrayList;
@@ -70,10 +72,22 @@ public class AppContext {
     private AppContext() {
         resetEventBus();
         
-        feedService = new FeedService();
+        ConfigDao configDao = new ConfigDao();
+        Config httpMaxConnectionsPerHostConfig = configDao.getById(ConfigType.HTTP_MAX_CONNECTIONS_PER_HOST);
+        ReaderHttpClient.setMaxConnectionsPerHost(httpMaxConnectionsPerHostConfig != null ?
+                Integer.parseInt(httpMaxConnectionsPerHostConfig.getValue()) : Constants.DEFAULT_HTTP_MAX_CONNECTIONS_PER_HOST);
+        Config httpMaxBodySizeConfig = configDao.getById(ConfigType.HTTP_MAX_BODY_SIZE);
+        ReaderHttpClient.setMaxBodySize(httpMaxBodySizeConfig != null ?
+                Integer.parseInt(httpMaxBodySizeConfig.getValue()) : Constants.DEFAULT_HTTP_MAX_BODY_SIZE);
+        
+        Config feedSyncThreadCountConfig = configDao.getById(ConfigType.FEED_SYNC_THREAD_COUNT);
+        Config feedHostRequestRateConfig = configDao.getById(ConfigType.FEED_HOST_REQUEST_RATE);
+        feedService = new FeedService(feedSyncThreadCountConfig != null ?
+                Integer.parseInt(feedSyncThreadCountConfig.getValue()) : Constants.DEFAULT_FEED_SYNC_THREAD_COUNT,
+                feedHostRequestRateConfig != null ?
+                Integer.parseInt(feedHostRequestRateConfig.getValue()) : Constants.DEFAULT_FEED_HOST_REQUEST_RATE);
         feedService.startAndWait();
         
-        ConfigDao configDao = new ConfigDao();
         Config luceneStorageConfig = configDao.getById(ConfigType.LUCENE_DIRECTORY_STORAGE);
         indexingService = new IndexingService(luceneStorageConfig != null ? luceneStorageConfig.getValue() : null);
         indexingService.startAndWait();
@@ -93,7 +107,10 @@ public class AppContext {
         asyncEventBus.register(new ArticleUpdatedAsyncListener());
         asyncEventBus.register(new ArticleDeletedAsyncListener());
         asyncEventBus.register(new RebuildIndexAsyncListener());
+        asyncEventBus.register(new CatchUpIndexAsyncListener());
         asyncEventBus.register(new FaviconUpdateRequestedAsyncListener());
+        asyncEventBus.register(new HubSubscriptionRequestedAsyncListener());
+        asyncEventBus.register(new SubscriptionChangedAsyncListener());
 
         mailEventBus = newAsyncEventBus();
 
@@ -109,6 +126,9 @@ public class AppContext {
     public static AppContext getInstance() {
         if (instance == null) {
             instance = new AppContext();
+            
+            // The index catch up needs the application context
+            instance.indexingService.catchUpIndex();
         }
         return instance;
     }
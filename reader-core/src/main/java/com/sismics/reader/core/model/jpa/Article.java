@@ -105,12 +105,24 @@ public class Article {
     @Column(name = "ART_CREATEDATE_D", nullable = false)
     private Date createDate;
     
+    /**
+     * Date of the last creation, update or deletion.
+     */
+    @Column(name = "ART_UPDATEDATE_D", nullable = false)
+    private Date updateDate;
+    
     /**
      * Deletion date.
      */
     @Column(name = "ART_DELETEDATE_D")
     private Date deleteDate;
     
+    /**
+     * Hash of the title and description before sanitization.
+     */
+    @Column(name = "ART_RAWHASH_C", length = 40)
+    private String rawHash;
+    
     /**
      * Getter of id.
      *
@@ -381,6 +393,24 @@ public class Article {
         this.createDate = createDate;
     }
 
+    /**
+     * Getter of updateDate.
+     *
+     * @return updateDate
+     */
+    public Date getUpdateDate() {
+        return updateDate;
+    }
+
+    /**
+     * Setter of updateDate.
+     *
+     * @param updateDate updateDate
+     */
+    public void setUpdateDate(Date updateDate) {
+        this.updateDate = updateDate;
+    }
+
     /**
      * Getter of deleteDate.
      *
@@ -399,6 +429,24 @@ public class Article {
         this.deleteDate = deleteDate;
     }
 
+    /**
+     * Getter of rawHash.
+     *
+     * @return rawHash
+     */
+    public String getRawHash() {
+        return rawHash;
+    }
+
+    /**
+     * Setter of rawHash.
+     *
+     * @param rawHash rawHash
+     */
+    public void setRawHash(String rawHash) {
+        this.rawHash = rawHash;
+    }
+
     public Article() {
     }
 
@@ -71,6 +71,66 @@ public class Feed {
     @Column(name = "FED_LASTFETCHDATE_D")
     private Date lastFetchDate;
     
+    /**
+     * Update period advertised by the feed, in minutes.
+     */
+    @Column(name = "FED_UPDATEPERIOD_N")
+    private Integer updatePeriod;
+    
+    /**
+     * Next scheduled fetch date.
+     */
+    @Column(name = "FED_NEXTFETCHDATE_D")
+    private Date nextFetchDate;
+    
+    /**
+     * Number of consecutive synchronization errors.
+     */
+    @Column(name = "FED_ERRORCOUNT_N", nullable = false)
+    private int errorCount;
+    
+    /**
+     * Entity tag returned by the server on the last fetch.
+     */
+    @Column(name = "FED_ETAG_C", length = 250)
+    private String etag;
+    
+    /**
+     * Last modification date returned by the server on the last fetch (HTTP date).
+     */
+    @Column(name = "FED_LASTMODIFIED_C", length = 100)
+    private String lastModified;
+    
+    /**
+     * SHA-1 hash of the uncompressed content returned by the server on the last fetch.
+     */
+    @Column(name = "FED_CONTENTHASH_C", length = 40)
+    private String contentHash;
+    
+    /**
+     * URL of the WebSub hub advertised by the feed.
+     */
+    @Column(name = "FED_HUBURL_C", length = 2000)
+    private String hubUrl;
+    
+    /**
+     * WebSub topic URL advertised by the feed (self link).
+     */
+    @Column(name = "FED_HUBTOPIC_C", length = 2000)
+    private String hubTopic;
+    
+    /**
+     * Secret shared with the WebSub hub to sign the pushed content.
+     */
+    @Column(name = "FED_HUBSECRET_C", length = 50)
+    private String hubSecret;
+    
+    /**
+     * End of the lease of the verified WebSub subscription.
+     */
+    @Column(name = "FED_HUBLEASEDATE_D")
+    private Date hubLeaseDate;
+    
     /**
      * Deletion date.
      */
@@ -239,6 +299,186 @@ public class Feed {
         this.lastFetchDate = lastFetchDate;
     }
 
+    /**
+     * Getter of updatePeriod.
+     *
+     * @return updatePeriod
+     */
+    public Integer getUpdatePeriod() {
+        return updatePeriod;
+    }
+
+    /**
+     * Setter of updatePeriod.
+     *
+     * @param updatePeriod updatePeriod
+     */
+    public void setUpdatePeriod(Integer updatePeriod) {
+        this.updatePeriod = updatePeriod;
+    }
+
+    /**
+     * Getter of nextFetchDate.
+     *
+     * @return nextFetchDate
+     */
+    public Date getNextFetchDate() {
+        return nextFetchDate;
+    }
+
+    /**
+     * Setter of nextFetchDate.
+     *
+     * @param nextFetchDate nextFetchDate
+     */
+    public void setNextFetchDate(Date nextFetchDate) {
+        this.nextFetchDate = nextFetchDate;
+    }
+
+    /**
+     * Getter of errorCount.
+     *
+     * @return errorCount
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Setter of errorCount.
+     *
+     * @param errorCount errorCount
+     */
+    public void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * Getter of etag.
+     *
+     * @return etag
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Setter of etag.
+     *
+     * @param etag etag
+     */
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    /**
+     * Getter of lastModified.
+     *
+     * @return lastModified
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Setter of lastModified.
+     *
+     * @param lastModified lastModified
+     */
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Getter of contentHash.
+     *
+     * @return contentHash
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Setter of contentHash.
+     *
+     * @param contentHash contentHash
+     */
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Getter of hubUrl.
+     *
+     * @return hubUrl
+     */
+    public String getHubUrl() {
+        return hubUrl;
+    }
+
+    /**
+     * Setter of hubUrl.
+     *
+     * @param hubUrl hubUrl
+     */
+    public void setHubUrl(String hubUrl) {
+        this.hubUrl = hubUrl;
+    }
+
+    /**
+     * Getter of hubTopic.
+     *
+     * @return hubTopic
+     */
+    public String getHubTopic() {
+        return hubTopic;
+    }
+
+    /**
+     * Setter of hubTopic.
+     *
+     * @param hubTopic hubTopic
+     */
+    public void setHubTopic(String hubTopic) {
+        this.hubTopic = hubTopic;
+    }
+
+    /**
+     * Getter of hubSecret.
+     *
+     * @return hubSecret
+     */
+    public String getHubSecret() {
+        return hubSecret;
+    }
+
+    /**
+     * Setter of hubSecret.
+     *
+     * @param hubSecret hubSecret
+     */
+    public void setHubSecret(String hubSecret) {
+        this.hubSecret = hubSecret;
+    }
+
+    /**
+     * Getter of hubLeaseDate.
+     *
+     * @return hubLeaseDate
+     */
+    public Date getHubLeaseDate() {
+        return hubLeaseDate;
+    }
+
+    /**
+     * Setter of hubLeaseDate.
+     *
+     * @param hubLeaseDate hubLeaseDate
+     */
+    public void setHubLeaseDate(Date hubLeaseDate) {
+        this.hubLeaseDate = hubLeaseDate;
+    }
+
     /**
      * Getter of deleteDate.
      *
@@ -37,6 +37,18 @@ public class FeedSynchronization {
     @Column(name = "FSY_SUCCESS_B", nullable = false)
     private boolean success;
     
+    /**
+     * True if the server answered that the feed was not modified since the last fetch.
+     */
+    @Column(name = "FSY_NOTMODIFIED_B", nullable = false)
+    private boolean notModified;
+    
+    /**
+     * True if the server returned the same content as on the last fetch.
+     */
+    @Column(name = "FSY_UNCHANGED_B", nullable = false)
+    private boolean unchanged;
+    
     /**
      * Message.
      */
@@ -80,6 +92,22 @@ public class FeedSynchronization {
         this.success = success;
     }
 
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public void setNotModified(boolean notModified) {
+        this.notModified = notModified;
+    }
+
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(boolean unchanged) {
+        this.unchanged = unchanged;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -110,6 +138,8 @@ public class FeedSynchronization {
                 .add("id", id)
                 .add("feedId", feedId)
                 .add("success", success)
+                .add("notModified", notModified)
+                .add("unchanged", unchanged)
                 .toString();
     }
 }
@@ -1,8 +1,16 @@
 package com.sismics.reader.core.service;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.reader.core.constant.ConfigType;
 import com.sismics.reader.core.dao.file.html.FeedChooserStrategy;
 import com.sismics.reader.core.dao.file.html.RssExtractor;
 import com.sismics.reader.core.dao.file.rss.RssReader;
@@ -19,11 +27,17 @@ import com.sismics.reader.core.event.ArticleCreatedAsyncEvent;
 import com.sismics.reader.core.event.ArticleDeletedAsyncEvent;
 import com.sismics.reader.core.event.ArticleUpdatedAsyncEvent;
 import com.sismics.reader.core.event.FaviconUpdateRequestedEvent;
+import com.sismics.reader.core.event.HubSubscriptionRequestedEvent;
 import com.sismics.reader.core.model.context.AppContext;
 import com.sismics.reader.core.model.jpa.*;
 import com.sismics.reader.core.util.EntityManagerUtil;
+import com.sismics.reader.core.util.FeedScheduleUtil;
+import com.sismics.reader.core.util.StreamUtil;
 import com.sismics.reader.core.util.TransactionUtil;
+import com.sismics.reader.core.util.http.HostRateLimiter;
 import com.sismics.reader.core.util.http.ReaderHttpClient;
+import com.sismics.reader.core.util.http.RetryAfterException;
+import com.sismics.reader.core.util.http.WebSubUtil;
 import com.sismics.reader.core.util.jpa.PaginatedList;
 import com.sismics.reader.core.util.jpa.PaginatedLists;
 import com.sismics.reader.core.util.sanitizer.ArticleSanitizer;
@@ -38,14 +52,29 @@ import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.net.ConnectException;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Feed service.
@@ -58,19 +87,138 @@ public class FeedService extends AbstractScheduledService {
      */
     private static final Logger log = LoggerFactory.getLogger(FeedService.class);
 
+    /**
+     * Shortest delay between 2 scheduled iterations (in milliseconds).
+     */
+    private static final long MIN_ITERATION_DELAY = TimeUnit.MINUTES.toMillis(1);
+    
+    /**
+     * Longest delay between 2 scheduled iterations (in milliseconds).
+     */
+    private static final long MAX_ITERATION_DELAY = TimeUnit.MINUTES.toMillis(10);
+    
+    /**
+     * Longest delay a throttled feed is waited for during an iteration, later feeds are rescheduled.
+     */
+    private static final long MAX_THROTTLE_DELAY = TimeUnit.MINUTES.toMillis(1);
+    
+    /**
+     * Timeout of the probes sent to feeds with an open circuit breaker (in milliseconds).
+     */
+    private static final int PROBE_TIMEOUT = 5000;
+    
+    /**
+     * Number of latest articles of a feed whose GUIDs are known to the parser, which stops reading the feed after them.
+     */
+    private static final int KNOWN_GUID_MAX = 200;
+    
+    /**
+     * Number of feeds waiting for each stage of the synchronization.
+     */
+    private static final int STAGE_QUEUE_CAPACITY = 16;
+    
+    /**
+     * Maximum number of feeds whose date formats are remembered.
+     */
+    private static final int DATE_FORMAT_CACHE_SIZE = 10000;
+    
+    /**
+     * Number of feeds downloaded in parallel.
+     */
+    private int syncThreadCount;
+    
+    /**
+     * Executor downloading the feeds (I/O bound).
+     */
+    private ThreadPoolExecutor fetchExecutor;
+    
+    /**
+     * Executor parsing and sanitizing the feeds (CPU bound).
+     */
+    private ThreadPoolExecutor parseExecutor;
+    
+    /**
+     * Executor writing the feeds to the database, one at a time.
+     */
+    private ThreadPoolExecutor persistExecutor;
+    
+    /**
+     * Date of the next scheduled iteration.
+     */
+    private volatile Date nextIterationDate;
+    
+    /**
+     * Limits the rate of feed fetches to each host.
+     */
+    private final HostRateLimiter hostRateLimiter;
+    
+    /**
+     * Formats of the dates learned while parsing each feed, by RSS URL.
+     */
+    private final Cache<String, int[]> dateFormatCache = CacheBuilder.newBuilder()
+            .maximumSize(DATE_FORMAT_CACHE_SIZE)
+            .build();
+    
+    /**
+     * Constructor of FeedService.
+     * 
+     * @param syncThreadCount Number of feeds downloaded in parallel
+     * @param hostRequestRate Maximum number of feed fetches per minute to the same host
+     */
+    public FeedService(int syncThreadCount, int hostRequestRate) {
+        this.syncThreadCount = Math.max(1, syncThreadCount);
+        this.hostRateLimiter = new HostRateLimiter(hostRequestRate, hostRequestRate / 6);
+    }
+
     @Override
     protected void startUp() throws Exception {
+        fetchExecutor = newStageExecutor("feed-fetch-%d", syncThreadCount);
+        parseExecutor = newStageExecutor("feed-parse-%d", Runtime.getRuntime().availableProcessors());
+        persistExecutor = newStageExecutor("feed-persist-%d", 1);
     }
 
     @Override
     protected void shutDown() throws Exception {
+        fetchExecutor.shutdownNow();
+        parseExecutor.shutdownNow();
+        persistExecutor.shutdownNow();
+    }
+
+    /**
+     * Creates the executor of a synchronization stage.
+     * The queue of waiting feeds is bounded: when it is full, the previous stage waits, so that a slow stage
+     * doesn't pile up downloaded or parsed feeds in memory.
+     * 
+     * @param nameFormat Name format of the threads
+     * @param threadCount Number of threads
+     * @return Executor
+     */
+    private static ThreadPoolExecutor newStageExecutor(String nameFormat, int threadCount) {
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(STAGE_QUEUE_CAPACITY),
+                new ThreadFactoryBuilder()
+                        .setNameFormat(nameFormat)
+                        .setDaemon(true)
+                        .build(),
+                (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Feed synchronization stopped");
+                    }
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                });
     }
 
     @Override
     protected void runOneIteration() {
         // Don't let Guava manage our exceptions, or they will be swallowed and the service will silently stop
+        nextIterationDate = new Date(System.currentTimeMillis() + MAX_ITERATION_DELAY);
         try {
-            TransactionUtil.handle(() -> synchronizeAllFeeds());
+            synchronizeScheduledFeeds();
         } catch (Throwable t) {
             log.error("Error synchronizing feeds", t);
         }
@@ -78,41 +226,123 @@ public class FeedService extends AbstractScheduledService {
     
     @Override
     protected Scheduler scheduler() {
-        // TODO Implement a better schedule strategy... Use update period specified in the feed if avail & use last update date from feed to backoff
-        return Scheduler.newFixedDelaySchedule(0, 10, TimeUnit.MINUTES);
+        // Wake up when the next feed is due
+        return new CustomScheduler() {
+            @Override
+            protected Schedule getNextSchedule() {
+                if (nextIterationDate == null) {
+                    return new Schedule(0, TimeUnit.MILLISECONDS);
+                }
+                long delay = nextIterationDate.getTime() - System.currentTimeMillis();
+                delay = Math.max(MIN_ITERATION_DELAY, Math.min(MAX_ITERATION_DELAY, delay));
+                return new Schedule(delay, TimeUnit.MILLISECONDS);
+            }
+        };
     }
     
     /**
-     * Synchronize all feeds.
+     * Synchronize all feeds, regardless of their schedule.
      */
     public void synchronizeAllFeeds() {
-        // Update all feeds currently having subscribed users
-        FeedDao feedDao = new FeedDao();
         FeedCriteria feedCriteria = new FeedCriteria()
                 .setWithUserSubscription(true);
-        List<FeedDto> feedList = feedDao.findByCriteria(feedCriteria);
-        List<FeedSynchronization> feedSynchronizationList = new ArrayList<FeedSynchronization>();
+        synchronizeFeeds(feedCriteria);
+    }
+    
+    /**
+     * Synchronize the feeds due for a fetch, and plan the next iteration.
+     * The feeds table ordered by next fetch date is used as a persistent priority queue.
+     */
+    public void synchronizeScheduledFeeds() {
+        Date now = new Date();
+        FeedCriteria feedCriteria = new FeedCriteria()
+                .setWithUserSubscription(true)
+                .setNextFetchDateMax(now);
+        boolean networkDown = synchronizeFeeds(feedCriteria);
+        
+        if (networkDown) {
+            // The failed feeds are still due, try again later
+            nextIterationDate = new Date(now.getTime() + TimeUnit.MINUTES.toMillis(FeedScheduleUtil.MIN_FETCH_INTERVAL));
+        } else {
+            TransactionUtil.handle(() -> nextIterationDate = new FeedDao().getMinNextFetchDate());
+            if (nextIterationDate == null) {
+                // No feed to synchronize, check again later
+                nextIterationDate = new Date(System.currentTimeMillis() + MAX_ITERATION_DELAY);
+            }
+        }
+    }
+    
+    /**
+     * Synchronize feeds.
+     * The feeds go through a pipeline: they are downloaded, then parsed and sanitized, then written
+     * to the database in a short transaction each. No transaction is held while waiting for the pipeline.
+     * 
+     * @param feedCriteria Criteria of the feeds to synchronize
+     * @return True if all feeds have failed
+     */
+    private boolean synchronizeFeeds(final FeedCriteria feedCriteria) {
+        // Update all feeds currently having subscribed users
+        final List<FeedDto> feedList = new ArrayList<FeedDto>();
+        TransactionUtil.handle(() -> feedList.addAll(new FeedDao().findByCriteria(feedCriteria)));
+        
+        // Send the feeds through the pipeline.
+        // Feeds throttled by their host are requeued behind the others, until the host accepts requests again
+        final Map<String, FeedDto> feedMap = new HashMap<String, FeedDto>();
+        BlockingQueue<StagedFeed> completedFeedQueue = new LinkedBlockingQueue<StagedFeed>();
+        int pendingFeedCount = 0;
+        DelayQueue<ThrottledFeed> throttledFeedQueue = new DelayQueue<ThrottledFeed>();
+        final Map<String, Date> deferredFeedMap = new HashMap<String, Date>();
+        Date startDate = new Date();
         for (FeedDto feed : feedList) {
-            FeedSynchronization feedSynchronization = new FeedSynchronization();
-            feedSynchronization.setFeedId(feed.getId());
-            feedSynchronization.setSuccess(true);
-            long startTime = System.currentTimeMillis();
-            
-            try {
-                synchronize(feed.getRssUrl());
-            } catch (Exception e) {
-                log.error(MessageFormat.format("Error synchronizing feed at URL: {0}", feed.getRssUrl()), e);
-                feedSynchronization.setSuccess(false);
-                feedSynchronization.setMessage(ExceptionUtils.getStackTrace(e));
+            // Failing feeds are only probed when they are due, even if the synchronization is forced
+            if (FeedScheduleUtil.isCircuitBreakerOpen(feed.getErrorCount())
+                    && feed.getNextFetchDate() != null && feed.getNextFetchDate().after(startDate)) {
+                continue;
             }
-            feedSynchronization.setDuration((int) (System.currentTimeMillis() - startTime));
-            feedSynchronizationList.add(feedSynchronization);
-            TransactionUtil.commit();
+            feedMap.put(feed.getId(), feed);
+            synchronizeFeed(feed, completedFeedQueue);
+            pendingFeedCount++;
         }
-
+        final List<FeedSynchronization> feedSynchronizationList = new ArrayList<FeedSynchronization>();
+        try {
+            while (pendingFeedCount > 0 || !throttledFeedQueue.isEmpty()) {
+                for (ThrottledFeed throttledFeed = throttledFeedQueue.poll(); throttledFeed != null; throttledFeed = throttledFeedQueue.poll()) {
+                    synchronizeFeed(throttledFeed.feed, completedFeedQueue);
+                    pendingFeedCount++;
+                }
+                
+                // Wait for the next synchronized feed, or the next throttled feed to be ready
+                ThrottledFeed nextThrottledFeed = throttledFeedQueue.peek();
+                long delay = nextThrottledFeed != null ? nextThrottledFeed.getDelay(TimeUnit.MILLISECONDS) : MAX_THROTTLE_DELAY;
+                if (pendingFeedCount == 0) {
+                    Thread.sleep(Math.max(0, delay));
+                    continue;
+                }
+                StagedFeed stagedFeed = completedFeedQueue.poll(Math.max(0, delay), TimeUnit.MILLISECONDS);
+                if (stagedFeed == null) {
+                    continue;
+                }
+                pendingFeedCount--;
+                
+                FeedDto feed = stagedFeed.feed;
+                if (!stagedFeed.throttled) {
+                    feedSynchronizationList.add(stagedFeed.feedSynchronization);
+                } else {
+                    long throttleDelay = hostRateLimiter.getDelay(getHost(feed.getRssUrl()));
+                    if (throttleDelay <= MAX_THROTTLE_DELAY) {
+                        throttledFeedQueue.add(new ThrottledFeed(feed, throttleDelay));
+                    } else {
+                        deferredFeedMap.put(feed.getId(), new Date(System.currentTimeMillis() + throttleDelay));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        
         // If all feeds have failed, then we infer that the network is probably down
-        FeedSynchronizationDao feedSynchronizationDao = new FeedSynchronizationDao();
-        boolean networkDown = true;
+        boolean networkDown = !feedSynchronizationList.isEmpty();
         for (FeedSynchronization feedSynchronization : feedSynchronizationList) {
             if (feedSynchronization.isSuccess()) {
                 networkDown = false;
@@ -120,56 +350,286 @@ public class FeedService extends AbstractScheduledService {
             }
         }
 
-        // Update the status of all synchronized feeds
-        if (!networkDown) {
-            for (FeedSynchronization feedSynchronization : feedSynchronizationList) {
-                feedSynchronizationDao.create(feedSynchronization);
-                feedSynchronizationDao.deleteOldFeedSynchronization(feedSynchronization.getFeedId(), 600);
+        final boolean updateStatus = !networkDown;
+        TransactionUtil.handle(() -> {
+            // Reschedule the feeds throttled for a long time
+            FeedDao feedDao = new FeedDao();
+            for (Map.Entry<String, Date> entry : deferredFeedMap.entrySet()) {
+                feedDao.updateNextFetchDate(entry.getKey(), entry.getValue());
             }
-            TransactionUtil.commit();
+            
+            // Update the status of all synchronized feeds
+            if (updateStatus) {
+                Date now = new Date();
+                FeedSynchronizationDao feedSynchronizationDao = new FeedSynchronizationDao();
+                for (FeedSynchronization feedSynchronization : feedSynchronizationList) {
+                    feedSynchronizationDao.create(feedSynchronization);
+                    feedSynchronizationDao.deleteOldFeedSynchronization(feedSynchronization.getFeedId(), 600);
+                    
+                    // Back off from failing feeds
+                    if (!feedSynchronization.isSuccess()) {
+                        FeedDto feed = feedMap.get(feedSynchronization.getFeedId());
+                        int errorCount = feed.getErrorCount() + 1;
+                        feedDao.updateSyncError(feed.getId(), errorCount, FeedScheduleUtil.getRetryDate(now, errorCount));
+                        if (errorCount == FeedScheduleUtil.CIRCUIT_BREAKER_THRESHOLD && log.isWarnEnabled()) {
+                            log.warn(MessageFormat.format("Circuit breaker opened for feed at URL {0} after {1} errors", feed.getRssUrl(), errorCount));
+                        }
+                    }
+                }
+            }
+        });
+        
+        return networkDown;
+    }
+
+    /**
+     * Send a feed through the synchronization pipeline.
+     * 
+     * @param feed Feed to synchronize
+     * @param completedFeedQueue Queue receiving the feed once synchronized, failed or throttled
+     */
+    private void synchronizeFeed(FeedDto feed, final BlockingQueue<StagedFeed> completedFeedQueue) {
+        final StagedFeed stagedFeed = new StagedFeed(feed);
+        CompletableFuture.supplyAsync(() -> fetchStage(stagedFeed), fetchExecutor)
+                .thenApplyAsync(this::parseStage, parseExecutor)
+                .thenApplyAsync(this::persistStage, persistExecutor)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        setSynchronizationError(stagedFeed, e instanceof CompletionException ? e.getCause() : e);
+                    }
+                    stagedFeed.feedSynchronization.setDuration((int) (System.currentTimeMillis() - stagedFeed.startTime));
+                    completedFeedQueue.add(stagedFeed);
+                });
+    }
+
+    /**
+     * Download a feed.
+     * 
+     * @param stagedFeed Feed in the pipeline
+     * @return Feed in the pipeline
+     */
+    private StagedFeed fetchStage(StagedFeed stagedFeed) {
+        // Check that the host accepts more requests
+        FeedDto feed = stagedFeed.feed;
+        String host = getHost(feed.getRssUrl());
+        if (hostRateLimiter.acquire(host) > 0) {
+            stagedFeed.throttled = true;
+            return stagedFeed;
+        }
+        
+        stagedFeed.startTime = System.currentTimeMillis();
+        try {
+            stagedFeed.fetchedFeed = fetchFeed(feed.getRssUrl(), feed.getEtag(), feed.getLastModified(), stagedFeed.getTimeout());
+            stagedFeed.feedSynchronization.setNotModified(stagedFeed.fetchedFeed == null);
+            
+            // Many servers send no cache validators, but the same content: handle it as not modified
+            if (stagedFeed.fetchedFeed != null && stagedFeed.fetchedFeed.contentHash.equals(feed.getContentHash())) {
+                stagedFeed.feedSynchronization.setUnchanged(true);
+                stagedFeed.fetchedFeed = null;
+            }
+        } catch (RetryAfterException e) {
+            log.info(e.getMessage());
+            hostRateLimiter.retryAfter(host, e.getDelay());
+            stagedFeed.throttled = true;
+        } catch (Exception e) {
+            logParsingError(feed.getRssUrl(), e);
+            setSynchronizationError(stagedFeed, e);
+        }
+        return stagedFeed;
+    }
+
+    /**
+     * Parse and sanitize a downloaded feed.
+     * 
+     * @param stagedFeed Feed in the pipeline
+     * @return Feed in the pipeline
+     */
+    private StagedFeed parseStage(StagedFeed stagedFeed) {
+        if (stagedFeed.fetchedFeed == null) {
+            return stagedFeed;
+        }
+        try {
+            // Only the articles newer than the known ones need to be read
+            final Map<String, String> rawHashMap = new HashMap<String, String>();
+            TransactionUtil.handle(() -> rawHashMap.putAll(new ArticleDao().getLatestRawHashMap(stagedFeed.feed.getId(), KNOWN_GUID_MAX)));
+            
+            // Probe failing feeds with a single request and a short timeout
+            stagedFeed.rssReader = parseFeedOrPage(stagedFeed.fetchedFeed, rawHashMap.keySet(), !stagedFeed.probe, stagedFeed.getTimeout());
+            stagedFeed.unchangedGuidSet = sanitizeFeed(stagedFeed.rssReader, rawHashMap);
+        } catch (Exception e) {
+            setSynchronizationError(stagedFeed, e);
+        }
+        stagedFeed.fetchedFeed = null;
+        return stagedFeed;
+    }
+
+    /**
+     * Write a parsed feed to the database in a new transaction.
+     * The feeds are written one at a time by the single persist thread, because concurrent writes to the same tables
+     * would deadlock.
+     * 
+     * @param stagedFeed Feed in the pipeline
+     * @return Feed in the pipeline
+     */
+    private StagedFeed persistStage(final StagedFeed stagedFeed) {
+        if (stagedFeed.throttled || !stagedFeed.feedSynchronization.isSuccess()) {
+            return stagedFeed;
+        }
+        final String rssUrl = stagedFeed.feed.getRssUrl();
+        TransactionUtil.handle(() -> {
+            try {
+                if (stagedFeed.rssReader == null) {
+                    synchronizeNotModified(rssUrl);
+                } else {
+                    synchronize(rssUrl, stagedFeed.rssReader, stagedFeed.unchangedGuidSet);
+                }
+            } catch (RuntimeException e) {
+                // Report the error, and let the transaction be rolled back
+                setSynchronizationError(stagedFeed, e);
+                throw e;
+            }
+        });
+        stagedFeed.rssReader = null;
+        return stagedFeed;
+    }
+
+    /**
+     * Write a parsed feed to the database in a new transaction, on the persist stage of the pipeline,
+     * and wait for it to be written.
+     * The caller must not hold write locks on the feed tables, i.e. must not have written to them in its transaction.
+     * 
+     * @param url RSS url of a feed or page containing a feed to synchronize
+     * @param rssReader Parsed feed
+     * @param unchangedGuidSet GUIDs of the articles not sanitized because their raw contents didn't change
+     * @return Synchronized feed, detached from the caller's transaction
+     */
+    private Feed persist(final String url, final RssReader rssReader, final Set<String> unchangedGuidSet) throws Exception {
+        Future<Feed> future = persistExecutor.submit(() -> {
+            final AtomicReference<Feed> feed = new AtomicReference<Feed>();
+            final AtomicReference<RuntimeException> error = new AtomicReference<RuntimeException>();
+            TransactionUtil.handle(() -> {
+                try {
+                    feed.set(synchronize(url, rssReader, unchangedGuidSet));
+                } catch (RuntimeException e) {
+                    // Report the error to the caller, and let the transaction be rolled back
+                    error.set(e);
+                    throw e;
+                }
+            });
+            if (error.get() != null) {
+                throw error.get();
+            }
+            return feed.get();
+        });
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the host of a feed URL.
+     * 
+     * @param url URL
+     * @return Host
+     */
+    private static String getHost(String url) {
+        try {
+            return new URL(url).getHost();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    /**
+     * Report a synchronization error.
+     * 
+     * @param stagedFeed Feed in the pipeline
+     * @param e Error
+     */
+    private void setSynchronizationError(StagedFeed stagedFeed, Throwable e) {
+        FeedSynchronization feedSynchronization = stagedFeed.feedSynchronization;
+        FeedDto feed = stagedFeed.feed;
+        feedSynchronization.setSuccess(false);
+        if (FeedScheduleUtil.isCircuitBreakerOpen(feed.getErrorCount())) {
+            // The feed is known to be failing, keep the report short
+            log.warn(MessageFormat.format("Error probing feed at URL {0} : {1}", feed.getRssUrl(), e.toString()));
+            feedSynchronization.setMessage(e.toString());
+        } else {
+            log.error(MessageFormat.format("Error synchronizing feed at URL: {0}", feed.getRssUrl()), e);
+            feedSynchronization.setMessage(ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /**
+     * Reschedule a feed that was not modified since the last fetch.
+     * 
+     * @param rssUrl RSS url of the feed
+     */
+    private void synchronizeNotModified(String rssUrl) {
+        FeedDao feedDao = new FeedDao();
+        Feed feed = feedDao.getByRssUrl(rssUrl);
+        if (feed == null) {
+            return;
+        }
+        feed.setLastFetchDate(new Date());
+        scheduleNextFetch(feed);
+        feedDao.update(feed);
+
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Feed at URL {0} not modified", rssUrl));
         }
     }
 
     /**
      * Synchronize the feed to local database.
+     * The feed is written by the persist stage of the pipeline in its own transaction: the caller must not have
+     * written to the feed tables in its transaction.
      * 
      * @param url RSS url of a feed or page containing a feed to synchronize
+     * @return Synchronized feed, detached from the caller's transaction
      */
     public Feed synchronize(String url) throws Exception {
+        // Parse the feed
+        FetchedFeed fetchedFeed;
+        try {
+            fetchedFeed = fetchFeed(url, null, null, ReaderHttpClient.DEFAULT_TIMEOUT);
+        } catch (Exception e) {
+            logParsingError(url, e);
+            throw e;
+        }
+        RssReader rssReader = parseFeedOrPage(fetchedFeed, null, true, ReaderHttpClient.DEFAULT_TIMEOUT);
+        Set<String> unchangedGuidSet = sanitizeFeed(rssReader, null);
+        
+        return persist(url, rssReader, unchangedGuidSet);
+    }
+
+    /**
+     * Synchronize an already parsed and sanitized feed to local database.
+     * 
+     * @param url RSS url of a feed or page containing a feed to synchronize
+     * @param rssReader Parsed feed
+     * @param unchangedGuidSet GUIDs of the articles not sanitized because their raw contents didn't change
+     * @return Synchronized feed
+     */
+    private Feed synchronize(String url, RssReader rssReader, Set<String> unchangedGuidSet) {
         long startTime = System.currentTimeMillis();
         
-        // Parse the feed
-        RssReader rssReader = parseFeedOrPage(url, true);
         Feed newFeed = rssReader.getFeed();
         List<Article> articleList = rssReader.getArticleList();
 
-        completeArticleList(articleList);
-
         // Get articles that were removed from RSS compared to last fetch
         List<Article> articleToRemove = getArticleToRemove(articleList);
         if (!articleToRemove.isEmpty()) {
+            // Delete articles that don't exist anymore, and update the unread counts of their feed
+            List<String> articleIdList = new ArrayList<String>();
             for (Article article : articleToRemove) {
-                // Update unread counts
-                // FIXME count be optimized in 1 query instead of a*s*2
-                List<UserArticleDto> userArticleDtoList = new UserArticleDao()
-                        .findByCriteria(new UserArticleCriteria()
-                                .setArticleId(article.getId())
-                                .setFetchAllFeedSubscription(true) // to test: subscribe another user, u2, read u1, not u2, u1 is decremented anyway
-                                .setUnread(true));
-
-                for (UserArticleDto userArticleDto : userArticleDtoList) {
-                    FeedSubscriptionDto feedSubscriptionDto = new FeedSubscriptionDao().findFirstByCriteria(new FeedSubscriptionCriteria()
-                            .setId(userArticleDto.getFeedSubscriptionId()));
-                    if (feedSubscriptionDto != null) {
-                        new FeedSubscriptionDao().updateUnreadCount(feedSubscriptionDto.getId(), feedSubscriptionDto.getUnreadUserArticleCount() - 1);
-                    }
-                }
-            }
-
-            // Delete articles that don't exist anymore
-            for (Article article: articleToRemove) {
-                new ArticleDao().delete(article.getId());
+                articleIdList.add(article.getId());
             }
+            new FeedSubscriptionDao().decrementUnreadCount(articleToRemove.get(0).getFeedId(), articleIdList);
+            new ArticleDao().delete(articleIdList);
 
             // Removed articles from index
             ArticleDeletedAsyncEvent articleDeletedAsyncEvent = new ArticleDeletedAsyncEvent();
@@ -189,6 +649,10 @@ public class FeedService extends AbstractScheduledService {
             feed.setTitle(StringUtils.abbreviate(newFeed.getTitle(), 100));
             feed.setLanguage(newFeed.getLanguage() != null && newFeed.getLanguage().length() <= 10 ? newFeed.getLanguage() : null);
             feed.setDescription(StringUtils.abbreviate(newFeed.getDescription(), 4000));
+            feed.setUpdatePeriod(newFeed.getUpdatePeriod());
+            feed.setEtag(newFeed.getEtag());
+            feed.setLastModified(newFeed.getLastModified());
+            feed.setContentHash(newFeed.getContentHash());
             feed.setLastFetchDate(new Date());
             feedDao.create(feed);
             EntityManagerUtil.flush();
@@ -207,8 +671,11 @@ public class FeedService extends AbstractScheduledService {
             feed.setTitle(StringUtils.abbreviate(newFeed.getTitle(), 100));
             feed.setLanguage(newFeed.getLanguage() != null && newFeed.getLanguage().length() <= 10 ? newFeed.getLanguage() : null);
             feed.setDescription(StringUtils.abbreviate(newFeed.getDescription(), 4000));
+            feed.setUpdatePeriod(newFeed.getUpdatePeriod());
+            feed.setEtag(newFeed.getEtag());
+            feed.setLastModified(newFeed.getLastModified());
+            feed.setContentHash(newFeed.getContentHash());
             feed.setLastFetchDate(new Date());
-            feedDao.update(feed);
 
             // Update the favicon
             if (updateFavicon) {
@@ -229,7 +696,6 @@ public class FeedService extends AbstractScheduledService {
             guidIn.add(article.getGuid());
         }
         
-        ArticleSanitizer sanitizer = new ArticleSanitizer();
         ArticleDao articleDao = new ArticleDao();
         if (!guidIn.isEmpty()) {
             ArticleCriteria articleCriteria = new ArticleCriteria()
@@ -239,26 +705,32 @@ public class FeedService extends AbstractScheduledService {
             List<Article> articleUpdatedList = new ArrayList<Article>();
             for (ArticleDto currentArticle : currentArticleDtoList) {
                 Article newArticle = articleMap.remove(currentArticle.getGuid());
+                if (unchangedGuidSet.contains(currentArticle.getGuid())) {
+                    continue;
+                }
                 
                 Article article = new Article();
                 article.setPublicationDate(currentArticle.getPublicationDate());
                 article.setId(currentArticle.getId());
                 article.setFeedId(feed.getId());
                 article.setUrl(newArticle.getUrl());
-                article.setTitle(StringUtils.abbreviate(TextSanitizer.sanitize(newArticle.getTitle()), 4000));
-                article.setCreator(StringUtils.abbreviate(newArticle.getCreator(), 200));
-                String baseUri = UrlUtil.getBaseUri(feed, newArticle);
-                article.setDescription(sanitizer.sanitize(baseUri, newArticle.getDescription()));
+                article.setTitle(newArticle.getTitle());
+                article.setCreator(newArticle.getCreator());
+                article.setDescription(newArticle.getDescription());
                 article.setCommentUrl(newArticle.getCommentUrl());
                 article.setCommentCount(newArticle.getCommentCount());
                 article.setEnclosureUrl(newArticle.getEnclosureUrl());
                 article.setEnclosureLength(newArticle.getEnclosureLength());
                 article.setEnclosureType(newArticle.getEnclosureType());
+                article.setRawHash(newArticle.getRawHash());
 
                 if (!Strings.nullToEmpty(currentArticle.getTitle()).equals(Strings.nullToEmpty(article.getTitle())) ||
                         !Strings.nullToEmpty(currentArticle.getDescription()).equals(Strings.nullToEmpty(article.getDescription()))) {
                     articleDao.update(article);
                     articleUpdatedList.add(article);
+                } else if (!Objects.equal(currentArticle.getRawHash(), article.getRawHash())) {
+                    // Remember the raw contents, to skip the sanitization on the next synchronization
+                    articleDao.update(article);
                 }
             }
             
@@ -277,28 +749,29 @@ public class FeedService extends AbstractScheduledService {
             
             FeedSubscriptionDao feedSubscriptionDao = new FeedSubscriptionDao();
             List<FeedSubscriptionDto> feedSubscriptionList = feedSubscriptionDao.findByCriteria(feedSubscriptionCriteria);
+            List<String> userIdList = new ArrayList<String>();
+            for (FeedSubscriptionDto feedSubscription : feedSubscriptionList) {
+                userIdList.add(feedSubscription.getUserId());
+            }
             
-            UserArticleDao userArticleDao = new UserArticleDao();
+            List<String> articleIdList = new ArrayList<String>();
+            ArticleSanitizer sanitizer = new ArticleSanitizer();
             for (Article article : articleMap.values()) {
+                if (unchangedGuidSet.contains(article.getGuid())) {
+                    // The article was deleted since it was parsed
+                    sanitizeArticle(newFeed, article, sanitizer);
+                }
+                
                 // Create the new article
                 article.setFeedId(feed.getId());
-                article.setTitle(StringUtils.abbreviate(TextSanitizer.sanitize(article.getTitle()), 4000));
-                article.setCreator(StringUtils.abbreviate(article.getCreator(), 200));
-                String baseUri = UrlUtil.getBaseUri(feed, article);
-                article.setDescription(sanitizer.sanitize(baseUri, article.getDescription()));
                 articleDao.create(article);
-    
-                // Create the user articles eagerly for users already subscribed
-                // FIXME count be optimized in 1 query instad of a*s
-                for (FeedSubscriptionDto feedSubscription : feedSubscriptionList) {
-                    UserArticle userArticle = new UserArticle();
-                    userArticle.setArticleId(article.getId());
-                    userArticle.setUserId(feedSubscription.getUserId());
-                    userArticleDao.create(userArticle);
-
-                    feedSubscription.setUnreadUserArticleCount(feedSubscription.getUnreadUserArticleCount() + 1);
-                    feedSubscriptionDao.updateUnreadCount(feedSubscription.getId(), feedSubscription.getUnreadUserArticleCount());
-                }
+                articleIdList.add(article.getId());
+            }
+            
+            // Create the user articles eagerly for users already subscribed
+            if (!userIdList.isEmpty()) {
+                new UserArticleDao().createBatch(articleIdList, userIdList);
+                feedSubscriptionDao.incrementUnreadCount(feed.getId(), articleIdList.size());
             }
 
             // Add new articles to the index
@@ -307,6 +780,13 @@ public class FeedService extends AbstractScheduledService {
             AppContext.getInstance().getAsyncEventBus().post(articleCreatedAsyncEvent);
         }
 
+        // Subscribe to the feed's hub to receive new articles as they are published
+        updateHubSubscription(feed, newFeed);
+
+        // Schedule the next fetch, and save the feed
+        scheduleNextFetch(feed);
+        feedDao.update(feed);
+
         long endTime = System.currentTimeMillis();
         if (log.isInfoEnabled()) {
             log.info(MessageFormat.format("Synchronized feed at URL {0} in {1}ms, {2} articles added, {3} deleted", url, endTime - startTime, articleMap.size(), articleToRemove.size()));
@@ -316,17 +796,146 @@ public class FeedService extends AbstractScheduledService {
     }
 
     /**
-     * Add missing data to articles after parsing.
+     * Synchronize the content of a feed pushed by its WebSub hub to local database.
+     * 
+     * @param feed Feed
+     * @param is Pushed content
+     * @return Synchronized feed, or null if the content is not a valid feed or cannot be written
+     */
+    public Feed synchronizePushedFeed(Feed feed, InputStream is) {
+        RssReader rssReader = new RssReader();
+        try {
+            readRssFeed(rssReader, feed.getRssUrl(), is);
+        } catch (Exception e) {
+            // The next safety poll will catch up
+            log.warn(MessageFormat.format("Error parsing content pushed for feed {0} : {1}", feed.getRssUrl(), e.getMessage()));
+            return null;
+        }
+        
+        Set<String> unchangedGuidSet = sanitizeFeed(rssReader, null);
+        
+        // The pushed content doesn't tell anything about the feed's cache validators
+        rssReader.getFeed().setRssUrl(feed.getRssUrl());
+        rssReader.getFeed().setEtag(feed.getEtag());
+        rssReader.getFeed().setLastModified(feed.getLastModified());
+        try {
+            return persist(feed.getRssUrl(), rssReader, unchangedGuidSet);
+        } catch (Exception e) {
+            // The next safety poll will catch up
+            log.error(MessageFormat.format("Error synchronizing content pushed for feed {0}", feed.getRssUrl()), e);
+            return null;
+        }
+    }
+
+    /**
+     * Request a subscription to the WebSub hub of a feed if needed.
+     * 
+     * @param feed Feed
+     * @param newFeed Parsed feed
+     */
+    private void updateHubSubscription(Feed feed, Feed newFeed) {
+        if (!StringUtils.equals(feed.getHubUrl(), newFeed.getHubUrl()) || !StringUtils.equals(feed.getHubTopic(), newFeed.getHubTopic())) {
+            // The feed moved to another hub, the current subscription is lost
+            feed.setHubUrl(newFeed.getHubUrl());
+            feed.setHubTopic(newFeed.getHubTopic());
+            feed.setHubLeaseDate(null);
+        }
+        if (feed.getHubUrl() == null) {
+            return;
+        }
+        Config callbackUrlConfig = new ConfigDao().getById(ConfigType.WEBSUB_CALLBACK_URL);
+        if (callbackUrlConfig == null || Strings.isNullOrEmpty(callbackUrlConfig.getValue())) {
+            return;
+        }
+        
+        // Subscribe again a little before the end of the lease
+        Date renewalDate = new Date(System.currentTimeMillis() + WebSubUtil.LEASE_RENEWAL_DELAY);
+        if (feed.getHubLeaseDate() != null && feed.getHubLeaseDate().after(renewalDate)) {
+            return;
+        }
+        if (feed.getHubSecret() == null) {
+            feed.setHubSecret(UUID.randomUUID().toString());
+        }
+        HubSubscriptionRequestedEvent hubSubscriptionRequestedEvent = new HubSubscriptionRequestedEvent();
+        hubSubscriptionRequestedEvent.setHubUrl(feed.getHubUrl());
+        hubSubscriptionRequestedEvent.setTopic(feed.getHubTopic() != null ? feed.getHubTopic() : feed.getRssUrl());
+        hubSubscriptionRequestedEvent.setCallbackUrl(StringUtils.removeEnd(callbackUrlConfig.getValue(), "/") + WebSubUtil.getCallbackPath(feed.getId()));
+        hubSubscriptionRequestedEvent.setSecret(feed.getHubSecret());
+        AppContext.getInstance().getAsyncEventBus().post(hubSubscriptionRequestedEvent);
+    }
+
+    /**
+     * Schedule the next fetch of a successfully synchronized feed according to the frequency of new articles.
+     * Feeds pushed by a WebSub hub are only polled as a safety net.
+     * 
+     * @param feed Feed
+     */
+    private void scheduleNextFetch(Feed feed) {
+        Date now = new Date();
+        feed.setErrorCount(0);
+        if (feed.getHubLeaseDate() != null && feed.getHubLeaseDate().after(now)) {
+            feed.setNextFetchDate(FeedScheduleUtil.getPushedNextFetchDate(now, feed.getHubLeaseDate()));
+            return;
+        }
+        Date articleCountDateMin = new DateTime(now).minusDays(FeedScheduleUtil.ARTICLE_FREQUENCY_PERIOD).toDate();
+        int articleCount = new ArticleDao().getArticleCount(feed.getId(), articleCountDateMin);
+        feed.setNextFetchDate(FeedScheduleUtil.getNextFetchDate(now, feed.getUpdatePeriod(), articleCount));
+    }
+
+    /**
+     * Add missing data to articles after parsing, and sanitize their content.
+     * The articles whose raw contents didn't change since the last synchronization are not sanitized.
      *
-     * @param articleList The list of articles
+     * @param rssReader Parsed feed
+     * @param rawHashMap Hashes of the raw contents of the known articles by GUID, or null if unknown
+     * @return GUIDs of the articles left unsanitized
      */
-    private void completeArticleList(List<Article> articleList) {
-        for (Article article : articleList) {
+    private Set<String> sanitizeFeed(RssReader rssReader, Map<String, String> rawHashMap) {
+        Feed feed = rssReader.getFeed();
+        ArticleSanitizer sanitizer = new ArticleSanitizer();
+        Set<String> unchangedGuidSet = new HashSet<String>();
+        for (Article article : rssReader.getArticleList()) {
             Date now = new Date();
             if (article.getPublicationDate() == null || article.getPublicationDate().after(now)) {
                 article.setPublicationDate(now);
             }
+            article.setRawHash(getRawHash(UrlUtil.getBaseUri(feed, article), article));
+            if (rawHashMap != null && article.getRawHash().equals(rawHashMap.get(article.getGuid()))) {
+                unchangedGuidSet.add(article.getGuid());
+                continue;
+            }
+            sanitizeArticle(feed, article, sanitizer);
         }
+        return unchangedGuidSet;
+    }
+
+    /**
+     * Sanitize the content of an article.
+     *
+     * @param feed Parsed feed
+     * @param article Parsed article
+     * @param sanitizer Sanitizer
+     */
+    private void sanitizeArticle(Feed feed, Article article, ArticleSanitizer sanitizer) {
+        article.setTitle(StringUtils.abbreviate(TextSanitizer.sanitize(article.getTitle()), 4000));
+        article.setCreator(StringUtils.abbreviate(article.getCreator(), 200));
+        String baseUri = UrlUtil.getBaseUri(feed, article);
+        article.setDescription(sanitizer.sanitize(baseUri, article.getDescription()));
+    }
+
+    /**
+     * Returns the hash of the contents of an article before sanitization.
+     *
+     * @param baseUri Base URI of the relative links
+     * @param article Parsed article
+     * @return Hash
+     */
+    private String getRawHash(String baseUri, Article article) {
+        return Hashing.sha1().newHasher()
+                .putString(Strings.nullToEmpty(baseUri)).putChar('\0')
+                .putString(Strings.nullToEmpty(article.getTitle())).putChar('\0')
+                .putString(Strings.nullToEmpty(article.getDescription()))
+                .hash().toString();
     }
 
     /**
@@ -364,7 +973,9 @@ public class FeedService extends AbstractScheduledService {
         Date dateMin = new DateTime().withFieldAdded(DurationFieldType.days(), -1).toDate();
         for (ArticleDto newerLocalArticle : newerLocalArticles) {
             if (!newerArticleGuids.contains(newerLocalArticle.getGuid()) && newerLocalArticle.getCreateDate().after(dateMin)) {
-                removedArticleList.add(new Article(newerLocalArticle.getId()));
+                Article removedArticle = new Article(newerLocalArticle.getId());
+                removedArticle.setFeedId(newerLocalArticle.getFeedId());
+                removedArticleList.add(removedArticle);
             }
         }
         
@@ -405,45 +1016,73 @@ public class FeedService extends AbstractScheduledService {
     }
 
     /**
-     * Parse a page containing a RSS or Atom feed, or HTML linking to a feed.
+     * Download a feed, or a page linking to a feed.
      * 
-     * @param url Url to parse
+     * @param url Url to download
+     * @param etag Entity tag of the last fetch, or null
+     * @param lastModified Last modification date of the last fetch, or null
+     * @param timeout Timeout of each request (in milliseconds)
+     * @return Downloaded content, or null if the feed was not modified since the last fetch
+     */
+    private FetchedFeed fetchFeed(String url, String etag, String lastModified, int timeout) throws Exception {
+        final Hasher hasher = Hashing.sha1().newHasher();
+        ReaderHttpClient<byte[]> httpClient = new ReaderHttpClient<byte[]>() {
+            
+            @Override
+            public byte[] process(InputStream is) throws Exception {
+                // Hash the uncompressed content while it is downloaded
+                InputStream uncompressedIs = StreamUtil.limit(StreamUtil.detectGzip(is), ReaderHttpClient.getMaxBodySize());
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int length = uncompressedIs.read(buffer); length >= 0; length = uncompressedIs.read(buffer)) {
+                    os.write(buffer, 0, length);
+                    hasher.putBytes(buffer, 0, length);
+                }
+                return os.toByteArray();
+            }
+        };
+        httpClient.setTimeout(timeout);
+        httpClient.setIfNoneMatch(etag);
+        httpClient.setIfModifiedSince(lastModified);
+        byte[] content = httpClient.open(new URL(url));
+        if (httpClient.isNotModified()) {
+            return null;
+        }
+        return new FetchedFeed(url, content, hasher.hash().toString(), httpClient.getEtag(), httpClient.getLastModified());
+    }
+
+    /**
+     * Parse a downloaded RSS or Atom feed, or HTML page linking to a feed.
+     * 
+     * @param fetchedFeed Downloaded content
+     * @param knownGuidSet GUIDs of the articles already known, or null to read the whole feed
      * @param parsePage If true, try to parse the resource as an HTML page linking to a feed
+     * @param timeout Timeout of each request (in milliseconds)
      * @return Reader
      */
-    private RssReader parseFeedOrPage(String url, boolean parsePage) throws Exception {
+    private RssReader parseFeedOrPage(FetchedFeed fetchedFeed, Set<String> knownGuidSet, boolean parsePage, int timeout) throws Exception {
+        String url = fetchedFeed.url;
         try {
-            final RssReader reader = new RssReader();
-            new ReaderHttpClient() {
-                
-                @Override
-                public Void process(InputStream is) throws Exception {
-                    reader.readRssFeed(is);
-                    return null;
-                }
-            }.open(new URL(url));
+            RssReader reader = knownGuidSet != null ? new RssReader(knownGuidSet) : new RssReader();
+            readRssFeed(reader, url, new ByteArrayInputStream(fetchedFeed.content));
             reader.getFeed().setRssUrl(url);
+            reader.getFeed().setEtag(fetchedFeed.etag);
+            reader.getFeed().setContentHash(fetchedFeed.contentHash);
+            reader.getFeed().setLastModified(fetchedFeed.lastModified);
             return reader;
         } catch (Exception eRss) {
-            boolean recoverable = !(eRss instanceof UnknownHostException ||
-                    eRss instanceof FileNotFoundException);
-            if (parsePage && recoverable) {
+            if (parsePage) {
                 try {
-                    final RssExtractor extractor = new RssExtractor(url);
-                    new ReaderHttpClient() {
-                        
-                        @Override
-                        public Void process(InputStream is) throws Exception {
-                            extractor.readPage(is);
-                            return null;
-                        }
-                    }.open(new URL(url));
+                    RssExtractor extractor = new RssExtractor(url);
+                    extractor.readPage(new ByteArrayInputStream(fetchedFeed.content));
                     List<String> feedList = extractor.getFeedList();
                     if (feedList == null || feedList.isEmpty()) {
                         logParsingError(url, eRss);
                     }
+                    
+                    // The page links to a feed, download it right away
                     String feed = new FeedChooserStrategy().guess(feedList);
-                    return parseFeedOrPage(feed, false);
+                    return parseFeedOrPage(fetchFeed(feed, null, null, timeout), null, false, timeout);
                 } catch (Exception ePage) {
                     logParsingError(url, ePage);
                 }
@@ -455,7 +1094,23 @@ public class FeedService extends AbstractScheduledService {
         }
     }
     
-    private void logParsingError(String url, Exception e) {
+    /**
+     * Read a feed, starting with the date formats learned from its previous version.
+     * 
+     * @param reader Reader
+     * @param url RSS url of the feed
+     * @param is Content of the feed
+     */
+    private void readRssFeed(RssReader reader, String url, InputStream is) throws Exception {
+        int[] dateFormats = dateFormatCache.getIfPresent(url);
+        if (dateFormats != null) {
+            reader.setDateFormats(dateFormats);
+        }
+        reader.readRssFeed(is);
+        dateFormatCache.put(url, reader.getDateFormats());
+    }
+    
+    private void logParsingError(String url, Throwable e) {
         if (log.isWarnEnabled()) {
             if (e instanceof UnknownHostException ||
                     e instanceof FileNotFoundException ||
@@ -498,4 +1153,153 @@ public class FeedService extends AbstractScheduledService {
         FeedSubscriptionDao feedSubscriptionDao = new FeedSubscriptionDao();
         feedSubscriptionDao.updateUnreadCount(feedSubscription.getId(), feedSubscription.getUnreadCount());
     }
+    
+    /**
+     * Feed waiting for its host to accept requests again.
+     */
+    private static class ThrottledFeed implements Delayed {
+        /**
+         * Feed.
+         */
+        private final FeedDto feed;
+        
+        /**
+         * Time at which the feed can be fetched.
+         */
+        private final long readyTime;
+        
+        /**
+         * Constructor of ThrottledFeed.
+         * 
+         * @param feed Feed
+         * @param delay Delay before the feed can be fetched (in milliseconds)
+         */
+        private ThrottledFeed(FeedDto feed, long delay) {
+            this.feed = feed;
+            this.readyTime = System.currentTimeMillis() + delay;
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+    
+    /**
+     * Downloaded feed, waiting to be parsed.
+     */
+    private static class FetchedFeed {
+        /**
+         * URL of the feed.
+         */
+        private final String url;
+        
+        /**
+         * Content of the feed.
+         */
+        private final byte[] content;
+        
+        /**
+         * SHA-1 hash of the content.
+         */
+        private final String contentHash;
+        
+        /**
+         * Entity tag returned by the server.
+         */
+        private final String etag;
+        
+        /**
+         * Last modification date returned by the server.
+         */
+        private final String lastModified;
+        
+        /**
+         * Constructor of FetchedFeed.
+         * 
+         * @param url URL of the feed
+         * @param content Content of the feed
+         * @param contentHash SHA-1 hash of the content
+         * @param etag Entity tag returned by the server
+         * @param lastModified Last modification date returned by the server
+         */
+        private FetchedFeed(String url, byte[] content, String contentHash, String etag, String lastModified) {
+            this.url = url;
+            this.content = content;
+            this.contentHash = contentHash;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+    
+    /**
+     * Feed going through the stages of the synchronization pipeline.
+     */
+    private static class StagedFeed {
+        /**
+         * Feed to synchronize.
+         */
+        private final FeedDto feed;
+        
+        /**
+         * Synchronization result.
+         */
+        private final FeedSynchronization feedSynchronization = new FeedSynchronization();
+        
+        /**
+         * The feed is failing, and only probed.
+         */
+        private final boolean probe;
+        
+        /**
+         * Start time of the synchronization.
+         */
+        private long startTime = System.currentTimeMillis();
+        
+        /**
+         * The host of the feed didn't accept more requests.
+         */
+        private boolean throttled;
+        
+        /**
+         * Downloaded feed, or null if not modified.
+         */
+        private FetchedFeed fetchedFeed;
+        
+        /**
+         * Parsed feed, or null if not modified.
+         */
+        private RssReader rssReader;
+        
+        /**
+         * GUIDs of the parsed articles left unsanitized, because their raw contents didn't change.
+         */
+        private Set<String> unchangedGuidSet;
+        
+        /**
+         * Constructor of StagedFeed.
+         * 
+         * @param feed Feed to synchronize
+         */
+        private StagedFeed(FeedDto feed) {
+            this.feed = feed;
+            this.probe = FeedScheduleUtil.isCircuitBreakerOpen(feed.getErrorCount());
+            feedSynchronization.setFeedId(feed.getId());
+            feedSynchronization.setSuccess(true);
+        }
+        
+        /**
+         * Returns the timeout of each request.
+         * 
+         * @return Timeout (in milliseconds)
+         */
+        private int getTimeout() {
+            return probe ? PROBE_TIMEOUT : ReaderHttpClient.DEFAULT_TIMEOUT;
+        }
+    }
 }
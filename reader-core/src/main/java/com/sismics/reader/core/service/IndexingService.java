@@ -1,34 +1,55 @@
 package com.sismics.reader.core.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.sismics.reader.core.constant.Constants;
+import com.sismics.reader.core.dao.jpa.FeedSubscriptionDao;
 import com.sismics.reader.core.dao.jpa.UserArticleDao;
 import com.sismics.reader.core.dao.jpa.criteria.UserArticleCriteria;
 import com.sismics.reader.core.dao.jpa.dto.UserArticleDto;
 import com.sismics.reader.core.dao.lucene.ArticleDao;
+import com.sismics.reader.core.dao.lucene.ArticleSearch;
+import com.sismics.reader.core.dao.lucene.FeedFilter;
+import com.sismics.reader.core.dao.lucene.LiveArticleDocuments;
+import com.sismics.reader.core.dao.lucene.ReaderStandardAnalyzer;
+import com.sismics.reader.core.event.CatchUpIndexAsyncEvent;
 import com.sismics.reader.core.event.RebuildIndexAsyncEvent;
 import com.sismics.reader.core.model.context.AppContext;
 import com.sismics.reader.core.model.jpa.Article;
 import com.sismics.reader.core.model.jpa.UserArticle;
 import com.sismics.reader.core.util.DirectoryUtil;
-import com.sismics.reader.core.util.TransactionUtil;
 import com.sismics.reader.core.util.jpa.PaginatedList;
 import com.sismics.reader.core.util.jpa.PaginatedLists;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.store.RAMDirectory;
-import org.apache.lucene.store.SimpleFSDirectory;
 import org.apache.lucene.store.SimpleFSLockFactory;
+import org.apache.lucene.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Indexing service.
@@ -41,15 +62,122 @@ public class IndexingService extends AbstractScheduledService {
      */
     private static final Logger log = LoggerFactory.getLogger(IndexingService.class);
 
+    /**
+     * Maximum number of index writes between 2 commits.
+     */
+    private static final int COMMIT_WRITE_MAX = 100;
+    
+    /**
+     * Maximum delay between 2 commits (in milliseconds).
+     */
+    private static final long COMMIT_DELAY = 60000;
+    
     /**
      * Lucene directory.
      */
     private Directory directory;
     
     /**
-     * Index reader.
+     * Delay before the high-water mark from which the index catches up (in milliseconds).
+     * The index events are posted before the end of their transaction, and the feeds are synchronized in parallel,
+     * so the articles are not always indexed in the order of their update dates.
+     */
+    private static final long CATCH_UP_MARGIN = 600000;
+    
+    /**
+     * Key of the update date of the high-water mark in the commit data.
+     */
+    private static final String COMMIT_DATA_UPDATE_DATE = "updateDate";
+    
+    /**
+     * Key of the article ID of the high-water mark in the commit data.
+     */
+    private static final String COMMIT_DATA_ARTICLE_ID = "articleId";
+    
+    /**
+     * Key of the version of the documents in the commit data.
+     */
+    private static final String COMMIT_DATA_VERSION = "version";
+    
+    /**
+     * Version of the documents, an index with other documents is rebuilt at startup.
+     */
+    private static final String INDEX_VERSION = "4";
+    
+    /**
+     * Maximum number of users having a cached feed filter.
+     */
+    private static final int FEED_FILTER_CACHE_SIZE = 1000;
+    
+    /**
+     * Maximum number of searches in the cache.
+     */
+    private static final int SEARCH_CACHE_SIZE = 1000;
+    
+    /**
+     * Update date of the last indexed article, or null if the index is not up to date.
      */
-    private DirectoryReader directoryReader;
+    private Date highWaterMarkDate;
+    
+    /**
+     * ID of the last indexed article.
+     */
+    private String highWaterMarkId;
+    
+    /**
+     * Index writer, opened for the lifetime of the service, and reopened after a rollback.
+     */
+    private volatile IndexWriter indexWriter;
+    
+    /**
+     * Manager of the searchers, refreshed in the background from the index writer.
+     */
+    private volatile SearcherManager searcherManager;
+    
+    /**
+     * Documents written since the last refresh of the searchers.
+     */
+    private volatile LiveArticleDocuments liveArticleDocuments;
+    
+    /**
+     * Commit data caught up after the last rollback, so that a write failing again is not caught up forever.
+     */
+    private Map<String, String> rollbackCommitData;
+    
+    /**
+     * Number of index writes since the last commit.
+     */
+    private final AtomicInteger uncommittedWriteCount = new AtomicInteger();
+    
+    /**
+     * Lock preventing the searchers from being refreshed while the index is replaced.
+     */
+    private final Object refreshLock = new Object();
+    
+    /**
+     * Filters of the articles of the feeds subscribed by each user.
+     */
+    private final Cache<String, FeedFilter> feedFilterCache = CacheBuilder.newBuilder()
+            .maximumSize(FEED_FILTER_CACHE_SIZE)
+            .build();
+    
+    /**
+     * First results of the searches, by index reader version, user and query.
+     */
+    private final Cache<String, ArticleSearch> searchCache = CacheBuilder.newBuilder()
+            .maximumSize(SEARCH_CACHE_SIZE)
+            .recordStats()
+            .build();
+    
+    /**
+     * Version of the index reader of the searches in the cache.
+     */
+    private final AtomicLong searchCacheVersion = new AtomicLong();
+    
+    /**
+     * Date of the last commit (in milliseconds).
+     */
+    private volatile long lastCommitTime = System.currentTimeMillis();
     
     /**
      * Lucene storage config.
@@ -61,29 +189,76 @@ public class IndexingService extends AbstractScheduledService {
     }
 
     @Override
-    protected void startUp() {
-        // RAM directory storage by default
-        if (luceneStorageConfig == null || luceneStorageConfig.equals(Constants.LUCENE_DIRECTORY_STORAGE_RAM)) {
+    protected void startUp() throws IOException {
+        if (Constants.LUCENE_DIRECTORY_STORAGE_RAM.equals(luceneStorageConfig)) {
             directory = new RAMDirectory();
             log.info("Using RAM Lucene storage");
-        } else if (luceneStorageConfig.equals(Constants.LUCENE_DIRECTORY_STORAGE_FILE)) {
+        } else {
+            // File storage by default, the index stays off the heap and survives restarts
             File luceneDirectory = DirectoryUtil.getLuceneDirectory();
-            log.info("Using file Lucene storage: {}", luceneDirectory);
             try {
-                directory = new SimpleFSDirectory(luceneDirectory, new SimpleFSLockFactory());
+                if (Constants.LUCENE_DIRECTORY_STORAGE_MMAP.equals(luceneStorageConfig)) {
+                    directory = new MMapDirectory(luceneDirectory, new SimpleFSLockFactory());
+                } else if (Constants.LUCENE_DIRECTORY_STORAGE_NIOFS.equals(luceneStorageConfig)) {
+                    directory = new NIOFSDirectory(luceneDirectory, new SimpleFSLockFactory());
+                } else {
+                    directory = FSDirectory.open(luceneDirectory, new SimpleFSLockFactory());
+                }
+                log.info("Using file Lucene storage: {} ({})", luceneDirectory, directory.getClass().getSimpleName());
             } catch (IOException e) {
-                log.error("Error initializing Lucene index", e);
+                // Nothing can be indexed nor searched without the index
+                throw new IOException(MessageFormat.format("Error initializing Lucene index in {0}", luceneDirectory), e);
+            }
+        }
+        
+        // Open the index writer once, the searchers see its changes without a commit
+        try {
+            // The lock can only be left by a previous process that didn't close its writer
+            if (IndexWriter.isLocked(directory)) {
+                IndexWriter.unlock(directory);
             }
+            openIndexWriter();
+        } catch (IOException e) {
+            log.error("Error opening the index writer", e);
+        }
+    }
+    
+    /**
+     * Opens the index writer and its searchers, and reads the high-water mark of the last commit.
+     */
+    private void openIndexWriter() throws IOException {
+        indexWriter = new IndexWriter(directory, newIndexWriterConfig());
+        
+        // Read the high-water mark of the last commit, a new index has none
+        Map<String, String> commitData = indexWriter.getCommitData();
+        highWaterMarkDate = null;
+        highWaterMarkId = null;
+        if (INDEX_VERSION.equals(commitData.get(COMMIT_DATA_VERSION)) && commitData.containsKey(COMMIT_DATA_UPDATE_DATE)) {
+            highWaterMarkDate = new Date(Long.parseLong(commitData.get(COMMIT_DATA_UPDATE_DATE)));
+            highWaterMarkId = commitData.get(COMMIT_DATA_ARTICLE_ID);
         }
+        searcherManager = new SearcherManager(indexWriter, true, null);
+        liveArticleDocuments = new LiveArticleDocuments(searcherManager);
     }
 
     @Override
     protected void shutDown() {
-        if (directoryReader != null) {
+        if (liveArticleDocuments != null) {
+            liveArticleDocuments.close();
+        }
+        if (searcherManager != null) {
             try {
-                directoryReader.close();
+                searcherManager.close();
             } catch (IOException e) {
-                log.error("Error closing the index reader", e);
+                log.error("Error closing the searcher manager", e);
+            }
+        }
+        if (indexWriter != null) {
+            try {
+                // Closing the writer commits the pending changes
+                indexWriter.close();
+            } catch (IOException e) {
+                log.error("Error closing the index writer", e);
             }
         }
         if (directory != null) {
@@ -97,14 +272,192 @@ public class IndexingService extends AbstractScheduledService {
     
     @Override
     protected void runOneIteration() throws Exception {
-        TransactionUtil.handle(() -> {
-            // NOP
-        });
+        if (searcherManager == null) {
+            return;
+        }
+        try {
+            // Make the latest writes visible to the searches
+            synchronized (refreshLock) {
+                searcherManager.maybeRefresh();
+            }
+            
+            if (uncommittedWriteCount.get() > 0 && System.currentTimeMillis() - lastCommitTime >= COMMIT_DELAY) {
+                commit();
+            }
+        } catch (Exception e) {
+            log.error("Error refreshing the index", e);
+        }
     }
     
     @Override
     protected Scheduler scheduler() {
-        return Scheduler.newFixedDelaySchedule(0, 1, TimeUnit.HOURS);
+        return Scheduler.newFixedDelaySchedule(0, 1, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Notifies the service of a write to the index.
+     * The index is committed after a number of writes, or by the background refresh after a delay.
+     */
+    public void onIndexWritten() {
+        try {
+            if (uncommittedWriteCount.incrementAndGet() >= COMMIT_WRITE_MAX) {
+                commit();
+            }
+        } catch (IOException e) {
+            log.error("Error committing the index", e);
+        }
+    }
+    
+    /**
+     * Discards the writes since the last commit after a failed write, so that a partial write is never committed.
+     * The index writer is reopened, and the discarded writes are caught up from the database.
+     */
+    public synchronized void rollback() {
+        synchronized (refreshLock) {
+            SearcherManager previousSearcherManager = searcherManager;
+            LiveArticleDocuments previousLiveArticleDocuments = liveArticleDocuments;
+            try {
+                indexWriter.rollback();
+            } catch (IOException e) {
+                log.error("Error rolling back the index writer", e);
+            }
+            uncommittedWriteCount.set(0);
+            try {
+                openIndexWriter();
+            } catch (IOException e) {
+                log.error("Error reopening the index writer", e);
+                return;
+            }
+            previousLiveArticleDocuments.close();
+            try {
+                // The searchers in use keep their reader until they are released
+                previousSearcherManager.close();
+            } catch (IOException e) {
+                log.error("Error closing the searcher manager", e);
+            }
+        }
+        
+        Map<String, String> commitData = indexWriter.getCommitData();
+        if (commitData.equals(rollbackCommitData)) {
+            // Caught up from this commit already, the next startup will catch up again
+            log.error("Another write failed since the last catch up, the index will be caught up at the next startup");
+            return;
+        }
+        rollbackCommitData = commitData;
+        catchUpIndex();
+    }
+    
+    /**
+     * Makes all the writes visible to the searches, without waiting for the background refresh.
+     */
+    public void refresh() throws IOException {
+        synchronized (refreshLock) {
+            searcherManager.maybeRefreshBlocking();
+        }
+    }
+    
+    /**
+     * Records the last article created, updated or deleted in the index.
+     * The high-water mark is saved with the next commit.
+     * 
+     * @param updateDate Update date of the article
+     * @param articleId Article ID
+     */
+    public synchronized void updateHighWaterMark(Date updateDate, String articleId) {
+        if (highWaterMarkDate == null || highWaterMarkDate.before(updateDate)
+                || highWaterMarkDate.equals(updateDate) && highWaterMarkId.compareTo(articleId) < 0) {
+            highWaterMarkDate = updateDate;
+            highWaterMarkId = articleId;
+        }
+    }
+    
+    /**
+     * Returns a new configuration of the index writers.
+     * 
+     * @return Index writer configuration
+     */
+    public IndexWriterConfig newIndexWriterConfig() {
+        return new IndexWriterConfig(Version.LUCENE_42, new ReaderStandardAnalyzer(Version.LUCENE_42));
+    }
+    
+    /**
+     * Creates an empty directory to rebuild the index into.
+     * 
+     * @return Directory
+     */
+    public Directory createRebuildDirectory() throws IOException {
+        if (directory instanceof RAMDirectory) {
+            return new RAMDirectory();
+        }
+        Directory rebuildDirectory = FSDirectory.open(DirectoryUtil.getLuceneRebuildDirectory(), new SimpleFSLockFactory());
+        deleteFiles(rebuildDirectory);
+        return rebuildDirectory;
+    }
+    
+    /**
+     * Deletes a directory created by createRebuildDirectory().
+     * 
+     * @param rebuildDirectory Directory
+     */
+    public void deleteRebuildDirectory(Directory rebuildDirectory) {
+        try {
+            deleteFiles(rebuildDirectory);
+            rebuildDirectory.close();
+        } catch (IOException e) {
+            log.error("Error deleting the rebuilt index", e);
+        }
+    }
+    
+    /**
+     * Deletes the files of a directory.
+     * 
+     * @param directory Directory
+     */
+    private static void deleteFiles(Directory directory) throws IOException {
+        if (IndexWriter.isLocked(directory)) {
+            IndexWriter.unlock(directory);
+        }
+        for (String file : directory.listAll()) {
+            directory.deleteFile(file);
+        }
+    }
+    
+    /**
+     * Replaces the content of the index by a rebuilt index, and commits it.
+     * The searchers are only refreshed once the new content is complete.
+     * The high-water mark is set to the start of the rebuild, so that the writes discarded by the swap are caught up.
+     * 
+     * @param rebuildDirectory Directory of the rebuilt index
+     * @param startDate Start date of the rebuild
+     */
+    public synchronized void replaceIndex(Directory rebuildDirectory, Date startDate) throws IOException {
+        synchronized (refreshLock) {
+            indexWriter.deleteAll();
+            indexWriter.addIndexes(rebuildDirectory);
+            highWaterMarkDate = startDate;
+            highWaterMarkId = "";
+            commit();
+            searcherManager.maybeRefreshBlocking();
+        }
+    }
+    
+    /**
+     * Commits the pending changes of the index writer.
+     */
+    private synchronized void commit() throws IOException {
+        int writeCount = uncommittedWriteCount.getAndSet(0);
+        if (highWaterMarkDate != null) {
+            Map<String, String> commitData = new HashMap<String, String>();
+            commitData.put(COMMIT_DATA_UPDATE_DATE, String.valueOf(highWaterMarkDate.getTime()));
+            commitData.put(COMMIT_DATA_ARTICLE_ID, highWaterMarkId);
+            commitData.put(COMMIT_DATA_VERSION, INDEX_VERSION);
+            indexWriter.setCommitData(commitData);
+        }
+        indexWriter.commit();
+        lastCommitTime = System.currentTimeMillis();
+        if (log.isDebugEnabled()) {
+            log.debug(MessageFormat.format("Index committed after {0} writes", writeCount));
+        }
     }
     
     /**
@@ -117,12 +470,12 @@ public class IndexingService extends AbstractScheduledService {
      * @return List of articles
      */
     public PaginatedList<UserArticleDto> searchArticles(String userId, String searchQuery, Integer offset, Integer limit) throws Exception {
-        // Search articles
+        // Search the articles of the subscribed feeds, the index gives the page and the total
         ArticleDao articleDao = new ArticleDao();
         PaginatedList<UserArticleDto> paginatedList = PaginatedLists.create(limit, offset);
-        Map<String, Article> articleMap = null;
-        articleMap = articleDao.search(paginatedList, searchQuery);
+        Map<String, Article> articleMap = articleDao.search(paginatedList, searchQuery, getFeedFilter(userId), userId);
         
+        List<UserArticleDto> userArticleDtoList = new ArrayList<UserArticleDto>();
         if (articleMap.size() > 0) {
             // Get linked UserArticle from database
             UserArticleCriteria userArticleCriteria = new UserArticleCriteria()
@@ -131,12 +484,20 @@ public class IndexingService extends AbstractScheduledService {
                     .setArticleIdIn(Lists.newArrayList(articleMap.keySet()));
             
             UserArticleDao userArticleDao = new UserArticleDao();
-            PaginatedList<UserArticleDto> userArticledList = PaginatedLists.create(paginatedList.getLimit(), 0);
+            PaginatedList<UserArticleDto> userArticledList = PaginatedLists.create(articleMap.size(), 0);
             userArticleDao.findByCriteria(userArticledList, userArticleCriteria, null, null);
-            paginatedList.setResultList(userArticledList.getResultList());
+            Map<String, UserArticleDto> userArticleDtoMap = new HashMap<String, UserArticleDto>();
+            for (UserArticleDto userArticleDto : userArticledList.getResultList()) {
+                userArticleDtoMap.put(userArticleDto.getArticleId(), userArticleDto);
+            }
             
-            for (UserArticleDto userArticleDto : paginatedList.getResultList()) {
-                Article article = articleMap.get(userArticleDto.getArticleId());
+            // Keep the order of the index
+            for (Article article : articleMap.values()) {
+                UserArticleDto userArticleDto = userArticleDtoMap.get(article.getId());
+                if (userArticleDto == null) {
+                    // Deleted since the last refresh of the index
+                    continue;
+                }
                 if (article.getTitle() != null) {
                     userArticleDto.setArticleTitle(article.getTitle());
                 }
@@ -154,14 +515,68 @@ public class IndexingService extends AbstractScheduledService {
                     userArticleDto.setId(userArticleId);
                     userArticleDto.setReadTimestamp(userArticle.getReadDate().getTime());
                 }
+                userArticleDtoList.add(userArticleDto);
             }
-        } else {
-            paginatedList.setResultList(new ArrayList<UserArticleDto>());
         }
+        paginatedList.setResultList(userArticleDtoList);
         
         return paginatedList;
     }
     
+    /**
+     * Returns the filter of the articles of the feeds subscribed by a user.
+     * The filter is cached until the subscriptions of the user change, and caches its matches per segment.
+     * 
+     * @param userId User ID
+     * @return Filter
+     */
+    private FeedFilter getFeedFilter(final String userId) throws ExecutionException {
+        return feedFilterCache.get(userId, () -> new FeedFilter(new FeedSubscriptionDao().findFeedIdByUser(userId)));
+    }
+    
+    /**
+     * Forgets the filter of the feeds subscribed by a user.
+     * 
+     * @param userId User ID
+     */
+    public void invalidateFeedFilter(String userId) {
+        feedFilterCache.invalidate(userId);
+        
+        // The searches of the user were filtered on the previous subscriptions
+        String cacheKey = "\n" + userId + "\n";
+        for (String searchCacheKey : searchCache.asMap().keySet()) {
+            if (searchCacheKey.contains(cacheKey)) {
+                searchCache.invalidate(searchCacheKey);
+            }
+        }
+    }
+    
+    /**
+     * Returns the cache of the searches, emptied when a new index reader is searched.
+     * The searches are keyed by reader version, so that a search racing with the emptying is never served
+     * with the documents of another reader.
+     * 
+     * @param searcher Searcher
+     * @return Cache of the searches
+     */
+    public Cache<String, ArticleSearch> getSearchCache(IndexSearcher searcher) {
+        long version = ((DirectoryReader) searcher.getIndexReader()).getVersion();
+        long cacheVersion = searchCacheVersion.get();
+        if (version > cacheVersion && searchCacheVersion.compareAndSet(cacheVersion, version)) {
+            searchCache.invalidateAll();
+        }
+        return searchCache;
+    }
+    
+    /**
+     * Returns the statistics of the cache of the searches.
+     * 
+     * @return Statistics
+     */
+    public CacheStats getSearchCacheStats() {
+        return searchCache.stats();
+    }
+    
     /**
      * Destroy and rebuild Lucene index.
      * 
@@ -171,6 +586,22 @@ public class IndexingService extends AbstractScheduledService {
         AppContext.getInstance().getAsyncEventBus().post(rebuildIndexAsyncEvent);
     }
 
+    /**
+     * Catches up with the articles created, updated or deleted since the last commit of the index.
+     * The index is rebuilt if it has no high-water mark.
+     */
+    public synchronized void catchUpIndex() {
+        if (highWaterMarkDate == null) {
+            // A new index, or an index from a previous version
+            log.info("No high-water mark in the Lucene index, rebuilding it from the database");
+            AppContext.getInstance().getAsyncEventBus().post(new RebuildIndexAsyncEvent());
+        } else {
+            CatchUpIndexAsyncEvent catchUpIndexAsyncEvent = new CatchUpIndexAsyncEvent();
+            catchUpIndexAsyncEvent.setUpdateDate(new Date(highWaterMarkDate.getTime() - CATCH_UP_MARGIN));
+            AppContext.getInstance().getAsyncEventBus().post(catchUpIndexAsyncEvent);
+        }
+    }
+
     /**
      * Getter of directory.
      *
@@ -181,34 +612,42 @@ public class IndexingService extends AbstractScheduledService {
     }
     
     /**
-     * Returns a valid directory reader.
-     * Take care of reopening the reader if the index has changed
-     * and closing the previous one.
+     * Getter of indexWriter.
      *
-     * @return the directoryReader
+     * @return indexWriter
      */
-    public DirectoryReader getDirectoryReader() {
-        if (directoryReader == null) {
-            if (!DirectoryReader.indexExists(directory)) {
-                log.info("Lucene directory not yet created");
-                return null;
-            }
-            try {
-                directoryReader = DirectoryReader.open(directory);
-            } catch (IOException e) {
-                log.error("Error creating the directory reader", e);
-            }
-        } else {
-            try {
-                DirectoryReader newReader = DirectoryReader.openIfChanged(directoryReader);
-                if (newReader != null) {
-                    directoryReader.close();
-                    directoryReader = newReader;
-                }
-            } catch (IOException e) {
-                log.error("Error while reopening the directory reader", e);
-            }
+    public IndexWriter getIndexWriter() {
+        return indexWriter;
+    }
+    
+    /**
+     * Getter of liveArticleDocuments.
+     *
+     * @return liveArticleDocuments
+     */
+    public LiveArticleDocuments getLiveArticleDocuments() {
+        return liveArticleDocuments;
+    }
+    
+    /**
+     * Acquires an up to date searcher, which must be released after use.
+     *
+     * @return Searcher
+     */
+    public IndexSearcher acquireSearcher() {
+        return searcherManager.acquire();
+    }
+    
+    /**
+     * Releases a searcher acquired by acquireSearcher().
+     *
+     * @param searcher Searcher
+     */
+    public void releaseSearcher(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.error("Error releasing the searcher", e);
         }
-        return directoryReader;
     }
 }
@@ -71,6 +71,15 @@ public class DirectoryUtil {
         return getDataSubDirectory("lucene");
     }
     
+    /**
+     * Returns the directory of the lucene index being rebuilt.
+     * 
+     * @return Lucene index rebuild directory.
+     */
+    public static File getLuceneRebuildDirectory() {
+        return getDataSubDirectory("lucene-rebuild");
+    }
+    
     /**
      * Returns the log directory.
      *
@@ -0,0 +1,138 @@
+package com.sismics.reader.core.util;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feed polling schedule utilities.
+ */
+public class FeedScheduleUtil {
+    /**
+     * Shortest delay between 2 fetches of a feed (in minutes).
+     */
+    public static final int MIN_FETCH_INTERVAL = 10;
+
+    /**
+     * Longest delay between 2 fetches of a healthy feed (in minutes).
+     */
+    public static final int MAX_FETCH_INTERVAL = 6 * 60;
+
+    /**
+     * Longest delay between 2 fetches of a failing feed (in minutes).
+     */
+    public static final int MAX_RETRY_INTERVAL = 24 * 60;
+
+    /**
+     * Delay between 2 safety fetches of a feed pushed by a WebSub hub (in minutes).
+     */
+    public static final int PUSHED_FETCH_INTERVAL = 24 * 60;
+
+    /**
+     * Period used to measure the frequency of new articles (in days).
+     */
+    public static final int ARTICLE_FREQUENCY_PERIOD = 7;
+
+    /**
+     * Number of consecutive synchronization errors after which the circuit breaker of a feed opens.
+     */
+    public static final int CIRCUIT_BREAKER_THRESHOLD = 5;
+
+    /**
+     * Returns the next fetch date of a feed after a successful synchronization.
+     * We try to fetch the feed twice between 2 articles, without polling more often than the publisher asks for.
+     *
+     * @param now Synchronization date
+     * @param updatePeriod Update period advertised by the feed (in minutes), or null
+     * @param articleCount Number of articles seen during the last {@link #ARTICLE_FREQUENCY_PERIOD} days
+     * @return Next fetch date
+     */
+    public static Date getNextFetchDate(Date now, Integer updatePeriod, int articleCount) {
+        long interval = MAX_FETCH_INTERVAL;
+        if (articleCount > 0) {
+            interval = TimeUnit.DAYS.toMinutes(ARTICLE_FREQUENCY_PERIOD) / articleCount / 2;
+        }
+        if (updatePeriod != null && updatePeriod > interval) {
+            interval = updatePeriod;
+        }
+        interval = Math.max(MIN_FETCH_INTERVAL, Math.min(MAX_FETCH_INTERVAL, interval));
+
+        return new Date(now.getTime() + TimeUnit.MINUTES.toMillis(interval));
+    }
+
+    /**
+     * Returns the next fetch date of a feed which content is pushed by a WebSub hub.
+     * The feed is only polled as a safety net, and at the latest when its subscription expires.
+     *
+     * @param now Synchronization date
+     * @param leaseDate End of the lease of the WebSub subscription
+     * @return Next fetch date
+     */
+    public static Date getPushedNextFetchDate(Date now, Date leaseDate) {
+        Date nextFetchDate = new Date(now.getTime() + TimeUnit.MINUTES.toMillis(PUSHED_FETCH_INTERVAL));
+        return leaseDate.before(nextFetchDate) ? leaseDate : nextFetchDate;
+    }
+
+    /**
+     * Returns the next fetch date of a feed after a synchronization error, with exponential backoff.
+     *
+     * @param now Synchronization date
+     * @param errorCount Number of consecutive synchronization errors (including this one)
+     * @return Next fetch date
+     */
+    public static Date getRetryDate(Date now, int errorCount) {
+        long interval = MAX_RETRY_INTERVAL;
+        if (errorCount < 16) {
+            interval = Math.min(MAX_RETRY_INTERVAL, (long) MIN_FETCH_INTERVAL << errorCount);
+        }
+
+        return new Date(now.getTime() + TimeUnit.MINUTES.toMillis(interval));
+    }
+
+    /**
+     * Returns true if the circuit breaker of a feed is open: the feed is considered dead, and is only probed
+     * when its next fetch date is reached.
+     *
+     * @param errorCount Number of consecutive synchronization errors
+     * @return Circuit breaker open
+     */
+    public static boolean isCircuitBreakerOpen(int errorCount) {
+        return errorCount >= CIRCUIT_BREAKER_THRESHOLD;
+    }
+
+    /**
+     * Converts a syndication module update period into minutes.
+     *
+     * @param updatePeriod Update period (hourly, daily, weekly, monthly, yearly)
+     * @param updateFrequency Number of updates per period, or null
+     * @return Update period in minutes, or null if unknown
+     */
+    public static Integer getSyndicationUpdatePeriod(String updatePeriod, Integer updateFrequency) {
+        if (updatePeriod == null) {
+            return null;
+        }
+        int minutes;
+        switch (updatePeriod.toLowerCase()) {
+            case "hourly":
+                minutes = 60;
+                break;
+            case "daily":
+                minutes = 24 * 60;
+                break;
+            case "weekly":
+                minutes = 7 * 24 * 60;
+                break;
+            case "monthly":
+                minutes = 30 * 24 * 60;
+                break;
+            case "yearly":
+                minutes = 365 * 24 * 60;
+                break;
+            default:
+                return null;
+        }
+        if (updateFrequency != null && updateFrequency > 0) {
+            minutes /= updateFrequency;
+        }
+        return minutes;
+    }
+}
@@ -1,16 +1,16 @@
 package com.sismics.reader.core.util;
 
-import com.sismics.reader.core.dao.lucene.ReaderStandardAnalyzer;
 import com.sismics.reader.core.model.context.AppContext;
+import com.sismics.reader.core.service.IndexingService;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Date;
 
 /**
  * Lucene utils.
@@ -23,51 +23,76 @@ public class LuceneUtil {
      */
     private static final Logger log = LoggerFactory.getLogger(LuceneUtil.class);
 
+    /**
+     * Memory used to buffer the documents of a rebuild (in MB).
+     */
+    private static final double REBUILD_RAM_BUFFER_SIZE = 64;
+
     /**
      * Encapsulate a process into a Lucene context.
+     * The index writer is shared, and the writes are serialized so that a rebuild is not interleaved with other writes.
      * 
      * @param runnable Runnable
      */
-    public static void handle(LuceneRunnable runnable) {
-        // Standard analyzer
-        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_42, new ReaderStandardAnalyzer(Version.LUCENE_42));
-        
-        // Merge sequentially, because Lucene writing is already done asynchronously 
-        config.setMergeScheduler(new SerialMergeScheduler());
-        
-        // Creating index writer
-        Directory directory = AppContext.getInstance().getIndexingService().getDirectory();
-        IndexWriter indexWriter = null;
-        try {
-            indexWriter = new IndexWriter(directory, config);
-        } catch (IOException e) {
-            log.error("Cannot create IndexWriter", e);
-        }
-
-        // Unlock index if needed
-        try {
-            if (IndexWriter.isLocked(directory)) {
-                IndexWriter.unlock(directory);
-            }
-        } catch (IOException e) {
-            log.error("Cannot unlock Lucene directory", e);
+    public static synchronized void handle(LuceneRunnable runnable) {
+        IndexingService indexingService = AppContext.getInstance().getIndexingService();
+        IndexWriter indexWriter = indexingService.getIndexWriter();
+        if (indexWriter == null) {
+            log.error("No index writer, the index is not updated");
+            return;
         }
         
         try {
             runnable.run(indexWriter);
         } catch (Exception e) {
+            // Don't commit a partial write with the next writes
             log.error("Error in running index writing transaction", e);
-            try {
-                indexWriter.rollback();
-            } catch (IOException e1) {
-                log.error("Cannot rollback index writing transaction", e1);
-            }
+            indexingService.rollback();
+            return;
         }
-        
+        indexingService.onIndexWritten();
+    }
+    
+    /**
+     * Rebuild the index into a side index, and swap it in when it is complete.
+     * The searches keep using the current index during the rebuild.
+     * The writes made during the rebuild are discarded by the swap, the articles updated since its start are caught up after it.
+     * 
+     * @param runnable Runnable filling the side index
+     */
+    public static void rebuild(LuceneRunnable runnable) {
+        IndexingService indexingService = AppContext.getInstance().getIndexingService();
+        Directory rebuildDirectory = null;
+        IndexWriter rebuildIndexWriter = null;
+        Date startDate = new Date();
         try {
-            indexWriter.close();
-        } catch (IOException e) {
-            log.error("Cannot close IndexWriter", e);
+            rebuildDirectory = indexingService.createRebuildDirectory();
+            IndexWriterConfig config = indexingService.newIndexWriterConfig()
+                    .setOpenMode(OpenMode.CREATE)
+                    .setRAMBufferSizeMB(REBUILD_RAM_BUFFER_SIZE);
+            rebuildIndexWriter = new IndexWriter(rebuildDirectory, config);
+            runnable.run(rebuildIndexWriter);
+            rebuildIndexWriter.close();
+            rebuildIndexWriter = null;
+            
+            // Swap the indexes between 2 writes
+            synchronized (LuceneUtil.class) {
+                indexingService.replaceIndex(rebuildDirectory, startDate);
+            }
+            indexingService.catchUpIndex();
+        } catch (Exception e) {
+            log.error("Error rebuilding the index", e);
+            if (rebuildIndexWriter != null) {
+                try {
+                    rebuildIndexWriter.rollback();
+                } catch (IOException e1) {
+                    log.error("Cannot rollback the rebuilt index", e1);
+                }
+            }
+        } finally {
+            if (rebuildDirectory != null) {
+                indexingService.deleteRebuildDirectory(rebuildDirectory);
+            }
         }
     }
     
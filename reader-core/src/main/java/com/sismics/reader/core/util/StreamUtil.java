@@ -1,8 +1,12 @@
 package com.sismics.reader.core.util;
 
+import com.google.common.io.ByteStreams;
+
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.text.MessageFormat;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -29,4 +33,49 @@ public class StreamUtil {
           return pb;
         }
     }
+
+    /**
+     * Limits the size of a stream, reading past the limit fails instead of truncating the content.
+     * 
+     * @param is InputStream
+     * @param maxSize Maximum size (in bytes)
+     * @return InputStream
+     */
+    public static InputStream limit(InputStream is, final long maxSize) {
+        return new FilterInputStream(ByteStreams.limit(is, maxSize + 1)) {
+            private long count;
+            
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int length = super.read(b, off, len);
+                if (length > 0) {
+                    count(length);
+                }
+                return length;
+            }
+            
+            @Override
+            public long skip(long n) throws IOException {
+                long length = super.skip(n);
+                count(length);
+                return length;
+            }
+            
+            private void count(long length) throws IOException {
+                count += length;
+                if (count > maxSize) {
+                    throw new IOException(MessageFormat.format("Stream larger than {0} bytes", maxSize));
+                }
+            }
+        };
+    }
 }
@@ -78,6 +78,7 @@ public class TransactionUtil {
                 } catch (Exception e) {
                     log.error("Error closing entity manager", e);
                 }
+                context.fireAllAsyncEvents();
             }
         }
     }
@@ -86,8 +87,10 @@ public class TransactionUtil {
      * Commits the current transaction, and flushes the changes to the database.
      */
     public static void commit() {
-        EntityTransaction tx = ThreadLocalContext.get().getEntityManager().getTransaction();
+        ThreadLocalContext context = ThreadLocalContext.get();
+        EntityTransaction tx = context.getEntityManager().getTransaction();
         tx.commit();
         tx.begin();
+        context.fireAllAsyncEvents();
     }
 }
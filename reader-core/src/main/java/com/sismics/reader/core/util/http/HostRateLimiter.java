@@ -0,0 +1,179 @@
+package com.sismics.reader.core.util.http;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of requests sent to each host, with a token bucket per host.
+ */
+public class HostRateLimiter {
+    /**
+     * Tokens added to each bucket per millisecond.
+     */
+    private final double tokensPerMillisecond;
+    
+    /**
+     * Maximum number of tokens in a bucket, i.e. the number of requests that can be sent in a burst.
+     */
+    private final double capacity;
+    
+    /**
+     * Delay between 2 removals of the idle buckets (in milliseconds).
+     */
+    private final long sweepDelay;
+    
+    /**
+     * Token buckets, by host.
+     */
+    private final Map<String, Bucket> bucketMap = new HashMap<String, Bucket>();
+    
+    /**
+     * Time of the last removal of the idle buckets.
+     */
+    private long sweepTime;
+    
+    /**
+     * Constructor of HostRateLimiter.
+     * 
+     * @param requestsPerMinute Sustained number of requests per minute to the same host
+     * @param burst Number of requests that can be sent in a burst to the same host
+     */
+    public HostRateLimiter(int requestsPerMinute, int burst) {
+        this.tokensPerMillisecond = (double) Math.max(1, requestsPerMinute) / TimeUnit.MINUTES.toMillis(1);
+        this.capacity = Math.max(1, burst);
+        this.sweepDelay = Math.max(TimeUnit.MINUTES.toMillis(1), (long) Math.ceil(capacity / tokensPerMillisecond));
+    }
+    
+    /**
+     * Takes a token for a request to a host, if available.
+     * 
+     * @param host Host
+     * @return 0 if the request can be sent now, otherwise the delay before trying again (in milliseconds)
+     */
+    public long acquire(String host) {
+        return acquire(host, System.currentTimeMillis());
+    }
+    
+    /**
+     * Returns the delay before a request to a host can be sent.
+     * 
+     * @param host Host
+     * @return Delay in milliseconds
+     */
+    public long getDelay(String host) {
+        return getDelay(host, System.currentTimeMillis());
+    }
+    
+    /**
+     * Blocks all requests to a host, after the server asked us to slow down.
+     * 
+     * @param host Host
+     * @param delay Delay before the next request (in milliseconds)
+     */
+    public void retryAfter(String host, long delay) {
+        retryAfter(host, delay, System.currentTimeMillis());
+    }
+    
+    synchronized long acquire(String host, long now) {
+        Bucket bucket = getBucket(host, now);
+        long delay = bucket.getDelay(now);
+        if (delay == 0) {
+            bucket.tokens -= 1;
+        }
+        return delay;
+    }
+    
+    synchronized long getDelay(String host, long now) {
+        return getBucket(host, now).getDelay(now);
+    }
+    
+    synchronized void retryAfter(String host, long delay, long now) {
+        Bucket bucket = getBucket(host, now);
+        bucket.blockedUntil = Math.max(bucket.blockedUntil, now + delay);
+    }
+    
+    /**
+     * Returns the refilled bucket of a host.
+     * 
+     * @param host Host
+     * @param now Current time
+     * @return Bucket
+     */
+    private Bucket getBucket(String host, long now) {
+        if (now - sweepTime >= sweepDelay) {
+            sweep(now);
+        }
+        Bucket bucket = bucketMap.get(host);
+        if (bucket == null) {
+            bucket = new Bucket();
+            bucket.tokens = capacity;
+            bucket.refillTime = now;
+            bucketMap.put(host, bucket);
+        } else if (now > bucket.refillTime) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refillTime) * tokensPerMillisecond);
+            bucket.refillTime = now;
+        }
+        return bucket;
+    }
+    
+    /**
+     * Removes the buckets refilled and not blocked anymore, which are the same as new buckets.
+     * 
+     * @param now Current time
+     */
+    private void sweep(long now) {
+        Iterator<Bucket> iterator = bucketMap.values().iterator();
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next();
+            if (bucket.blockedUntil <= now && bucket.tokens + (now - bucket.refillTime) * tokensPerMillisecond >= capacity) {
+                iterator.remove();
+            }
+        }
+        sweepTime = now;
+    }
+    
+    /**
+     * Returns the number of hosts having a bucket.
+     * 
+     * @return Number of hosts
+     */
+    synchronized int getHostCount() {
+        return bucketMap.size();
+    }
+    
+    /**
+     * Token bucket of a host.
+     */
+    private class Bucket {
+        /**
+         * Available tokens.
+         */
+        private double tokens;
+        
+        /**
+         * Time of the last refill.
+         */
+        private long refillTime;
+        
+        /**
+         * Time before which no request can be sent.
+         */
+        private long blockedUntil;
+        
+        /**
+         * Returns the delay before a token is available.
+         * 
+         * @param now Current time
+         * @return Delay in milliseconds
+         */
+        private long getDelay(long now) {
+            long delay = Math.max(0, blockedUntil - now);
+            if (tokens < 1) {
+                delay = Math.max(delay, (long) Math.ceil((1 - tokens) / tokensPerMillisecond));
+            }
+            return delay;
+        }
+    }
+}
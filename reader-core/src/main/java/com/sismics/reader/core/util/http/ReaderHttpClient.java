@@ -1,15 +1,29 @@
 package com.sismics.reader.core.util.http;
 
-import com.google.common.io.Closer;
+import com.google.common.io.ByteStreams;
+import com.sismics.reader.core.constant.Constants;
+import com.sismics.reader.core.util.StreamUtil;
 import com.sismics.util.EnvironmentUtil;
 import com.sismics.util.cert.CertUtil;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.text.MessageFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * HTTP client.
@@ -23,12 +37,73 @@ public abstract class ReaderHttpClient<T> {
      */
     private static final String USER_AGENT = "Mozilla/4.0 (compatible; Like Firefox; SismicsReaderBot/1.0;+http://www.sismics.com/reader/)";
 
+    /**
+     * Maximum number of redirections followed.
+     */
+    private static final int MAX_REDIRECTS = 5;
+    
+    private static final int HTTP_TEMPORARY_REDIRECT = 307;
+    
+    private static final int HTTP_PERMANENT_REDIRECT = 308;
+    
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    
+    /**
+     * Delay before the next request when a server is throttling us without telling for how long (in milliseconds).
+     */
+    private static final long DEFAULT_RETRY_AFTER_DELAY = TimeUnit.MINUTES.toMillis(1);
+    
     private static SSLSocketFactory sslSocketFactory;
+    
+    /**
+     * Maximum number of concurrent connections to the same host.
+     */
+    private static volatile int maxConnectionsPerHost = Constants.DEFAULT_HTTP_MAX_CONNECTIONS_PER_HOST;
+    
+    /**
+     * Semaphores limiting the concurrent connections, by host.
+     */
+    private static final ConcurrentMap<String, Semaphore> hostSemaphoreMap = new ConcurrentHashMap<String, Semaphore>();
+    
+    /**
+     * Maximum size of a response body, compressed or not (in bytes).
+     */
+    private static volatile int maxBodySize = Constants.DEFAULT_HTTP_MAX_BODY_SIZE;
 
+    /**
+     * Default timeout in milliseconds.
+     */
+    public static final int DEFAULT_TIMEOUT = 20000;
+    
     /**
      * Timeout in milliseconds.
      */
-    private int timeout = 20000;
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Entity tag of the previously fetched resource, sent as If-None-Match.
+     */
+    private String ifNoneMatch;
+
+    /**
+     * Last modification date of the previously fetched resource, sent as If-Modified-Since.
+     */
+    private String ifModifiedSince;
+
+    /**
+     * Entity tag of the fetched resource.
+     */
+    private String etag;
+
+    /**
+     * Last modification date of the fetched resource.
+     */
+    private String lastModified;
+
+    /**
+     * True if the server answered that the resource was not modified.
+     */
+    private boolean notModified;
 
     static {
         if (EnvironmentUtil.isSslTrustAll()) {
@@ -40,40 +115,101 @@ public abstract class ReaderHttpClient<T> {
 
     /**
      * Open and process a stream from a URL.
+     * The body is read before being processed, so that a slow processing doesn't hold a connection to the host.
+     * A body larger than the maximum size, before or after decompression, fails the request.
      * 
      * @param url URL
+     * @return Processed result, or null if the resource was not modified
      */
     public T open(URL url) throws Exception {
-        Closer closer = Closer.create();
+        byte[] body;
+        String contentEncoding;
+        Semaphore hostSemaphore = getHostSemaphore(url.getHost());
+        hostSemaphore.acquire();
         try {
             HttpURLConnection connection = buildHttpConnection(url);
             
             // Handle 3xx redirections
             int status = connection.getResponseCode();
-            if (status == HttpURLConnection.HTTP_MOVED_TEMP
-                || status == HttpURLConnection.HTTP_MOVED_PERM
-                    || status == HttpURLConnection.HTTP_SEE_OTHER) {
-                String newUrl = connection.getHeaderField("Location");
-                if (newUrl != null) {
-                    connection = buildHttpConnection(new URL(newUrl));
+            for (int redirectCount = 0; isRedirect(status); redirectCount++) {
+                String location = connection.getHeaderField("Location");
+                if (location == null) {
+                    break;
                 }
+                if (redirectCount >= MAX_REDIRECTS) {
+                    release(connection);
+                    throw new IOException(MessageFormat.format("Too many redirections from URL {0}", url));
+                }
+                release(connection);
+                connection = buildHttpConnection(new URL(connection.getURL(), location));
+                status = connection.getResponseCode();
             }
             
-            InputStream is = closer.register(connection.getInputStream());
-            return process(is);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } finally {
+            // Handle throttling
+            if (status == HTTP_TOO_MANY_REQUESTS
+                    || status == HttpURLConnection.HTTP_UNAVAILABLE && connection.getHeaderField("Retry-After") != null) {
+                long delay = getRetryAfterDelay(connection.getHeaderField("Retry-After"));
+                release(connection);
+                throw new RetryAfterException(url.toString(), status, delay);
+            }
+            
+            // Handle conditional requests
+            etag = connection.getHeaderField("ETag");
+            lastModified = connection.getHeaderField("Last-Modified");
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                notModified = true;
+                release(connection);
+                return null;
+            }
+            
+            InputStream is;
             try {
-                closer.close();
+                is = connection.getInputStream();
             } catch (IOException e) {
-                // NOP
+                release(connection);
+                throw e;
+            }
+            try {
+                body = ByteStreams.toByteArray(StreamUtil.limit(is, maxBodySize));
+            } finally {
+                is.close();
             }
+            contentEncoding = connection.getContentEncoding();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            hostSemaphore.release();
+        }
+        
+        try {
+            return process(decode(body, contentEncoding));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
     
+    /**
+     * Returns the content of a compressed body.
+     * 
+     * @param body Body
+     * @param contentEncoding Content-Encoding header value
+     * @return Content
+     */
+    private static InputStream decode(byte[] body, String contentEncoding) throws IOException {
+        InputStream is = new ByteArrayInputStream(body);
+        if ("gzip".equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+            return StreamUtil.limit(new GZIPInputStream(is), maxBodySize);
+        } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            // Deflate should be wrapped in zlib, but some servers send raw deflate
+            boolean zlib = body.length >= 2 && (body[0] & 0x0f) == 8 && ((body[0] & 0xff) << 8 | (body[1] & 0xff)) % 31 == 0;
+            return StreamUtil.limit(zlib ? new InflaterInputStream(is) : new InflaterInputStream(is, new Inflater(true)), maxBodySize);
+        }
+        return is;
+    }
+    
     /**
      * Build a connection to an URL.
+     * The connections are kept alive and reused by the JDK, and the shared SSL socket factory resumes TLS sessions.
      * 
      * @param url URL
      * @return Connection
@@ -83,15 +219,156 @@ public abstract class ReaderHttpClient<T> {
         if (connection instanceof HttpsURLConnection) {
             ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
         }
+        connection.setInstanceFollowRedirects(false);
         connection.setRequestProperty("User-Agent", USER_AGENT);
+        connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
         connection.setConnectTimeout(timeout);
         connection.setReadTimeout(timeout);
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        if (ifModifiedSince != null) {
+            connection.setRequestProperty("If-Modified-Since", ifModifiedSince);
+        }
         return connection;
     }
     
+    /**
+     * Returns true if the HTTP status is a redirection.
+     * 
+     * @param status HTTP status
+     * @return Redirection
+     */
+    private static boolean isRedirect(int status) {
+        return status == HttpURLConnection.HTTP_MOVED_PERM
+                || status == HttpURLConnection.HTTP_MOVED_TEMP
+                || status == HttpURLConnection.HTTP_SEE_OTHER
+                || status == HTTP_TEMPORARY_REDIRECT
+                || status == HTTP_PERMANENT_REDIRECT;
+    }
+    
+    /**
+     * Parses a Retry-After header, either a number of seconds or an HTTP date.
+     * 
+     * @param retryAfter Retry-After header value
+     * @return Delay in milliseconds
+     */
+    static long getRetryAfterDelay(String retryAfter) {
+        if (retryAfter != null) {
+            retryAfter = retryAfter.trim();
+            try {
+                return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter)));
+            } catch (NumberFormatException e) {
+                // Not a delay in seconds
+            }
+            try {
+                SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
+                return Math.max(0, dateFormat.parse(retryAfter).getTime() - System.currentTimeMillis());
+            } catch (ParseException e) {
+                // Not an HTTP date
+            }
+        }
+        return DEFAULT_RETRY_AFTER_DELAY;
+    }
+    
+    /**
+     * Consume and close the body of an unprocessed response, so that the connection can be reused.
+     * 
+     * @param connection Connection
+     */
+    private static void release(HttpURLConnection connection) {
+        InputStream is = connection.getErrorStream();
+        if (is == null) {
+            try {
+                is = connection.getInputStream();
+            } catch (IOException e) {
+                return;
+            }
+        }
+        try {
+            ByteStreams.copy(is, ByteStreams.nullOutputStream());
+        } catch (IOException e) {
+            // NOP
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                // NOP
+            }
+        }
+    }
+    
+    /**
+     * Returns the semaphore limiting the concurrent connections to a host.
+     * 
+     * @param host Host
+     * @return Semaphore
+     */
+    private static Semaphore getHostSemaphore(String host) {
+        Semaphore semaphore = hostSemaphoreMap.get(host);
+        if (semaphore == null) {
+            Semaphore newSemaphore = new Semaphore(maxConnectionsPerHost);
+            semaphore = hostSemaphoreMap.putIfAbsent(host, newSemaphore);
+            if (semaphore == null) {
+                semaphore = newSemaphore;
+            }
+        }
+        return semaphore;
+    }
+    
+    /**
+     * Set the maximum number of concurrent connections to the same host.
+     * Must be called before the first request, as the JDK keep-alive cache is sized once.
+     * 
+     * @param maxConnectionsPerHost Maximum number of connections per host
+     */
+    public static void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        ReaderHttpClient.maxConnectionsPerHost = maxConnectionsPerHost;
+        hostSemaphoreMap.clear();
+        System.setProperty("http.maxConnections", String.valueOf(maxConnectionsPerHost));
+    }
+    
+    /**
+     * Set the maximum size of a response body, compressed or not.
+     * 
+     * @param maxBodySize Maximum size (in bytes)
+     */
+    public static void setMaxBodySize(int maxBodySize) {
+        ReaderHttpClient.maxBodySize = maxBodySize;
+    }
+    
+    /**
+     * Getter of maxBodySize.
+     * 
+     * @return maxBodySize
+     */
+    public static int getMaxBodySize() {
+        return maxBodySize;
+    }
+    
     public abstract T process(InputStream is) throws Exception;
 
     public void setTimeout(int timeout) {
         this.timeout = timeout;
     }
+
+    public void setIfNoneMatch(String ifNoneMatch) {
+        this.ifNoneMatch = ifNoneMatch;
+    }
+
+    public void setIfModifiedSince(String ifModifiedSince) {
+        this.ifModifiedSince = ifModifiedSince;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
 }
@@ -0,0 +1,31 @@
+package com.sismics.reader.core.util.http;
+
+import java.text.MessageFormat;
+
+/**
+ * Exception thrown when a server asks us to slow down (HTTP 429 or 503).
+ */
+public class RetryAfterException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Delay before the next request (in milliseconds).
+     */
+    private final long delay;
+
+    /**
+     * Constructor of RetryAfterException.
+     * 
+     * @param url Requested URL
+     * @param status HTTP status
+     * @param delay Delay before the next request (in milliseconds)
+     */
+    public RetryAfterException(String url, int status, long delay) {
+        super(MessageFormat.format("Server returned HTTP {0} for URL {1}, retry after {2,number,#}ms", status, url, delay));
+        this.delay = delay;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sismics.reader.core.util.http;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSub (formerly PubSubHubbub) utilities.
+ */
+public class WebSubUtil {
+    /**
+     * Lease requested when subscribing to a hub (in seconds).
+     */
+    public static final int LEASE_SECONDS = (int) TimeUnit.DAYS.toSeconds(7);
+
+    /**
+     * Delay before the end of a lease when the subscription is renewed (in milliseconds).
+     */
+    public static final long LEASE_RENEWAL_DELAY = TimeUnit.DAYS.toMillis(2);
+
+    /**
+     * Returns the path of the callback of a feed, relative to the REST API.
+     * 
+     * @param feedId Feed ID
+     * @return Callback path
+     */
+    public static String getCallbackPath(String feedId) {
+        return "/websub/" + feedId;
+    }
+
+    /**
+     * Computes the signature of pushed content, as sent in the X-Hub-Signature header.
+     * 
+     * @param algorithm Algorithm (sha1, sha256, sha384 or sha512)
+     * @param secret Secret shared with the hub
+     * @param content Pushed content
+     * @return Signature (e.g. sha1=0123abcd...)
+     */
+    public static String getSignature(String algorithm, String secret, byte[] content) {
+        try {
+            String macAlgorithm = "Hmac" + algorithm.toUpperCase();
+            Mac mac = Mac.getInstance(macAlgorithm);
+            mac.init(new SecretKeySpec(secret.getBytes(Charsets.UTF_8), macAlgorithm));
+            return algorithm + "=" + BaseEncoding.base16().lowerCase().encode(mac.doFinal(content));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Unsupported signature algorithm: " + algorithm, e);
+        }
+    }
+
+    /**
+     * Checks the signature of pushed content.
+     * 
+     * @param signature Value of the X-Hub-Signature header
+     * @param secret Secret shared with the hub
+     * @param content Pushed content
+     * @return True if the signature is valid
+     */
+    public static boolean isSignatureValid(String signature, String secret, byte[] content) {
+        if (signature == null || secret == null) {
+            return false;
+        }
+        int index = signature.indexOf('=');
+        if (index <= 0) {
+            return false;
+        }
+        String algorithm = signature.substring(0, index).toLowerCase();
+        if (!algorithm.matches("sha1|sha256|sha384|sha512")) {
+            return false;
+        }
+        String expected = getSignature(algorithm, secret, content);
+        return MessageDigest.isEqual(expected.getBytes(Charsets.UTF_8), signature.toLowerCase().getBytes(Charsets.UTF_8));
+    }
+}
@@ -40,6 +40,31 @@ public class ArticleSanitizer {
         return value;
     };
 
+    /**
+     * Base URI of the contents being sanitized by the current thread.
+     */
+    private static final ThreadLocal<String> baseUriHolder = new ThreadLocal<String>();
+
+    /**
+     * Transforms relative links to absolute, using the base URI of the contents being sanitized.
+     */
+    private static final AttributePolicy LINK_TO_ABSOLUTE_POLICY = (elementName, attributeName, value) -> {
+        String baseUri = baseUriHolder.get();
+        try {
+            return UrlUtil.completeUrl(baseUri, value);
+        } catch (MalformedURLException e) {
+            if (log.isWarnEnabled()) {
+                log.warn(MessageFormat.format("Error transforming URL {0} to absolute with base URL {1}", value, baseUri), e);
+            }
+            return value;
+        }
+    };
+
+    /**
+     * Sanitization policy, built once and shared by all threads.
+     */
+    private static final PolicyFactory POLICY = buildPolicy();
+
     /**
      * Sanitize HTML contents.
      * 
@@ -47,22 +72,21 @@ public class ArticleSanitizer {
      * @param html HTML to sanitize
      * @return Sanitized HTML
      */
-    public String sanitize(final String baseUri, String html) {
-        AttributePolicy transformLinkToAbsolutePolicy = new AttributePolicy() {
-            @Override
-            public @Nullable
-            String apply(String elementName, String attributeName, String value) {
-                try {
-                    return UrlUtil.completeUrl(baseUri, value);
-                } catch (MalformedURLException e) {
-                    if (log.isWarnEnabled()) {
-                        log.warn(MessageFormat.format("Error transforming URL {0} to absolute with base URL {1}", value, baseUri), e);
-                    }
-                    return value;
-                }
-            }
-        };
+    public String sanitize(String baseUri, String html) {
+        baseUriHolder.set(baseUri);
+        try {
+            return POLICY.sanitize(html);
+        } finally {
+            baseUriHolder.remove();
+        }
+    }
 
+    /**
+     * Builds the sanitization policy.
+     * 
+     * @return Policy
+     */
+    private static PolicyFactory buildPolicy() {
         // Allow common elements
         PolicyFactory blocksPolicyFactory = new HtmlPolicyBuilder()
                 .allowElements(ElementPolicy.IDENTITY_ELEMENT_POLICY, 
@@ -127,7 +151,7 @@ public class ArticleSanitizer {
                 .allowUrlProtocols("http", "https", " http", " https")
                 .allowElements("img")
                 .allowAttributes("alt", "align", "title").onElements("img")
-                .allowAttributes("src").matching(transformLinkToAbsolutePolicy).onElements("img")
+                .allowAttributes("src").matching(LINK_TO_ABSOLUTE_POLICY).onElements("img")
                 .allowAttributes("border", "height", "width", "hspace", "vspace").matching(INTEGER_POLICY).onElements("img")
                 .toFactory();
 
@@ -136,20 +160,16 @@ public class ArticleSanitizer {
                 .allowStandardUrlProtocols()
                 .allowElements("a")
                 .allowAttributes("href")
-                .matching(transformLinkToAbsolutePolicy)
+                .matching(LINK_TO_ABSOLUTE_POLICY)
                 .onElements("a")
                 .requireRelNofollowOnLinks()
                 .toFactory();
 
-        PolicyFactory policy = blocksPolicyFactory
+        return blocksPolicyFactory
                 .and(Sanitizers.FORMATTING)
                 .and(imagePolicyFactory)
                 .and(linksPolicyFactory)
                 .and(Sanitizers.STYLES)
                 .and(iframePolicyFactory);
-        
-        String safeHtml = policy.sanitize(html);
-        
-        return safeHtml;
     }
 }
@@ -0,0 +1,413 @@
+package com.sismics.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.MessageFormat;
+import java.util.Date;
+
+/**
+ * Parser of the dates of a document, which are usually all in the same format.
+ * The common RFC 822 and RFC 3339 dates are parsed by hand, the other dates by Joda formatters,
+ * and the format of the last parsed date is tried first. The learned format can be carried over to the next parser
+ * of the same feed.
+ */
+public class DateParser {
+    private static final Logger log = LoggerFactory.getLogger(DateParser.class);
+
+    private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    private static final String[] DAYS_OF_WEEK = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+
+    /**
+     * Format of the dates like "Sat, 15 Jun 2013 00:07:27 +0200".
+     */
+    private static final int FORMAT_RFC_822 = 0;
+
+    /**
+     * Format of the dates like "2013-04-01T20:34:13.252+09:00".
+     */
+    private static final int FORMAT_RFC_3339 = 1;
+
+    /**
+     * First format parsed by a Joda formatter.
+     */
+    private static final int FORMAT_FORMATTER = 2;
+
+    /**
+     * Number of days returned for invalid dates.
+     */
+    private static final long INVALID_DAY = Long.MIN_VALUE;
+
+    /**
+     * Formatters of the other formats.
+     */
+    private final DateTimeFormatter[] formatterArray;
+
+    /**
+     * Format of the last parsed date, or -1 if none.
+     * The formatters are tried on the date itself, then on the date with its timezone code replaced by an offset.
+     */
+    private int lastFormat = -1;
+
+    /**
+     * Constructor of DateParser.
+     *
+     * @param formatterArray Formatters of the formats other than RFC 822 and RFC 3339
+     */
+    public DateParser(DateTimeFormatter... formatterArray) {
+        this.formatterArray = formatterArray;
+    }
+
+    /**
+     * Getter of lastFormat.
+     *
+     * @return Format of the last parsed date, or -1 if none
+     */
+    public int getLastFormat() {
+        return lastFormat;
+    }
+
+    /**
+     * Setter of lastFormat, ignored if the format is unknown to this parser.
+     *
+     * @param lastFormat Format of the last parsed date, or -1 if none
+     */
+    public void setLastFormat(int lastFormat) {
+        if (lastFormat < FORMAT_FORMATTER + 2 * formatterArray.length) {
+            this.lastFormat = lastFormat;
+        }
+    }
+
+    /**
+     * Parses a date.
+     *
+     * @param date The date to parse
+     * @return Date or null is the date is unparsable
+     */
+    public Date parse(String date) {
+        if (StringUtils.isBlank(date)) {
+            return null;
+        }
+        String dateWithOffset = null;
+        int formatCount = FORMAT_FORMATTER + 2 * formatterArray.length;
+        for (int i = -1; i < formatCount; i++) {
+            int format = i < 0 ? lastFormat : i;
+            if (format < 0 || i >= 0 && format == lastFormat) {
+                continue;
+            }
+            Date result;
+            if (format < FORMAT_FORMATTER + formatterArray.length) {
+                result = parse(date, format);
+            } else {
+                // Last resort, guess the offset of the timezone code
+                if (dateWithOffset == null) {
+                    dateWithOffset = DateUtil.guessTimezoneOffset(date);
+                }
+                if (dateWithOffset.equals(date)) {
+                    continue;
+                }
+                result = parse(dateWithOffset, format - formatterArray.length);
+            }
+            if (result != null) {
+                lastFormat = format;
+                return result;
+            }
+        }
+
+        if (log.isWarnEnabled()) {
+            log.warn(MessageFormat.format("Error parsing date: {0}", date));
+        }
+        return null;
+    }
+
+    /**
+     * Parses a date in a format.
+     *
+     * @param date The date to parse
+     * @param format Format
+     * @return Date or null if the date is not in this format
+     */
+    private Date parse(String date, int format) {
+        if (format == FORMAT_RFC_822) {
+            return parseRfc822(date);
+        } else if (format == FORMAT_RFC_3339) {
+            return parseRfc3339(date);
+        }
+        try {
+            return formatterArray[format - FORMAT_FORMATTER].parseDateTime(date).toDate();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a date like "Sat, 15 Jun 2013 00:07:27 +0200", with an optional day of week,
+     * optional seconds, and a numeric offset or "GMT" / "UT" / "UTC".
+     * The other timezone codes are left to the formatters, which know about daylight saving time.
+     *
+     * @param date The date to parse
+     * @return Date or null if the date is not in this format
+     */
+    public static Date parseRfc822(String date) {
+        Cursor cursor = new Cursor(date);
+        int dayOfWeek = -1;
+        if (cursor.isLetter()) {
+            dayOfWeek = cursor.readName(DAYS_OF_WEEK);
+            if (dayOfWeek < 0 || !cursor.read(',')) {
+                return null;
+            }
+            cursor.skipSpaces();
+        }
+        int day = cursor.readNumber(1, 2);
+        if (!cursor.skipSpaces()) {
+            return null;
+        }
+        int month = cursor.readName(MONTHS) + 1;
+        if (!cursor.skipSpaces()) {
+            return null;
+        }
+        int year = cursor.readNumber(4, 4);
+        if (!cursor.skipSpaces()) {
+            return null;
+        }
+        int hour = cursor.readNumber(1, 2);
+        if (!cursor.read(':')) {
+            return null;
+        }
+        int minute = cursor.readNumber(2, 2);
+        int second = 0;
+        if (cursor.read(':')) {
+            second = cursor.readNumber(2, 2);
+        }
+        if (!cursor.skipSpaces()) {
+            return null;
+        }
+        int offset;
+        if (cursor.readWord("GMT") || cursor.readWord("UTC") || cursor.readWord("UT")) {
+            offset = 0;
+        } else {
+            offset = cursor.readOffset();
+        }
+        if (!cursor.isEnd() || offset == Cursor.INVALID) {
+            return null;
+        }
+
+        long epochDay = getEpochDay(year, month, day);
+        if (epochDay == INVALID_DAY) {
+            return null;
+        }
+        if (dayOfWeek >= 0 && dayOfWeek != (int) ((epochDay % 7 + 10) % 7)) {
+            // The formatters move the date to the day of week, leave it to them
+            return null;
+        }
+        return getDate(epochDay, hour, minute, second, 0, offset);
+    }
+
+    /**
+     * Parses a date like "2013-04-01T20:34:13.252+09:00", with an offset or "Z".
+     *
+     * @param date The date to parse
+     * @return Date or null if the date is not in this format
+     */
+    public static Date parseRfc3339(String date) {
+        Cursor cursor = new Cursor(date);
+        int year = cursor.readNumber(4, 4);
+        if (!cursor.read('-')) {
+            return null;
+        }
+        int month = cursor.readNumber(2, 2);
+        if (!cursor.read('-')) {
+            return null;
+        }
+        int day = cursor.readNumber(2, 2);
+        if (!cursor.read('T')) {
+            return null;
+        }
+        int hour = cursor.readNumber(2, 2);
+        if (!cursor.read(':')) {
+            return null;
+        }
+        int minute = cursor.readNumber(2, 2);
+        if (!cursor.read(':')) {
+            return null;
+        }
+        int second = cursor.readNumber(2, 2);
+        int millisecond = 0;
+        if (cursor.read('.')) {
+            millisecond = cursor.readFraction();
+        }
+        int offset = cursor.read('Z') ? 0 : cursor.readOffset();
+        if (!cursor.isEnd() || offset == Cursor.INVALID) {
+            return null;
+        }
+
+        long epochDay = getEpochDay(year, month, day);
+        if (epochDay == INVALID_DAY) {
+            return null;
+        }
+        return getDate(epochDay, hour, minute, second, millisecond, offset);
+    }
+
+    /**
+     * Returns the number of days from 1970-01-01 to a date.
+     *
+     * @param year Year
+     * @param month Month, from 1
+     * @param day Day of month, from 1
+     * @return Number of days, or INVALID_DAY if the date is invalid
+     */
+    private static long getEpochDay(int year, int month, int day) {
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return INVALID_DAY;
+        }
+        boolean leapYear = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        int dayCount = month == 2 ? (leapYear ? 29 : 28) : (month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31);
+        if (day > dayCount) {
+            return INVALID_DAY;
+        }
+
+        // Count the years from March, so that the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns a date from its fields.
+     *
+     * @param epochDay Number of days from 1970-01-01
+     * @param hour Hour
+     * @param minute Minute
+     * @param second Second
+     * @param millisecond Millisecond
+     * @param offset Offset from UTC (in minutes)
+     * @return Date or null if the time is invalid
+     */
+    private static Date getDate(long epochDay, int hour, int minute, int second, int millisecond, int offset) {
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millisecond < 0) {
+            return null;
+        }
+        long time = ((epochDay * 24 + hour) * 60 + minute - offset) * 60 + second;
+        return new Date(time * 1000 + millisecond);
+    }
+
+    /**
+     * Position in a date being parsed.
+     * Reading invalid numbers returns a negative value, and the date is rejected when they are checked.
+     */
+    private static class Cursor {
+        private static final int INVALID = Integer.MIN_VALUE;
+
+        private final String date;
+
+        private int position;
+
+        private Cursor(String date) {
+            this.date = date;
+        }
+
+        private boolean isEnd() {
+            return position == date.length();
+        }
+
+        private boolean isLetter() {
+            return position < date.length() && Character.isLetter(date.charAt(position));
+        }
+
+        private boolean read(char c) {
+            if (position < date.length() && date.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean skipSpaces() {
+            int start = position;
+            while (position < date.length() && date.charAt(position) == ' ') {
+                position++;
+            }
+            return position > start;
+        }
+
+        private boolean readWord(String word) {
+            if (date.startsWith(word, position) && (position + word.length() == date.length())) {
+                position += word.length();
+                return true;
+            }
+            return false;
+        }
+
+        private int readName(String[] names) {
+            for (int i = 0; i < names.length; i++) {
+                if (date.regionMatches(true, position, names[i], 0, names[i].length())) {
+                    position += names[i].length();
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int readNumber(int minDigits, int maxDigits) {
+            int value = 0;
+            int digits = 0;
+            while (digits < maxDigits && position < date.length()) {
+                char c = date.charAt(position);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + c - '0';
+                position++;
+                digits++;
+            }
+            return digits >= minDigits ? value : -1;
+        }
+
+        private int readFraction() {
+            int value = 0;
+            int digits = 0;
+            while (position < date.length()) {
+                char c = date.charAt(position);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (digits < 3) {
+                    value = value * 10 + c - '0';
+                }
+                position++;
+                digits++;
+            }
+            if (digits == 0 || digits > 9) {
+                return -1;
+            }
+            for (int i = digits; i < 3; i++) {
+                value *= 10;
+            }
+            return value;
+        }
+
+        private int readOffset() {
+            int sign;
+            if (read('+')) {
+                sign = 1;
+            } else if (read('-')) {
+                sign = -1;
+            } else {
+                return INVALID;
+            }
+            int hours = readNumber(2, 2);
+            read(':');
+            int minutes = readNumber(2, 2);
+            if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+                return INVALID;
+            }
+            return sign * (hours * 60 + minutes);
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.sismics.util;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang.StringUtils;
+import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.DateTimeFormatterBuilder;
+import org.joda.time.format.DateTimeParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.MessageFormat;
 import java.util.Date;
-import java.util.Map.Entry;
+import java.util.Locale;
 
 /**
  * Date utilities.
@@ -222,15 +225,27 @@ public class DateUtil {
      * @return Date with the code replaced by its offset if there is a match
      */
     public static String guessTimezoneOffset(String date) {
-        for (Entry<String, String> entry : TIMEZONE_CODE_MAP.entrySet()) {
-            String code = entry.getKey();
-            String offset = entry.getValue();
-            String pattern = " \\(?" + code + "\\)?";
-            if (date.matches(".+" + pattern)) {
-                return date.replaceAll(pattern, offset);
-            }
+        // The code is the last word, optionally in parentheses
+        int end = date.length();
+        if (end > 0 && date.charAt(end - 1) == ')') {
+            end--;
+        }
+        int begin = end;
+        while (begin > 0 && Character.isLetter(date.charAt(begin - 1))) {
+            begin--;
+        }
+        int prefixEnd = begin;
+        if (prefixEnd > 0 && date.charAt(prefixEnd - 1) == '(') {
+            prefixEnd--;
+        }
+        if (begin == end || prefixEnd < 2 || date.charAt(prefixEnd - 1) != ' ') {
+            return date;
+        }
+        String offset = TIMEZONE_CODE_MAP.get(date.substring(begin, end));
+        if (offset == null) {
+            return date;
         }
-        return date;
+        return date.substring(0, prefixEnd - 1) + offset;
     }
 
     /**
@@ -263,4 +278,34 @@ public class DateUtil {
         }
         return null;
     }
+
+    /**
+     * Returns the formatters of date patterns, keeping the parsed offset.
+     *
+     * @param patterns Date patterns
+     * @return Formatters
+     */
+    public static DateTimeFormatter[] getFormatterArray(String... patterns) {
+        DateTimeFormatter[] formatterArray = new DateTimeFormatter[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            formatterArray[i] = DateTimeFormat.forPattern(patterns[i]).withOffsetParsed().withLocale(Locale.ENGLISH);
+        }
+        return formatterArray;
+    }
+
+    /**
+     * Returns a formatter parsing any of the formats.
+     *
+     * @param formatterArray Formatters
+     * @return Formatter
+     */
+    public static DateTimeFormatter getFormatter(DateTimeFormatter... formatterArray) {
+        DateTimeParser[] parsers = new DateTimeParser[formatterArray.length];
+        for (int i = 0; i < formatterArray.length; i++) {
+            parsers[i] = formatterArray[i].getParser();
+        }
+        return new DateTimeFormatterBuilder()
+                .append(null, parsers)
+                .toFormatter().withOffsetParsed().withLocale(Locale.ENGLISH);
+    }
 }
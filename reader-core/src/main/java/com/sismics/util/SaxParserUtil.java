@@ -0,0 +1,146 @@
+package com.sismics.util;
+
+import org.ccil.cowan.tagsoup.jaxp.SAXParserImpl;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.util.concurrent.Callable;
+
+/**
+ * SAX parser utilities.
+ * Configured parsers are expensive to build, so each thread keeps one of each kind and reuses it from a document to the next.
+ */
+public class SaxParserUtil {
+    /**
+     * Handler set on the idle parsers, so that they don't retain the last document.
+     */
+    private static final DefaultHandler IDLE_HANDLER = new DefaultHandler();
+
+    /**
+     * Namespace aware XML parsers, not loading external DTDs.
+     */
+    private static final ParserPool xmlParserPool = new ParserPool(() -> newXmlParser(false));
+
+    /**
+     * Namespace aware XML parsers, not loading external DTDs, and trying to resume after fatal errors.
+     */
+    private static final ParserPool lenientXmlParserPool = new ParserPool(() -> newXmlParser(true));
+
+    /**
+     * TagSoup HTML parsers.
+     */
+    private static final ParserPool htmlParserPool = new ParserPool(SaxParserUtil::newHtmlParser);
+
+    /**
+     * Parses an XML document.
+     *
+     * @param source Input source
+     * @param handler SAX handler
+     * @param lenient Try to resume parsing after fatal errors, which are reported to the handler
+     */
+    public static void parseXml(InputSource source, DefaultHandler handler, boolean lenient) throws Exception {
+        (lenient ? lenientXmlParserPool : xmlParserPool).parse(source, handler);
+    }
+
+    /**
+     * Parses an HTML document.
+     *
+     * @param source Input source
+     * @param handler SAX handler
+     */
+    public static void parseHtml(InputSource source, DefaultHandler handler) throws Exception {
+        htmlParserPool.parse(source, handler);
+    }
+
+    /**
+     * Creates a new XML parser.
+     *
+     * @param lenient Try to resume parsing after fatal errors
+     * @return XML parser
+     */
+    private static SAXParser newXmlParser(boolean lenient) throws Exception {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        if (lenient) {
+            factory.setFeature("http://apache.org/xml/features/continue-after-fatal-error", true);
+        }
+        return factory.newSAXParser();
+    }
+
+    /**
+     * Creates a new HTML parser.
+     *
+     * @return HTML parser
+     */
+    private static SAXParser newHtmlParser() throws Exception {
+        SAXParserImpl parser = SAXParserImpl.newInstance(null);
+        parser.setFeature("http://xml.org/sax/features/namespaces", true);
+        parser.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+        return parser;
+    }
+
+    /**
+     * Pool of parsers of the same kind, holding one idle parser per thread.
+     */
+    private static class ParserPool {
+        private final ThreadLocal<SAXParser> parserHolder = new ThreadLocal<SAXParser>();
+
+        private final Callable<SAXParser> parserFactory;
+
+        private ParserPool(Callable<SAXParser> parserFactory) {
+            this.parserFactory = parserFactory;
+        }
+
+        /**
+         * Parses a document with a parser from the pool.
+         *
+         * @param source Input source
+         * @param handler SAX handler
+         */
+        private void parse(InputSource source, DefaultHandler handler) throws Exception {
+            // Take the parser out of the pool, so that a nested parse gets its own
+            SAXParser parser = parserHolder.get();
+            parserHolder.remove();
+            if (parser == null) {
+                parser = parserFactory.call();
+            }
+
+            try {
+                parser.parse(source, handler);
+            } finally {
+                release(parser);
+            }
+        }
+
+        /**
+         * Puts a parser back into the pool.
+         *
+         * @param parser Parser
+         */
+        private void release(SAXParser parser) {
+            try {
+                parser.reset();
+            } catch (UnsupportedOperationException e) {
+                // TagSoup resets its state before each document, we only need to release the handler
+                XMLReader xmlReader;
+                try {
+                    xmlReader = parser.getXMLReader();
+                } catch (Exception e2) {
+                    return;
+                }
+                xmlReader.setContentHandler(IDLE_HANDLER);
+                xmlReader.setErrorHandler(IDLE_HANDLER);
+                xmlReader.setEntityResolver(IDLE_HANDLER);
+                xmlReader.setDTDHandler(IDLE_HANDLER);
+            } catch (Exception e) {
+                // The parser is in an unknown state, drop it
+                return;
+            }
+            parserHolder.set(parser);
+        }
+    }
+}
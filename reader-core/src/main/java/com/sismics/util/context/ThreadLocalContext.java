@@ -1,6 +1,10 @@
 package com.sismics.util.context;
 
+import com.sismics.reader.core.model.context.AppContext;
+
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Context associated to a user request, and stored in a ThreadLocal.
@@ -18,6 +22,11 @@ public class ThreadLocalContext {
      */
     private EntityManager entityManager;
     
+    /**
+     * Asynchronous events posted once the transaction is committed.
+     */
+    private List<Object> asyncEventList = new ArrayList<Object>();
+    
     /**
      * Private constructor.
      */
@@ -55,6 +64,26 @@ public class ThreadLocalContext {
         return entityManager != null;
     }
 
+    /**
+     * Adds an asynchronous event, posted once the transaction is committed.
+     * 
+     * @param asyncEvent Asynchronous event
+     */
+    public void addAsyncEvent(Object asyncEvent) {
+        asyncEventList.add(asyncEvent);
+    }
+    
+    /**
+     * Posts the asynchronous events of the committed transaction.
+     */
+    public void fireAllAsyncEvents() {
+        List<Object> firedAsyncEventList = asyncEventList;
+        asyncEventList = new ArrayList<Object>();
+        for (Object asyncEvent : firedAsyncEventList) {
+            AppContext.getInstance().getAsyncEventBus().post(asyncEvent);
+        }
+    }
+
     /**
      * Getter of entityManager.
      *
@@ -0,0 +1,2 @@
+insert into T_CONFIG(CFG_ID_C, CFG_VALUE_C) values('FEED_SYNC_THREAD_COUNT', '4');
+update T_CONFIG set CFG_VALUE_C='7' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
@@ -0,0 +1,5 @@
+alter table T_FEED add column FED_UPDATEPERIOD_N int;
+alter table T_FEED add column FED_NEXTFETCHDATE_D datetime;
+alter table T_FEED add column FED_ERRORCOUNT_N int default 0 not null;
+create index IDX_FED_NEXTFETCHDATE_D on T_FEED (FED_NEXTFETCHDATE_D);
+update T_CONFIG set CFG_VALUE_C='8' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
@@ -0,0 +1,4 @@
+alter table T_FEED add column FED_ETAG_C varchar(250);
+alter table T_FEED add column FED_LASTMODIFIED_C varchar(100);
+alter table T_FEED_SYNCHRONIZATION add column FSY_NOTMODIFIED_B bit default 0 not null;
+update T_CONFIG set CFG_VALUE_C='9' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
@@ -0,0 +1,2 @@
+insert into T_CONFIG(CFG_ID_C, CFG_VALUE_C) values('HTTP_MAX_CONNECTIONS_PER_HOST', '2');
+update T_CONFIG set CFG_VALUE_C='10' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
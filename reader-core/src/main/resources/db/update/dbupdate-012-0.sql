@@ -0,0 +1,5 @@
+alter table T_FEED add column FED_HUBURL_C varchar(2000);
+alter table T_FEED add column FED_HUBTOPIC_C varchar(2000);
+alter table T_FEED add column FED_HUBSECRET_C varchar(50);
+alter table T_FEED add column FED_HUBLEASEDATE_D datetime;
+update T_CONFIG set CFG_VALUE_C='12' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
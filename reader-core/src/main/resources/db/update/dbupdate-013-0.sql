@@ -0,0 +1,2 @@
+alter table T_ARTICLE add column ART_RAWHASH_C varchar(40);
+update T_CONFIG set CFG_VALUE_C='13' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
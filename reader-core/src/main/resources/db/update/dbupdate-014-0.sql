@@ -0,0 +1,3 @@
+alter table T_FEED add column FED_CONTENTHASH_C varchar(40);
+alter table T_FEED_SYNCHRONIZATION add column FSY_UNCHANGED_B bit default 0 not null;
+update T_CONFIG set CFG_VALUE_C='14' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
@@ -0,0 +1,5 @@
+alter table T_ARTICLE add column ART_UPDATEDATE_D datetime;
+update T_ARTICLE set ART_UPDATEDATE_D = coalesce(ART_DELETEDATE_D, ART_CREATEDATE_D);
+alter table T_ARTICLE alter column ART_UPDATEDATE_D set not null;
+create index IDX_ART_UPDATEDATE_D on T_ARTICLE (ART_UPDATEDATE_D, ART_ID_C);
+update T_CONFIG set CFG_VALUE_C='15' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
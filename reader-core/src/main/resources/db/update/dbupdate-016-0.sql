@@ -0,0 +1,2 @@
+create index IDX_ART_URL_C on T_ARTICLE (ART_URL_C, ART_ID_C);
+update T_CONFIG set CFG_VALUE_C='16' where CFG_ID_C='DB_VERSION';
\ No newline at end of file
@@ -6,7 +6,9 @@ import junit.framework.Assert;
 import org.junit.Test;
 
 import java.io.InputStream;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static junit.framework.Assert.*;
 
@@ -49,6 +51,7 @@ public class TestRssReader {
         assertEquals("http://antwrp.gsfc.nasa.gov/", feed.getUrl());
         assertEquals("en-us", feed.getLanguage());
         assertEquals("Astronomy Picture of the Day", feed.getDescription());
+        assertNull(feed.getUpdatePeriod());
         List<Article> articleList = reader.getArticleList();
         assertEquals(7, articleList.size());
         Article article = articleList.get(0);
@@ -72,6 +75,7 @@ public class TestRssReader {
         assertEquals("http://korben.info", feed.getUrl());
         assertEquals("fr-FR", feed.getLanguage());
         assertEquals("Upgrade your mind", feed.getDescription());
+        assertEquals(60, (int) feed.getUpdatePeriod());
         List<Article> articleList = reader.getArticleList();
         assertEquals(30, articleList.size());
         
@@ -94,6 +98,39 @@ public class TestRssReader {
         assertEquals("video/x-flv", article.getEnclosureType());
     }
 
+    @Test
+    public void rssReaderKnownGuidTest() throws Exception {
+        RssReader reader = new RssReader();
+        reader.readRssFeed(getClass().getResourceAsStream("/feed/feed_rss2_korben.xml"));
+        Set<String> knownGuidSet = new HashSet<String>();
+        for (Article article : reader.getArticleList().subList(2, 30)) {
+            knownGuidSet.add(article.getGuid());
+        }
+        assertFalse(reader.isTruncated());
+
+        // The reading stops after a few known articles
+        reader = new RssReader(knownGuidSet);
+        reader.readRssFeed(getClass().getResourceAsStream("/feed/feed_rss2_korben.xml"));
+        assertTrue(reader.isTruncated());
+        assertEquals("Korben", reader.getFeed().getTitle());
+        assertEquals(60, (int) reader.getFeed().getUpdatePeriod());
+        List<Article> articleList = reader.getArticleList();
+        assertEquals(7, articleList.size());
+        assertEquals("http://korben.info/?p=38958", articleList.get(0).getGuid());
+
+        // The articles without a date are all read
+        reader = new RssReader();
+        reader.readRssFeed(getClass().getResourceAsStream("/feed/feed_rss2_apod.xml"));
+        knownGuidSet = new HashSet<String>();
+        for (Article article : reader.getArticleList()) {
+            knownGuidSet.add(article.getGuid());
+        }
+        reader = new RssReader(knownGuidSet);
+        reader.readRssFeed(getClass().getResourceAsStream("/feed/feed_rss2_apod.xml"));
+        assertFalse(reader.isTruncated());
+        assertEquals(knownGuidSet.size(), reader.getArticleList().size());
+    }
+
     @Test
     public void atomReaderPloumTest() throws Exception {
         InputStream is = getClass().getResourceAsStream("/feed/feed_atom_ploum.xml");
@@ -127,6 +164,7 @@ public class TestRssReader {
         assertEquals("http://www.rottentomatoes.com/news/", feed.getUrl());
         assertEquals("en-us", feed.getLanguage());
         assertEquals("Entertainment news and headlines compiled by the editors of Rotten Tomatoes", feed.getDescription());
+        assertEquals(60, (int) feed.getUpdatePeriod());
         List<Article> articleList = reader.getArticleList();
         assertEquals(20, articleList.size());
         Article article = articleList.get(0);
@@ -498,6 +536,7 @@ public class TestRssReader {
         assertEquals("autostrip", feed.getTitle());
         assertEquals("http://autostrip.fr/index.php", feed.getUrl());
         assertEquals("fr", feed.getLanguage());
+        assertEquals(24 * 60, (int) feed.getUpdatePeriod());
         assertEquals("", feed.getDescription());
         List<Article> articleList = reader.getArticleList();
         assertEquals(10, articleList.size());
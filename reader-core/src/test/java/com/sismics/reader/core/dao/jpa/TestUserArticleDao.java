@@ -0,0 +1,189 @@
+package com.sismics.reader.core.dao.jpa;
+
+import com.google.common.collect.Lists;
+import com.sismics.reader.BaseTransactionalTest;
+import com.sismics.reader.core.dao.jpa.criteria.FeedSubscriptionCriteria;
+import com.sismics.reader.core.dao.jpa.criteria.UserArticleCriteria;
+import com.sismics.reader.core.dao.jpa.dto.FeedSubscriptionDto;
+import com.sismics.reader.core.dao.jpa.dto.UserArticleDto;
+import com.sismics.reader.core.model.jpa.Article;
+import com.sismics.reader.core.model.jpa.Category;
+import com.sismics.reader.core.model.jpa.Feed;
+import com.sismics.reader.core.model.jpa.FeedSubscription;
+import com.sismics.reader.core.model.jpa.User;
+import com.sismics.reader.core.model.jpa.UserArticle;
+import com.sismics.reader.core.util.EntityManagerUtil;
+import com.sismics.reader.core.util.TransactionUtil;
+import com.sismics.reader.core.util.jpa.PaginatedList;
+import com.sismics.reader.core.util.jpa.PaginatedLists;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Tests the bulk creation and deletion of the user articles.
+ */
+public class TestUserArticleDao extends BaseTransactionalTest {
+    @Test
+    public void createBatchTest() throws Exception {
+        // Subscribe 5 users to a feed
+        Feed feed = new Feed();
+        feed.setRssUrl("http://localhost/batch.xml");
+        feed.setTitle("Batch");
+        new FeedDao().create(feed);
+        List<String> userIdList = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            userIdList.add(createSubscribedUser("batch" + i, feed));
+        }
+        EntityManagerUtil.flush();
+
+        // Fan out 100 articles, exactly one JDBC batch
+        List<String> articleIdList = createArticleList(feed, 0, 100);
+        new UserArticleDao().createBatch(articleIdList, userIdList);
+        new FeedSubscriptionDao().incrementUnreadCount(feed.getId(), articleIdList.size());
+        assertUserArticleCount(feed, userIdList, 100);
+
+        // Fan out 101 articles, a full batch and a partial one
+        articleIdList = createArticleList(feed, 100, 101);
+        new UserArticleDao().createBatch(articleIdList, userIdList);
+        new FeedSubscriptionDao().incrementUnreadCount(feed.getId(), articleIdList.size());
+        assertUserArticleCount(feed, userIdList, 201);
+
+        TransactionUtil.commit();
+    }
+
+    @Test
+    public void deleteTest() throws Exception {
+        // Subscribe 2 users to a feed with 4 articles
+        Feed feed = new Feed();
+        feed.setRssUrl("http://localhost/delete.xml");
+        feed.setTitle("Delete");
+        new FeedDao().create(feed);
+        List<String> userIdList = new ArrayList<String>();
+        for (int i = 0; i < 2; i++) {
+            userIdList.add(createSubscribedUser("delete" + i, feed));
+        }
+        EntityManagerUtil.flush();
+        List<String> articleIdList = createArticleList(feed, 1000, 4);
+        new UserArticleDao().createBatch(articleIdList, userIdList);
+        new FeedSubscriptionDao().incrementUnreadCount(feed.getId(), articleIdList.size());
+
+        // The first user reads the first 2 articles
+        String userId = userIdList.get(0);
+        for (String articleId : articleIdList.subList(0, 2)) {
+            UserArticleDto userArticleDto = new UserArticleDao().findFirstByCriteria(new UserArticleCriteria()
+                    .setUserId(userId)
+                    .setArticleId(articleId));
+            UserArticle userArticle = new UserArticle();
+            userArticle.setId(userArticleDto.getId());
+            userArticle.setReadDate(new Date());
+            new UserArticleDao().update(userArticle);
+        }
+        FeedSubscriptionDto feedSubscription = new FeedSubscriptionDao().findFirstByCriteria(new FeedSubscriptionCriteria()
+                .setFeedId(feed.getId())
+                .setUserId(userId));
+        new FeedSubscriptionDao().updateUnreadCount(feedSubscription.getId(), 2);
+        EntityManagerUtil.flush();
+
+        // Delete a read article and an unread one
+        List<String> deletedArticleIdList = Lists.newArrayList(articleIdList.get(0), articleIdList.get(2));
+        new FeedSubscriptionDao().decrementUnreadCount(feed.getId(), deletedArticleIdList);
+        new ArticleDao().delete(deletedArticleIdList);
+
+        // Only the unread articles are counted
+        feedSubscription = new FeedSubscriptionDao().findFirstByCriteria(new FeedSubscriptionCriteria()
+                .setFeedId(feed.getId())
+                .setUserId(userId));
+        assertEquals(1, (int) feedSubscription.getUnreadUserArticleCount());
+        feedSubscription = new FeedSubscriptionDao().findFirstByCriteria(new FeedSubscriptionCriteria()
+                .setFeedId(feed.getId())
+                .setUserId(userIdList.get(1)));
+        assertEquals(2, (int) feedSubscription.getUnreadUserArticleCount());
+
+        TransactionUtil.commit();
+    }
+
+    /**
+     * Creates a user subscribed to a feed.
+     *
+     * @param username Username
+     * @param feed Feed
+     * @return User ID
+     */
+    private String createSubscribedUser(String username, Feed feed) throws Exception {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@reader.com");
+        user.setLocaleId("fr_FR");
+        user.setRoleId("user");
+        String userId = new UserDao().create(user);
+
+        Category category = new Category();
+        category.setUserId(userId);
+        category.setOrder(0);
+        new CategoryDao().create(category);
+
+        FeedSubscription feedSubscription = new FeedSubscription();
+        feedSubscription.setUserId(userId);
+        feedSubscription.setFeedId(feed.getId());
+        feedSubscription.setCategoryId(category.getId());
+        feedSubscription.setOrder(0);
+        feedSubscription.setUnreadCount(0);
+        new FeedSubscriptionDao().create(feedSubscription);
+        return userId;
+    }
+
+    /**
+     * Creates articles in a feed.
+     *
+     * @param feed Feed
+     * @param start Number of the first article
+     * @param count Number of articles
+     * @return Article IDs
+     */
+    private List<String> createArticleList(Feed feed, int start, int count) {
+        List<String> articleIdList = new ArrayList<String>();
+        ArticleDao articleDao = new ArticleDao();
+        for (int i = start; i < start + count; i++) {
+            Article article = new Article();
+            article.setFeedId(feed.getId());
+            article.setUrl("http://localhost/batch/" + i);
+            article.setGuid("batch" + i);
+            article.setTitle("Article " + i);
+            article.setDescription("Description " + i);
+            article.setPublicationDate(new Date());
+            articleIdList.add(articleDao.create(article));
+        }
+        return articleIdList;
+    }
+
+    /**
+     * Checks the user articles and the unread counts of the subscribers of a feed.
+     *
+     * @param feed Feed
+     * @param userIdList Subscribers
+     * @param count Expected number of unread articles of each subscriber
+     */
+    private void assertUserArticleCount(Feed feed, List<String> userIdList, int count) throws Exception {
+        for (String userId : userIdList) {
+            UserArticleCriteria userArticleCriteria = new UserArticleCriteria()
+                    .setUserId(userId)
+                    .setFeedId(feed.getId())
+                    .setUnread(true);
+            PaginatedList<UserArticleDto> paginatedList = PaginatedLists.create(1, 0);
+            new UserArticleDao().findByCriteria(paginatedList, userArticleCriteria, null, null);
+            assertEquals(count, paginatedList.getResultCount());
+        }
+
+        List<FeedSubscriptionDto> feedSubscriptionList = new FeedSubscriptionDao().findByCriteria(
+                new FeedSubscriptionCriteria().setFeedId(feed.getId()));
+        assertEquals(userIdList.size(), feedSubscriptionList.size());
+        for (FeedSubscriptionDto feedSubscription : feedSubscriptionList) {
+            assertEquals(count, (int) feedSubscription.getUnreadUserArticleCount());
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.sismics.reader.core.dao.lucene;
+
+import com.google.common.collect.Lists;
+import com.sismics.reader.BaseTransactionalTest;
+import com.sismics.reader.core.dao.jpa.FeedDao;
+import com.sismics.reader.core.dao.jpa.dto.UserArticleDto;
+import com.sismics.reader.core.model.context.AppContext;
+import com.sismics.reader.core.model.jpa.Article;
+import com.sismics.reader.core.model.jpa.Feed;
+import com.sismics.reader.core.service.IndexingService;
+import com.sismics.reader.core.util.EntityManagerUtil;
+import com.sismics.reader.core.util.LuceneUtil;
+import com.sismics.reader.core.util.TransactionUtil;
+import com.sismics.reader.core.util.jpa.PaginatedList;
+import com.sismics.reader.core.util.jpa.PaginatedLists;
+import com.sismics.util.context.ThreadLocalContext;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Test of the Lucene article DAO.
+ */
+public class TestArticleDao extends BaseTransactionalTest {
+    @Test
+    public void rebuildIndexTest() throws Exception {
+        // Create a feed with 5 articles
+        Feed feed = new Feed();
+        feed.setRssUrl("http://localhost/rebuild.xml");
+        feed.setTitle("Rebuild");
+        new FeedDao().create(feed);
+        EntityManagerUtil.flush();
+        final com.sismics.reader.core.dao.jpa.ArticleDao jpaArticleDao = new com.sismics.reader.core.dao.jpa.ArticleDao();
+        List<Article> articleList = new ArrayList<Article>();
+        for (int i = 0; i < 5; i++) {
+            Article article = new Article();
+            article.setFeedId(feed.getId());
+            article.setUrl("http://localhost/rebuild/" + i);
+            article.setGuid("rebuild" + i);
+            article.setTitle("Article rebuildtermtitle " + i);
+            article.setDescription("Description rebuildtermdescription" + (i % 2));
+            article.setPublicationDate(new Date(1000000L * i));
+            jpaArticleDao.create(article);
+            articleList.add(article);
+        }
+
+        // Rebuild the index reading 2 articles at once
+        ArticleDao articleDao = new ArticleDao();
+        articleDao.rebuildIndex(lastArticle -> jpaArticleDao.findByUrlAfter(lastArticle, 2));
+
+        PaginatedList<UserArticleDto> paginatedList = PaginatedLists.create(10, 0);
+        Map<String, Article> articleMap = articleDao.search(paginatedList, "rebuildtermtitle", null);
+        assertEquals(5, articleMap.size());
+        assertEquals(5, paginatedList.getResultCount());
+        
+        // Read the pages of a cached search
+        IndexingService indexingService = AppContext.getInstance().getIndexingService();
+        long hitCount = indexingService.getSearchCacheStats().hitCount();
+        paginatedList = PaginatedLists.create(2, 0);
+        Map<String, Article> firstPageMap = articleDao.search(paginatedList, "rebuildtermtitle", null, "test");
+        assertEquals(2, firstPageMap.size());
+        paginatedList = PaginatedLists.create(2, 2);
+        articleMap = articleDao.search(paginatedList, " Rebuildtermtitle", null, "test");
+        assertEquals(2, articleMap.size());
+        assertEquals(5, paginatedList.getResultCount());
+        for (String id : articleMap.keySet()) {
+            assertFalse(firstPageMap.containsKey(id));
+        }
+        assertEquals(hitCount + 1, indexingService.getSearchCacheStats().hitCount());
+        
+        // Search in the articles of a feed
+        paginatedList = PaginatedLists.create(2, 2);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", new FeedFilter(Lists.newArrayList(feed.getId())));
+        assertEquals(2, articleMap.size());
+        assertEquals(5, paginatedList.getResultCount());
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", new FeedFilter(Lists.newArrayList("other")));
+        assertEquals(0, articleMap.size());
+        assertEquals(0, paginatedList.getResultCount());
+
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermdescription1", null);
+        assertEquals(2, articleMap.size());
+        for (Article article : articleMap.values()) {
+            assertTrue(article.getDescription().contains("<span class=\"highlight\">rebuildtermdescription1</span>"));
+        }
+        
+        // Update an article and delete another one, without updating the index
+        Date catchUpDate = new Date(System.currentTimeMillis() - 1000);
+        articleList.get(0).setTitle("Article catchuptermtitle");
+        jpaArticleDao.update(articleList.get(0));
+        jpaArticleDao.delete(articleList.get(1).getId());
+        
+        // Forget the articles read by the rebuild, the updates are native queries
+        ThreadLocalContext.get().getEntityManager().clear();
+        
+        // Catch up reading 1 article at once
+        int articleCount = articleDao.catchUp(lastArticle -> lastArticle == null ?
+                jpaArticleDao.findUpdatedAfter(catchUpDate, "", 1) :
+                jpaArticleDao.findUpdatedAfter(lastArticle.getUpdateDate(), lastArticle.getId(), 1));
+        assertTrue(articleCount >= 2);
+        indexingService.refresh();
+        
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", null);
+        assertEquals(3, articleMap.size());
+        assertFalse(articleMap.containsKey(articleList.get(0).getId()));
+        assertFalse(articleMap.containsKey(articleList.get(1).getId()));
+        
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "catchuptermtitle", null);
+        assertEquals(1, articleMap.size());
+        assertTrue(articleMap.containsKey(articleList.get(0).getId()));
+        
+        // Publish the URL of an article in another feed
+        Feed otherFeed = new Feed();
+        otherFeed.setRssUrl("http://localhost/rebuild_other.xml");
+        otherFeed.setTitle("Rebuild other");
+        new FeedDao().create(otherFeed);
+        EntityManagerUtil.flush();
+        Article otherArticle = new Article();
+        otherArticle.setFeedId(otherFeed.getId());
+        otherArticle.setUrl(articleList.get(2).getUrl());
+        otherArticle.setGuid("rebuildother");
+        otherArticle.setTitle("Article rebuildtermtitle other");
+        otherArticle.setDescription("Description rebuildtermdescription0");
+        otherArticle.setPublicationDate(new Date(10000000L));
+        jpaArticleDao.create(otherArticle);
+        articleDao.create(Lists.newArrayList(otherArticle));
+        indexingService.refresh();
+        
+        // The URL is found once, as the article of the feeds searched
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", null);
+        assertEquals(3, articleMap.size());
+        assertEquals(3, paginatedList.getResultCount());
+        assertTrue(articleMap.containsKey(otherArticle.getId()));
+        assertEquals(otherArticle.getId(), articleMap.keySet().iterator().next());
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", new FeedFilter(Lists.newArrayList(feed.getId())));
+        assertEquals(3, articleMap.size());
+        assertTrue(articleMap.containsKey(articleList.get(2).getId()));
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", new FeedFilter(Lists.newArrayList(otherFeed.getId())));
+        assertEquals(1, articleMap.size());
+        assertTrue(articleMap.containsKey(otherArticle.getId()));
+        
+        // The URL is still found in the first feed after the rebuild
+        articleDao.rebuildIndex(lastArticle -> jpaArticleDao.findByUrlAfter(lastArticle, 2));
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", new FeedFilter(Lists.newArrayList(feed.getId())));
+        assertTrue(articleMap.containsKey(articleList.get(2).getId()));
+        assertEquals(3, paginatedList.getResultCount());
+        
+        // Delete the article of the other feed
+        articleDao.delete(Lists.newArrayList(otherArticle));
+        indexingService.refresh();
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", null);
+        assertEquals(3, articleMap.size());
+        assertTrue(articleMap.containsKey(articleList.get(2).getId()));
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "rebuildtermtitle", new FeedFilter(Lists.newArrayList(otherFeed.getId())));
+        assertEquals(0, articleMap.size());
+
+        TransactionUtil.commit();
+    }
+
+    @Test
+    public void rebuildWriteTest() throws Exception {
+        Feed feed = new Feed();
+        feed.setRssUrl("http://localhost/rebuild_write.xml");
+        feed.setTitle("Rebuild write");
+        new FeedDao().create(feed);
+        EntityManagerUtil.flush();
+        final com.sismics.reader.core.dao.jpa.ArticleDao jpaArticleDao = new com.sismics.reader.core.dao.jpa.ArticleDao();
+        final ArticleDao articleDao = new ArticleDao();
+        
+        // Synchronize an article after the rebuild has read the articles
+        final Article article = new Article();
+        article.setFeedId(feed.getId());
+        article.setUrl("http://localhost/rebuild_write");
+        article.setGuid("rebuildwrite");
+        article.setTitle("Article rebuildwritetermtitle");
+        article.setDescription("Description");
+        article.setPublicationDate(new Date());
+        articleDao.rebuildIndex(lastArticle -> {
+            if (lastArticle != null) {
+                return new ArrayList<Article>();
+            }
+            List<Article> articleList = jpaArticleDao.findByUrlAfter(null, 1000);
+            jpaArticleDao.create(article);
+            articleDao.create(Lists.newArrayList(article));
+            return articleList;
+        });
+        
+        // The write discarded by the swap is caught up
+        AppContext.getInstance().getIndexingService().refresh();
+        PaginatedList<UserArticleDto> paginatedList = PaginatedLists.create(10, 0);
+        Map<String, Article> articleMap = articleDao.search(paginatedList, "rebuildwritetermtitle", null);
+        assertEquals(1, articleMap.size());
+        assertTrue(articleMap.containsKey(article.getId()));
+        
+        TransactionUtil.commit();
+    }
+
+    @Test
+    public void duplicateUrlTest() throws Exception {
+        // Publish a URL in 2 feeds, the second write reading the first one before the searchers are refreshed
+        ArticleDao articleDao = new ArticleDao();
+        Article olderArticle = newArticle("feed1", "http://localhost/duplicate", "Article oldertermtitle", 1000000L);
+        Article latestArticle = newArticle("feed2", "http://localhost/duplicate", "Article latesttermtitle", 2000000L);
+        articleDao.create(Lists.newArrayList(olderArticle));
+        articleDao.create(Lists.newArrayList(latestArticle));
+        IndexingService indexingService = AppContext.getInstance().getIndexingService();
+        indexingService.refresh();
+        
+        // The content of the latest article is indexed, and the URL is found in both feeds
+        PaginatedList<UserArticleDto> paginatedList = PaginatedLists.create(10, 0);
+        Map<String, Article> articleMap = articleDao.search(paginatedList, "latesttermtitle", null);
+        assertEquals(1, articleMap.size());
+        assertTrue(articleMap.containsKey(latestArticle.getId()));
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "latesttermtitle", new FeedFilter(Lists.newArrayList("feed1")));
+        assertEquals(1, articleMap.size());
+        assertTrue(articleMap.containsKey(olderArticle.getId()));
+        paginatedList = PaginatedLists.create(10, 0);
+        assertEquals(0, articleDao.search(paginatedList, "oldertermtitle", null).size());
+        
+        // Delete the latest article, the content of the older one is indexed
+        articleDao.delete(Lists.newArrayList(latestArticle));
+        indexingService.refresh();
+        paginatedList = PaginatedLists.create(10, 0);
+        assertEquals(0, articleDao.search(paginatedList, "latesttermtitle", null).size());
+        paginatedList = PaginatedLists.create(10, 0);
+        articleMap = articleDao.search(paginatedList, "oldertermtitle", null);
+        assertEquals(1, articleMap.size());
+        assertTrue(articleMap.containsKey(olderArticle.getId()));
+        
+        // Add it again with an older date
+        latestArticle.setPublicationDate(new Date(500000L));
+        articleDao.create(Lists.newArrayList(latestArticle));
+        indexingService.refresh();
+        paginatedList = PaginatedLists.create(10, 0);
+        assertEquals(0, articleDao.search(paginatedList, "latesttermtitle", null).size());
+        paginatedList = PaginatedLists.create(10, 0);
+        assertEquals(1, articleDao.search(paginatedList, "oldertermtitle", null).size());
+        
+        articleDao.delete(Lists.newArrayList(olderArticle, latestArticle));
+        indexingService.refresh();
+        paginatedList = PaginatedLists.create(10, 0);
+        assertEquals(0, articleDao.search(paginatedList, "oldertermtitle", null).size());
+        
+        TransactionUtil.commit();
+    }
+
+    @Test
+    public void rollbackTest() throws Exception {
+        // A failed write is discarded
+        LuceneUtil.handle(indexWriter -> {
+            Document document = new Document();
+            document.add(new StringField("url", "http://localhost/rollback", Field.Store.YES));
+            indexWriter.addDocument(document);
+            throw new Exception("Failed write");
+        });
+        IndexingService indexingService = AppContext.getInstance().getIndexingService();
+        indexingService.refresh();
+        IndexSearcher searcher = indexingService.acquireSearcher();
+        try {
+            assertEquals(0, searcher.search(new TermQuery(new Term("url", "http://localhost/rollback")), 1).totalHits);
+        } finally {
+            indexingService.releaseSearcher(searcher);
+        }
+        
+        // The next writes go to the reopened writer
+        LuceneUtil.handle(indexWriter -> {
+            Document document = new Document();
+            document.add(new StringField("url", "http://localhost/rollback", Field.Store.YES));
+            indexWriter.addDocument(document);
+        });
+        indexingService.refresh();
+        searcher = indexingService.acquireSearcher();
+        try {
+            assertEquals(1, searcher.search(new TermQuery(new Term("url", "http://localhost/rollback")), 1).totalHits);
+        } finally {
+            indexingService.releaseSearcher(searcher);
+        }
+        LuceneUtil.handle(indexWriter -> indexWriter.deleteDocuments(new Term("url", "http://localhost/rollback")));
+        
+        TransactionUtil.commit();
+    }
+    
+    /**
+     * Returns a new article, only written to the index.
+     * 
+     * @param feedId Feed ID
+     * @param url URL
+     * @param title Title
+     * @param date Publication date (in milliseconds)
+     * @return Article
+     */
+    private Article newArticle(String feedId, String url, String title, long date) {
+        Article article = new Article();
+        article.setId(UUID.randomUUID().toString());
+        article.setFeedId(feedId);
+        article.setUrl(url);
+        article.setTitle(title);
+        article.setDescription("Description");
+        article.setPublicationDate(new Date(date));
+        return article;
+    }
+}
@@ -0,0 +1,80 @@
+package com.sismics.reader.core.util;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+/**
+ * Test of the feed polling schedule utilities.
+ */
+public class TestFeedScheduleUtil {
+
+    @Test
+    public void getNextFetchDateTest() throws Exception {
+        Date now = new Date();
+
+        // No article seen lately: slowest rate
+        assertEquals(6 * 60, getDelay(now, FeedScheduleUtil.getNextFetchDate(now, null, 0)));
+
+        // 1 article / day: capped to the slowest rate
+        assertEquals(6 * 60, getDelay(now, FeedScheduleUtil.getNextFetchDate(now, null, 7)));
+
+        // 1 article / 2 hours: every hour
+        assertEquals(60, getDelay(now, FeedScheduleUtil.getNextFetchDate(now, null, 12 * 7)));
+
+        // 10 articles / hour: fastest rate
+        assertEquals(10, getDelay(now, FeedScheduleUtil.getNextFetchDate(now, null, 10 * 24 * 7)));
+
+        // 1 article / hour, but the publisher asks for hourly polling
+        assertEquals(30, getDelay(now, FeedScheduleUtil.getNextFetchDate(now, null, 24 * 7)));
+        assertEquals(60, getDelay(now, FeedScheduleUtil.getNextFetchDate(now, 60, 24 * 7)));
+    }
+
+    @Test
+    public void getPushedNextFetchDateTest() throws Exception {
+        Date now = new Date();
+
+        // Safety poll once a day
+        Date leaseDate = new Date(now.getTime() + TimeUnit.DAYS.toMillis(7));
+        assertEquals(24 * 60, getDelay(now, FeedScheduleUtil.getPushedNextFetchDate(now, leaseDate)));
+
+        // Poll at the latest when the subscription expires
+        leaseDate = new Date(now.getTime() + TimeUnit.HOURS.toMillis(2));
+        assertEquals(2 * 60, getDelay(now, FeedScheduleUtil.getPushedNextFetchDate(now, leaseDate)));
+    }
+
+    @Test
+    public void getRetryDateTest() throws Exception {
+        Date now = new Date();
+        assertEquals(20, getDelay(now, FeedScheduleUtil.getRetryDate(now, 1)));
+        assertEquals(40, getDelay(now, FeedScheduleUtil.getRetryDate(now, 2)));
+        assertEquals(80, getDelay(now, FeedScheduleUtil.getRetryDate(now, 3)));
+        assertEquals(24 * 60, getDelay(now, FeedScheduleUtil.getRetryDate(now, 10)));
+        assertEquals(24 * 60, getDelay(now, FeedScheduleUtil.getRetryDate(now, 100)));
+    }
+
+    @Test
+    public void getSyndicationUpdatePeriodTest() throws Exception {
+        assertEquals(60, (int) FeedScheduleUtil.getSyndicationUpdatePeriod("hourly", null));
+        assertEquals(30, (int) FeedScheduleUtil.getSyndicationUpdatePeriod("hourly", 2));
+        assertEquals(24 * 60, (int) FeedScheduleUtil.getSyndicationUpdatePeriod("daily", 1));
+        assertEquals(7 * 24 * 60, (int) FeedScheduleUtil.getSyndicationUpdatePeriod("WEEKLY", null));
+        assertNull(FeedScheduleUtil.getSyndicationUpdatePeriod("sometimes", 1));
+        assertNull(FeedScheduleUtil.getSyndicationUpdatePeriod(null, null));
+    }
+
+    /**
+     * Returns the delay between 2 dates, in minutes.
+     *
+     * @param from Start date
+     * @param to End date
+     * @return Delay in minutes
+     */
+    private long getDelay(Date from, Date to) {
+        return TimeUnit.MILLISECONDS.toMinutes(to.getTime() - from.getTime());
+    }
+}
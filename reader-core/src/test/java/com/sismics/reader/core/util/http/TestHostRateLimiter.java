@@ -0,0 +1,61 @@
+package com.sismics.reader.core.util.http;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Test of the host rate limiter.
+ */
+public class TestHostRateLimiter {
+    @Test
+    public void acquireTest() throws Exception {
+        // 60 requests / minute, bursts of 2
+        HostRateLimiter hostRateLimiter = new HostRateLimiter(60, 2);
+        long now = 1000000;
+        assertEquals(0, hostRateLimiter.acquire("example.com", now));
+        assertEquals(0, hostRateLimiter.acquire("example.com", now));
+        assertEquals(1000, hostRateLimiter.acquire("example.com", now));
+        assertEquals(500, hostRateLimiter.getDelay("example.com", now + 500));
+
+        // Other hosts are not affected
+        assertEquals(0, hostRateLimiter.acquire("example.org", now));
+
+        // The bucket is refilled over time, up to the burst size
+        assertEquals(0, hostRateLimiter.acquire("example.com", now + 1000));
+        assertEquals(1000, hostRateLimiter.acquire("example.com", now + 1000));
+        now += 60000;
+        assertEquals(0, hostRateLimiter.acquire("example.com", now));
+        assertEquals(0, hostRateLimiter.acquire("example.com", now));
+        assertEquals(1000, hostRateLimiter.acquire("example.com", now));
+    }
+
+    @Test
+    public void retryAfterTest() throws Exception {
+        HostRateLimiter hostRateLimiter = new HostRateLimiter(60, 10);
+        long now = 1000000;
+        hostRateLimiter.retryAfter("example.com", 120000, now);
+        assertEquals(120000, hostRateLimiter.acquire("example.com", now));
+        assertEquals(20000, hostRateLimiter.acquire("example.com", now + 100000));
+        assertEquals(0, hostRateLimiter.acquire("example.com", now + 120000));
+        assertEquals(0, hostRateLimiter.acquire("example.org", now));
+    }
+
+    @Test
+    public void sweepTest() throws Exception {
+        // 60 requests / minute, bursts of 2: the buckets are removed after 1 minute idle
+        HostRateLimiter hostRateLimiter = new HostRateLimiter(60, 2);
+        long now = 1000000;
+        for (int i = 0; i < 100; i++) {
+            hostRateLimiter.acquire("host" + i + ".example.com", now);
+        }
+        hostRateLimiter.retryAfter("blocked.example.com", 600000, now);
+        assertEquals(101, hostRateLimiter.getHostCount());
+
+        // The refilled buckets are removed, the blocked one is kept
+        now += 60000;
+        assertEquals(0, hostRateLimiter.acquire("example.com", now));
+        assertEquals(2, hostRateLimiter.getHostCount());
+        assertEquals(540000, hostRateLimiter.getDelay("blocked.example.com", now));
+    }
+}
@@ -0,0 +1,230 @@
+package com.sismics.reader.core.util.http;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.sismics.reader.core.constant.Constants;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Test of the HTTP client.
+ */
+public class TestReaderHttpClient {
+    private static final String ETAG = "\"v1\"";
+
+    private static final String LAST_MODIFIED = "Sat, 01 Feb 2014 10:00:00 GMT";
+
+    private HttpServer server;
+
+    private URL url;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/feed", exchange -> {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = "content".getBytes(Charsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/gzip", exchange -> {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+                gos.write("content".getBytes(Charsets.UTF_8));
+            }
+            byte[] body = bos.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+            exchange.close();
+        });
+        server.createContext("/bomb", exchange -> {
+            // A small compressed body of a large content
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+                gos.write(new byte[100000]);
+            }
+            byte[] body = bos.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+            exchange.close();
+        });
+        server.createContext("/deflate", exchange -> {
+            // /deflate/zlib is wrapped in zlib, /deflate/raw is raw deflate
+            boolean nowrap = exchange.getRequestURI().getPath().endsWith("/raw");
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap))) {
+                dos.write("content".getBytes(Charsets.UTF_8));
+            }
+            byte[] body = bos.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "deflate");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+            exchange.close();
+        });
+        server.createContext("/redirect", exchange -> {
+            // /redirect/n redirects to /redirect/n-1, and /redirect/0 to the feed
+            int count = Integer.parseInt(exchange.getRequestURI().getPath().substring("/redirect/".length()));
+            exchange.getResponseHeaders().add("Location", count > 0 ? "/redirect/" + (count - 1) : "/feed");
+            exchange.sendResponseHeaders(count % 2 == 0 ? 301 : 307, -1);
+            exchange.close();
+        });
+        server.start();
+        url = new URL("http://localhost:" + server.getAddress().getPort() + "/feed");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    @Test
+    public void conditionalGetTest() throws Exception {
+        // First fetch: the content is processed and the validators are returned
+        ReaderHttpClient<String> httpClient = new StringHttpClient();
+        assertEquals("content", httpClient.open(url));
+        assertFalse(httpClient.isNotModified());
+        assertEquals(ETAG, httpClient.getEtag());
+        assertEquals(LAST_MODIFIED, httpClient.getLastModified());
+
+        // Second fetch with the validators: the content is not processed
+        httpClient = new StringHttpClient();
+        httpClient.setIfNoneMatch(ETAG);
+        httpClient.setIfModifiedSince(LAST_MODIFIED);
+        assertNull(httpClient.open(url));
+        assertTrue(httpClient.isNotModified());
+
+        // Stale entity tag: the content is processed again
+        httpClient = new StringHttpClient();
+        httpClient.setIfNoneMatch("\"v0\"");
+        assertEquals("content", httpClient.open(url));
+        assertFalse(httpClient.isNotModified());
+    }
+
+    @Test
+    public void gzipTest() throws Exception {
+        assertEquals("content", new StringHttpClient().open(new URL(url, "/gzip")));
+    }
+
+    @Test
+    public void deflateTest() throws Exception {
+        assertEquals("content", new StringHttpClient().open(new URL(url, "/deflate/zlib")));
+        assertEquals("content", new StringHttpClient().open(new URL(url, "/deflate/raw")));
+    }
+
+    @Test(timeout = 30000)
+    public void slowProcessTest() throws Exception {
+        // A single connection to the host, held by a client processing its content slowly
+        ReaderHttpClient.setMaxConnectionsPerHost(1);
+        final CountDownLatch processingLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        Thread slowThread = new Thread(() -> {
+            try {
+                new ReaderHttpClient<String>() {
+                    @Override
+                    public String process(InputStream is) throws Exception {
+                        processingLatch.countDown();
+                        releaseLatch.await();
+                        return null;
+                    }
+                }.open(url);
+            } catch (Exception e) {
+                // NOP
+            }
+        });
+        try {
+            slowThread.start();
+            assertTrue(processingLatch.await(10, TimeUnit.SECONDS));
+
+            // The connection is released before the processing
+            assertEquals("content", new StringHttpClient().open(url));
+        } finally {
+            releaseLatch.countDown();
+            slowThread.join();
+            ReaderHttpClient.setMaxConnectionsPerHost(Constants.DEFAULT_HTTP_MAX_CONNECTIONS_PER_HOST);
+        }
+    }
+
+    @Test
+    public void redirectTest() throws Exception {
+        assertEquals("content", new StringHttpClient().open(new URL(url, "/redirect/4")));
+        try {
+            new StringHttpClient().open(new URL(url, "/redirect/5"));
+            fail("Too many redirections should fail");
+        } catch (RuntimeException e) {
+            // NOP
+        }
+    }
+
+    @Test
+    public void maxBodySizeTest() throws Exception {
+        ReaderHttpClient.setMaxBodySize(1000);
+        try {
+            assertEquals("content", new StringHttpClient().open(url));
+            
+            // The compressed body is smaller than the limit, but not the content
+            try {
+                new StringHttpClient().open(new URL(url, "/bomb"));
+                fail("A content larger than the limit should fail");
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            
+            ReaderHttpClient.setMaxBodySize(4);
+            try {
+                new StringHttpClient().open(url);
+                fail("A body larger than the limit should fail");
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        } finally {
+            ReaderHttpClient.setMaxBodySize(Constants.DEFAULT_HTTP_MAX_BODY_SIZE);
+        }
+    }
+
+    @Test
+    public void retryAfterTest() throws Exception {
+        assertEquals(120000, ReaderHttpClient.getRetryAfterDelay("120"));
+        assertEquals(60000, ReaderHttpClient.getRetryAfterDelay(null));
+        assertEquals(0, ReaderHttpClient.getRetryAfterDelay("Sat, 01 Feb 2014 10:00:00 GMT"));
+    }
+
+    private static class StringHttpClient extends ReaderHttpClient<String> {
+        @Override
+        public String process(InputStream is) throws Exception {
+            return CharStreams.toString(new InputStreamReader(is, Charsets.UTF_8));
+        }
+    }
+}
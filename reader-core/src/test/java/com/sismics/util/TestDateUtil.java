@@ -1,10 +1,15 @@
 package com.sismics.util;
 
 import com.sismics.reader.core.dao.file.rss.RssReader;
+import org.joda.time.format.DateTimeFormatter;
 import org.junit.Test;
 
+import java.util.Date;
+
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 /**
  * Test of the date utilities.
@@ -12,14 +17,116 @@ import static junit.framework.Assert.assertNotNull;
  * @author jtremeaux
  */
 public class TestDateUtil {
+    /**
+     * Dates found in RSS feeds.
+     */
+    private static final String[] RSS_DATES = {
+            "Sat, 15 Jun 2013 00:07:27 +0200",
+            "Fri, 22 Mar 2013 04:00:00 -0000",
+            "Thu, 19 Dec 2013 10:46:28 GMT",
+            "Wed, 17 Apr 2013 15:40:23 GMT",
+            "05 Apr 2013 12:25:20 +0000",
+            "Mon, 22 Jun 2015 15:25 EDT",
+            "Thu, 12 Dec 2013 09:00:00 EST",
+            "Thu, 02 May 2013 10:31:40 PDT",
+            "Wed, 27 Mar 2013 21:13:03 EDT",
+            "Thu, 04 APR 2013 20:37:27 AEST",
+            "Sun,  5 Oct 2014 23:51:21 EDT",
+            "Mon Jun 22 2015 20:12:20 GMT+0900 (JST)",
+            "Fri Jan 06 2017 16:13:28 GMT+0900 (JST)",
+            "Sun, 29 Feb 2004 12:00:00 +0530",
+            "Mon, 29 Feb 2004 12:00:00 +0530",
+    };
+
+    /**
+     * Dates found in Atom feeds and Dublin Core.
+     */
+    private static final String[] ATOM_DATES = {
+            "2013-04-11T12:12:56+02:00",
+            "2015-11-25T14:45:42Z",
+            "2013-04-01T20:34:13.252+09:00",
+            "2004-09-15T14:13:08-05:00",
+            "2013-07-05T08:37:50+0900",
+            "1969-12-31T23:59:59Z",
+    };
 
     @Test
     public void guessTimezoneCodeTest() throws Exception {
         assertEquals("Thu, 04 APR 2013 20:37:27 +10", DateUtil.guessTimezoneOffset("Thu, 04 APR 2013 20:37:27 AEST"));
+        assertEquals("Fri Jan 06 2017 16:13:28 GMT+0900 +09", DateUtil.guessTimezoneOffset("Fri Jan 06 2017 16:13:28 GMT+0900 (JST)"));
+        assertEquals("Fri, 06 Jan 2017 16:13:28 XYZ", DateUtil.guessTimezoneOffset("Fri, 06 Jan 2017 16:13:28 XYZ"));
+        assertEquals("AEST", DateUtil.guessTimezoneOffset("AEST"));
     }
 
     @Test
     public void parseDateTest() throws Exception {
         assertNotNull(DateUtil.parseDate("Fri Jan 06 2017 16:13:28 GMT+0900 (JST)", RssReader.DF_RSS));
     }
+
+    @Test
+    public void dateParserTest() throws Exception {
+        // The parser gives the same dates as the formatters
+        DateParser rssDateParser = new DateParser(DateUtil.getFormatterArray("EEE, dd MMM yyyy HH:mm zzz",
+                "EEE, dd MMM yyyy HH:mm:ss Z",
+                "EEE, dd MMM yyyy HH:mm:ss zzz",
+                "EEE,  d MMM yyyy HH:mm:ss zzz",
+                "dd MMM yyyy HH:mm:ss Z",
+                "EEE MMM dd yyyy HH:mm:ss 'GMT'Z Z"));
+        for (int i = 0; i < 2; i++) {
+            for (String date : RSS_DATES) {
+                Date expected = DateUtil.parseDate(date, RssReader.DF_RSS);
+                assertNotNull(date, expected);
+                assertEquals(date, expected, rssDateParser.parse(date));
+            }
+        }
+        DateParser atomDateParser = new DateParser(DateUtil.getFormatterArray("yyyy-MM-dd'T'HH:mm:ssZ", "yyyy-MM-dd'T'HH:mm:ss.SSSZ"));
+        for (int i = 0; i < 2; i++) {
+            for (String date : ATOM_DATES) {
+                Date expected = DateUtil.parseDate(date, RssReader.DF_ATOM);
+                assertNotNull(date, expected);
+                assertEquals(date, expected, atomDateParser.parse(date));
+            }
+        }
+        assertNull(rssDateParser.parse(""));
+        assertNull(rssDateParser.parse("Yesterday"));
+        assertNull(atomDateParser.parse("2013-02-30T12:00:00Z"));
+
+        // The learned format is carried over to the next parser
+        DateTimeFormatter[] formatterArray = DateUtil.getFormatterArray("EEE, dd MMM yyyy HH:mm:ss zzz");
+        DateParser learnedDateParser = new DateParser(formatterArray);
+        assertEquals(-1, learnedDateParser.getLastFormat());
+        assertNotNull(learnedDateParser.parse("Thu, 02 May 2013 10:31:40 PDT"));
+        int lastFormat = learnedDateParser.getLastFormat();
+        assertTrue(lastFormat > 1);
+        DateParser nextDateParser = new DateParser(formatterArray);
+        nextDateParser.setLastFormat(lastFormat);
+        assertEquals(lastFormat, nextDateParser.getLastFormat());
+        assertNotNull(nextDateParser.parse("Fri, 03 May 2013 10:31:40 PDT"));
+        assertEquals(lastFormat, nextDateParser.getLastFormat());
+        nextDateParser.setLastFormat(100);
+        assertEquals(lastFormat, nextDateParser.getLastFormat());
+    }
+
+    @Test
+    public void parseRfc822Test() throws Exception {
+        assertEquals(new Date(1371247647000L), DateParser.parseRfc822("Sat, 15 Jun 2013 00:07:27 +0200"));
+        assertEquals(new Date(1371247620000L), DateParser.parseRfc822("15 Jun 2013 00:07 +02:00"));
+        assertEquals(new Date(1387450000000L), DateParser.parseRfc822("Thu, 19 Dec 2013 10:46:40 UT"));
+        
+        // Unknown timezone codes and inconsistent days of week are left to the formatters
+        assertNull(DateParser.parseRfc822("Thu, 02 May 2013 10:31:40 PDT"));
+        assertNull(DateParser.parseRfc822("Fri, 15 Jun 2013 00:07:27 +0200"));
+        assertNull(DateParser.parseRfc822("Sat, 15 Jun 2013 00:07:27"));
+        assertNull(DateParser.parseRfc822("2013-06-15T00:07:27Z"));
+    }
+
+    @Test
+    public void parseRfc3339Test() throws Exception {
+        assertEquals(new Date(1364816053252L), DateParser.parseRfc3339("2013-04-01T20:34:13.252+09:00"));
+        assertEquals(new Date(1364816053250L), DateParser.parseRfc3339("2013-04-01T20:34:13.25+09:00"));
+        assertEquals(new Date(1364816053252L), DateParser.parseRfc3339("2013-04-01T11:34:13.252789Z"));
+        assertNull(DateParser.parseRfc3339("2013-04-01T20:34+09:00"));
+        assertNull(DateParser.parseRfc3339("2013-04-01T20:34:13"));
+        assertNull(DateParser.parseRfc3339("Sat, 15 Jun 2013 00:07:27 +0200"));
+    }
 }
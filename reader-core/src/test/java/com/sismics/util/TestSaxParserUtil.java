@@ -0,0 +1,79 @@
+package com.sismics.util;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+/**
+ * Test of the SAX parser utilities.
+ */
+public class TestSaxParserUtil {
+
+    @Test
+    public void parseXmlTest() throws Exception {
+        ElementHandler handler = new ElementHandler();
+        SaxParserUtil.parseXml(new InputSource(new StringReader("<rss><channel/></rss>")), handler, false);
+        assertEquals("[rss, channel]", handler.elementList.toString());
+
+        // A parse error doesn't break the next documents
+        try {
+            SaxParserUtil.parseXml(new InputSource(new StringReader("<rss><channel></rss>")), new ElementHandler(), false);
+            fail();
+        } catch (SAXException e) {
+            // NOP
+        }
+        handler = new ElementHandler();
+        SaxParserUtil.parseXml(new InputSource(new StringReader("<opml><body/></opml>")), handler, false);
+        assertEquals("[opml, body]", handler.elementList.toString());
+    }
+
+    @Test
+    public void parseNestedTest() throws Exception {
+        // A handler can parse another document of the same kind
+        final ElementHandler innerHandler = new ElementHandler();
+        ElementHandler outerHandler = new ElementHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+                super.startElement(uri, localName, qName, attributes);
+                try {
+                    SaxParserUtil.parseXml(new InputSource(new StringReader("<inner/>")), innerHandler, true);
+                } catch (Exception e) {
+                    throw new SAXException(e);
+                }
+            }
+        };
+        SaxParserUtil.parseXml(new InputSource(new StringReader("<outer/>")), outerHandler, true);
+        assertEquals("[outer]", outerHandler.elementList.toString());
+        assertEquals("[inner]", innerHandler.elementList.toString());
+    }
+
+    @Test
+    public void parseHtmlTest() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            ElementHandler handler = new ElementHandler();
+            SaxParserUtil.parseHtml(new InputSource(new StringReader("<p>Unclosed<br>")), handler);
+            assertEquals("[html, body, p, br]", handler.elementList.toString());
+        }
+    }
+
+    /**
+     * Handler collecting the names of the elements.
+     */
+    private static class ElementHandler extends DefaultHandler {
+        private final List<String> elementList = new ArrayList<String>();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            elementList.add(localName);
+        }
+    }
+}
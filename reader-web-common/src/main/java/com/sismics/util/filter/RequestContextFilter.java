@@ -133,6 +133,7 @@ public class RequestContextFilter implements Filter {
                 if (statusClass == 2 || statusClass == 3) {
                     try {
                         em.getTransaction().commit();
+                        context.fireAllAsyncEvents();
                     } catch (Exception e) {
                         log.error("Error during commit", e);
                         r.sendError(500);
@@ -54,6 +54,11 @@ public abstract class BaseJerseyTest extends JerseyTest {
      */
     protected HttpServer httpServer;
 
+    /**
+     * Test WebSub hub, served on /hub by the test HTTP server.
+     */
+    protected WebSubHubHandler webSubHub;
+
     /**
      * The response from the last request.
      */
@@ -107,6 +112,10 @@ public abstract class BaseJerseyTest extends JerseyTest {
         // Add a handler for temporary files
         addTempFileHandler();
 
+        // Add a stand-in WebSub hub
+        webSubHub = new WebSubHubHandler();
+        httpServer.getServerConfiguration().addHttpHandler(webSubHub, "/hub");
+
         httpServer.start();
     }
 
@@ -290,6 +299,13 @@ public abstract class BaseJerseyTest extends JerseyTest {
         return authToken;
     }
 
+    /**
+     * Makes the articles indexed so far visible to the searches, without waiting for the background refresh.
+     */
+    public void refreshIndex() throws IOException {
+        AppContext.getInstance().getIndexingService().refresh();
+    }
+
     /**
      * Force synchronization of all feeds.
      */
@@ -0,0 +1,151 @@
+package com.sismics.reader.rest;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.reader.core.util.http.WebSubUtil;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in WebSub hub for integration tests.
+ * Subscriptions are verified asynchronously, and content is pushed on demand.
+ */
+public class WebSubHubHandler extends HttpHandler {
+    /**
+     * Verified subscriptions, by topic.
+     */
+    private final Map<String, Subscription> subscriptionMap = new ConcurrentHashMap<String, Subscription>();
+
+    /**
+     * Executor of the verifications of intent.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).build());
+
+    /**
+     * Pending verifications of intent.
+     */
+    private final List<Future<?>> verificationList = new CopyOnWriteArrayList<Future<?>>();
+
+    @Override
+    public void service(Request request, Response response) throws Exception {
+        String mode = request.getParameter("hub.mode");
+        final String topic = request.getParameter("hub.topic");
+        final String callback = request.getParameter("hub.callback");
+        final String secret = request.getParameter("hub.secret");
+        final String leaseSeconds = request.getParameter("hub.lease_seconds");
+        if (!"subscribe".equals(mode) || topic == null || callback == null) {
+            response.setStatus(400);
+            return;
+        }
+
+        // Verify the intent of the subscriber once the subscription request is acknowledged
+        verificationList.add(executor.submit(() -> {
+            verify(topic, callback, secret, leaseSeconds);
+            return null;
+        }));
+        response.setStatus(202);
+    }
+
+    /**
+     * Verifies the intent of a subscriber.
+     *
+     * @param topic Topic URL
+     * @param callback Callback URL
+     * @param secret Secret used to sign the pushed content
+     * @param leaseSeconds Lease requested by the subscriber
+     */
+    private void verify(String topic, String callback, String secret, String leaseSeconds) throws IOException {
+        String challenge = UUID.randomUUID().toString();
+        String verifyUrl = callback + "?hub.mode=subscribe"
+                + "&hub.topic=" + URLEncoder.encode(topic, "UTF-8")
+                + "&hub.challenge=" + challenge
+                + "&hub.lease_seconds=" + leaseSeconds;
+        HttpURLConnection connection = (HttpURLConnection) new URL(verifyUrl).openConnection();
+        if (connection.getResponseCode() == 200 && challenge.equals(readString(connection.getInputStream()))) {
+            subscriptionMap.put(topic, new Subscription(callback, secret));
+        }
+    }
+
+    /**
+     * Waits for the pending verifications of intent.
+     */
+    public void waitForVerification() throws Exception {
+        for (Future<?> verification : verificationList) {
+            verification.get(30, TimeUnit.SECONDS);
+        }
+        verificationList.clear();
+    }
+
+    /**
+     * Returns the callback of the verified subscription to a topic.
+     *
+     * @param topic Topic URL
+     * @return Callback URL, or null if not subscribed
+     */
+    public String getCallback(String topic) {
+        Subscription subscription = subscriptionMap.get(topic);
+        return subscription != null ? subscription.callback : null;
+    }
+
+    /**
+     * Pushes new content to the subscriber of a topic.
+     *
+     * @param topic Topic URL
+     * @param content Content to push
+     * @param secret Secret used to sign the content, or null to use the subscription's
+     * @return HTTP status returned by the subscriber
+     */
+    public int publish(String topic, byte[] content, String secret) throws IOException {
+        Subscription subscription = subscriptionMap.get(topic);
+        HttpURLConnection connection = (HttpURLConnection) new URL(subscription.callback).openConnection();
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/atom+xml");
+        connection.setRequestProperty("X-Hub-Signature",
+                WebSubUtil.getSignature("sha1", secret != null ? secret : subscription.secret, content));
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(content);
+        }
+        return connection.getResponseCode();
+    }
+
+    private static String readString(InputStream is) throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(is, Charsets.UTF_8)) {
+            return CharStreams.toString(reader);
+        }
+    }
+
+    /**
+     * Verified subscription.
+     */
+    private static class Subscription {
+        private final String callback;
+
+        private final String secret;
+
+        private Subscription(String callback, String secret) {
+            this.callback = callback;
+            this.secret = secret;
+        }
+    }
+}
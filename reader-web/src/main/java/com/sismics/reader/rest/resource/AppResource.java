@@ -1,7 +1,12 @@
 package com.sismics.reader.rest.resource;
 
+import com.google.common.cache.CacheStats;
+import com.sismics.reader.core.dao.jpa.FeedDao;
+import com.sismics.reader.core.dao.jpa.criteria.FeedCriteria;
+import com.sismics.reader.core.dao.jpa.dto.FeedDto;
 import com.sismics.reader.core.model.context.AppContext;
 import com.sismics.reader.core.util.ConfigUtil;
+import com.sismics.reader.core.util.FeedScheduleUtil;
 import com.sismics.reader.core.util.jpa.PaginatedList;
 import com.sismics.reader.core.util.jpa.PaginatedLists;
 import com.sismics.reader.rest.constant.BaseFunction;
@@ -48,6 +53,9 @@ public class AppResource extends BaseResource {
         response.put("min_version", minVersion);
         response.put("total_memory", Runtime.getRuntime().totalMemory());
         response.put("free_memory", Runtime.getRuntime().freeMemory());
+        CacheStats searchCacheStats = AppContext.getInstance().getIndexingService().getSearchCacheStats();
+        response.put("search_cache_hit_count", searchCacheStats.hitCount());
+        response.put("search_cache_miss_count", searchCacheStats.missCount());
         return Response.ok().entity(response).build();
     }
     
@@ -107,6 +115,46 @@ public class AppResource extends BaseResource {
         return Response.ok().entity(response).build();
     }
     
+    /**
+     * Returns the feeds with an open circuit breaker, i.e. failing consistently.
+     * 
+     * @return Response
+     */
+    @GET
+    @Path("failing_feed")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response failingFeed() throws JSONException {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+        checkBaseFunction(BaseFunction.ADMIN);
+        
+        FeedCriteria feedCriteria = new FeedCriteria()
+                .setWithUserSubscription(true)
+                .setErrorCountMin(FeedScheduleUtil.CIRCUIT_BREAKER_THRESHOLD);
+        List<FeedDto> feedList = new FeedDao().findByCriteria(feedCriteria);
+        
+        JSONObject response = new JSONObject();
+        List<JSONObject> feeds = new ArrayList<JSONObject>();
+        for (FeedDto feed : feedList) {
+            JSONObject feedJson = new JSONObject();
+            feedJson.put("id", feed.getId());
+            feedJson.put("title", feed.getTitle());
+            feedJson.put("rss_url", feed.getRssUrl());
+            feedJson.put("error_count", feed.getErrorCount());
+            if (feed.getLastFetchDate() != null) {
+                feedJson.put("last_fetch_date", feed.getLastFetchDate().getTime());
+            }
+            if (feed.getNextFetchDate() != null) {
+                feedJson.put("next_fetch_date", feed.getNextFetchDate().getTime());
+            }
+            feeds.add(feedJson);
+        }
+        response.put("feeds", feeds);
+        
+        return Response.ok().entity(response).build();
+    }
+    
     /**
      * Destroy and rebuild articles index.
      * 
@@ -277,6 +277,8 @@ public class SubscriptionResource extends BaseResource {
         for (FeedSynchronization feedSynchronization : feedSynchronizationList) {
             JSONObject synchronizationJson = new JSONObject();
             synchronizationJson.put("success", feedSynchronization.isSuccess());
+            synchronizationJson.put("not_modified", feedSynchronization.isNotModified());
+            synchronizationJson.put("unchanged", feedSynchronization.isUnchanged());
             synchronizationJson.put("message", feedSynchronization.getMessage());
             synchronizationJson.put("duration", feedSynchronization.getDuration());
             synchronizationJson.put("create_date", feedSynchronization.getCreateDate().getTime());
@@ -31,7 +31,7 @@ public class TextPlainMessageBodyWriter implements
     @Override
     public boolean isWriteable(Class<?> type, Type genericType,
             Annotation[] annotations, MediaType mediaType) {
-        return true;
+        return JSONObject.class.isAssignableFrom(type);
     }
 
     @Override
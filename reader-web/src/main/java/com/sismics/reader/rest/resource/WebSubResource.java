@@ -0,0 +1,131 @@
+package com.sismics.reader.rest.resource;
+
+import com.google.common.io.ByteStreams;
+import com.sismics.reader.core.dao.jpa.FeedDao;
+import com.sismics.reader.core.model.context.AppContext;
+import com.sismics.reader.core.model.jpa.Feed;
+import com.sismics.reader.core.util.http.WebSubUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSub (formerly PubSubHubbub) callback REST resources, called by the hubs of the feeds.
+ */
+@Path("/websub")
+public class WebSubResource extends BaseResource {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(WebSubResource.class);
+
+    /**
+     * Maximum size of the pushed content (in bytes).
+     */
+    private static final int MAX_CONTENT_LENGTH = 4 * 1024 * 1024;
+
+    /**
+     * Verifies the intent of a subscription to the hub of a feed.
+     *
+     * @param id Feed ID
+     * @param mode Mode (subscribe, unsubscribe or denied)
+     * @param topic Topic URL
+     * @param challenge Challenge to echo
+     * @param leaseSeconds Lease granted by the hub (in seconds)
+     * @return Response
+     */
+    @GET
+    @Path("{id: [a-z0-9\\-]+}")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response verify(
+            @PathParam("id") String id,
+            @QueryParam("hub.mode") String mode,
+            @QueryParam("hub.topic") String topic,
+            @QueryParam("hub.challenge") String challenge,
+            @QueryParam("hub.lease_seconds") Integer leaseSeconds) {
+        FeedDao feedDao = new FeedDao();
+        Feed feed = feedDao.getById(id);
+        if (feed == null || feed.getHubSecret() == null || !getTopic(feed).equals(topic)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        if ("subscribe".equals(mode) && challenge != null) {
+            // Poll the feed as a safety net until the end of the lease
+            long lease = TimeUnit.SECONDS.toMillis(leaseSeconds != null ? leaseSeconds : WebSubUtil.LEASE_SECONDS);
+            feed.setHubLeaseDate(new Date(System.currentTimeMillis() + lease));
+            feedDao.update(feed);
+            return Response.ok().entity(challenge).build();
+        } else if ("denied".equals(mode)) {
+            // Back to regular polling
+            log.warn(MessageFormat.format("Hub {0} denied the subscription to {1}", feed.getHubUrl(), topic));
+            feed.setHubLeaseDate(null);
+            feedDao.update(feed);
+            return Response.ok().build();
+        }
+
+        // We never unsubscribe from a hub, let the lease expire
+        return Response.status(Response.Status.NOT_FOUND).build();
+    }
+
+    /**
+     * Receives the content of a feed pushed by its hub.
+     *
+     * @param id Feed ID
+     * @param signature Signature of the content
+     * @param is Pushed content
+     * @return Response
+     * @throws IOException
+     */
+    @POST
+    @Path("{id: [a-z0-9\\-]+}")
+    public Response push(
+            @PathParam("id") String id,
+            @HeaderParam("X-Hub-Signature") String signature,
+            InputStream is) throws IOException {
+        Feed feed = new FeedDao().getById(id);
+        if (feed == null || feed.getHubSecret() == null) {
+            return Response.status(Response.Status.GONE).build();
+        }
+
+        // Don't buffer anything bigger than a feed before the signature is checked
+        byte[] content = ByteStreams.toByteArray(ByteStreams.limit(is, MAX_CONTENT_LENGTH + 1));
+        if (content.length > MAX_CONTENT_LENGTH) {
+            log.warn(MessageFormat.format("Ignoring content pushed for feed {0} larger than {1} bytes", feed.getRssUrl(), MAX_CONTENT_LENGTH));
+            return Response.status(413).build();
+        }
+
+        // Content with an invalid signature must be acknowledged, and ignored
+        if (!WebSubUtil.isSignatureValid(signature, feed.getHubSecret(), content)) {
+            log.warn(MessageFormat.format("Ignoring content pushed for feed {0} with an invalid signature", feed.getRssUrl()));
+            return Response.ok().build();
+        }
+
+        AppContext.getInstance().getFeedService().synchronizePushedFeed(feed, new ByteArrayInputStream(content));
+        return Response.ok().build();
+    }
+
+    /**
+     * Returns the topic of the subscription to the hub of a feed.
+     *
+     * @param feed Feed
+     * @return Topic URL
+     */
+    private String getTopic(Feed feed) {
+        return feed.getHubTopic() != null ? feed.getHubTopic() : feed.getRssUrl();
+    }
+}
@@ -1,6 +1,8 @@
 package com.sismics.reader.rest;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
 import com.sismics.rest.exception.ClientException;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
@@ -8,6 +10,8 @@ import org.codehaus.jettison.json.JSONObject;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.File;
+
 import static junit.framework.Assert.*;
 
 /**
@@ -34,6 +38,8 @@ public class TestAppResource extends BaseJerseyTest {
         assertTrue(freeMemory > 0);
         Long totalMemory = json.getLong("total_memory");
         assertTrue(totalMemory > 0 && totalMemory > freeMemory);
+        assertTrue(json.getLong("search_cache_hit_count") >= 0);
+        assertTrue(json.getLong("search_cache_miss_count") >= 0);
         
         // Login admin
         login("admin", "admin", false);
@@ -94,4 +100,51 @@ public class TestAppResource extends BaseJerseyTest {
         Long date4 = logs.optJSONObject(9).optLong("date");
         assertTrue(date3 >= date4);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test the failing feed resource.
+     * 
+     */
+    @Test
+    public void testFailingFeedResource() throws Exception {
+        // Login admin
+        login("admin", "admin", false);
+
+        // Subscribe to a working feed, and to a feed that will break
+        PUT("/subscription", ImmutableMap.of("url", "http://localhost:9997/http/feeds/korben.xml"));
+        assertIsOk();
+        File failingFile = new File(System.getProperty("java.io.tmpdir") + "/failing.xml");
+        Files.copy(new File(getClass().getResource("/http/feeds/deleted/deleted0.xml").getFile()), failingFile);
+        PUT("/subscription", ImmutableMap.of("url", "http://localhost:9997/temp/failing.xml"));
+        assertIsOk();
+
+        // No feed is failing
+        GET("/app/failing_feed");
+        assertIsOk();
+        JSONObject json = getJsonResult();
+        assertEquals(0, json.getJSONArray("feeds").length());
+
+        // Break the feed, and synchronize until its circuit breaker opens
+        Files.write("not a feed", failingFile, Charsets.UTF_8);
+        for (int i = 0; i < 5; i++) {
+            synchronizeAllFeed();
+        }
+        GET("/app/failing_feed");
+        assertIsOk();
+        json = getJsonResult();
+        JSONArray feeds = json.getJSONArray("feeds");
+        assertEquals(1, feeds.length());
+        JSONObject feed = feeds.getJSONObject(0);
+        assertEquals("http://localhost:9997/temp/failing.xml", feed.getString("rss_url"));
+        assertEquals(5, feed.getInt("error_count"));
+        assertTrue(feed.getLong("next_fetch_date") > System.currentTimeMillis());
+
+        // The feed is not synchronized anymore until its next probe
+        synchronizeAllFeed();
+        GET("/app/failing_feed");
+        assertIsOk();
+        json = getJsonResult();
+        assertEquals(5, json.getJSONArray("feeds").getJSONObject(0).getInt("error_count"));
+        failingFile.delete();
+    }
+}
@@ -27,6 +27,7 @@ public class TestSearchResource extends BaseJerseyTest {
         // Subscribe to Korben RSS feed
         PUT("/subscription", ImmutableMap.of("url", "http://localhost:9997/http/feeds/korben.xml"));
         assertIsOk();
+        refreshIndex();
 
         // Search "zelda": OK, one result
         GET("/search/searchtermzelda");
@@ -36,6 +37,20 @@ public class TestSearchResource extends BaseJerseyTest {
         assertEquals(1, articles.length());
         assertSearchResult(articles, "Quand <span class=\"highlight\">searchtermZelda</span> prend les armes", 0);
         
+        // Search "zelda" again: OK, the result comes from the cache
+        GET("/app");
+        assertIsOk();
+        long searchCacheHitCount = getJsonResult().getLong("search_cache_hit_count");
+        GET("/search/%20searchtermZelda");
+        assertIsOk();
+        json = getJsonResult();
+        articles = json.getJSONArray("articles");
+        assertEquals(1, articles.length());
+        assertSearchResult(articles, "Quand <span class=\"highlight\">searchtermZelda</span> prend les armes", 0);
+        GET("/app");
+        assertIsOk();
+        assertEquals(searchCacheHitCount + 1, getJsonResult().getLong("search_cache_hit_count"));
+        
         // Search "njloinzejrmklsjd": OK, no result
         GET("/search/njloinzejrmklsjd");
         assertIsOk();
@@ -68,6 +83,7 @@ public class TestSearchResource extends BaseJerseyTest {
         // Subscribe to Korben RSS feed again to force articles updating
         PUT("/subscription", ImmutableMap.of("url", "http://localhost:9997/http/feeds/korben.xml"));
         assertIsOk();
+        refreshIndex();
 
         // Check if nothing is broken by searching "google keep"
         GET("/search/searchtermgoogle%20searchtermkeep");
@@ -87,17 +103,17 @@ public class TestSearchResource extends BaseJerseyTest {
         articles = json.getJSONArray("articles");
         assertEquals(0, articles.length());
         
-        // Search "zelda"
+        // Search "zelda": no subscription, no result
         GET("/search/searchtermzelda");
         assertIsOk();
         json = getJsonResult();
         articles = json.getJSONArray("articles");
-        assertEquals(1, articles.length());
-        assertSearchResult(articles, "Quand <span class=\"highlight\">searchtermZelda</span> prend les armes", 0);
+        assertEquals(0, articles.length());
         
         // Subscribe to Korben RSS feed (alternative URL)
         PUT("/subscription", ImmutableMap.of("url", "http://localhost:9997/http/feeds/korben2.xml"));
         assertIsOk();
+        refreshIndex();
         
         // Search "zelda"
         GET("/search/searchtermzelda");
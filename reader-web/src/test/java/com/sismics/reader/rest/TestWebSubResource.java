@@ -0,0 +1,102 @@
+package com.sismics.reader.rest;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.sismics.reader.core.constant.ConfigType;
+import com.sismics.reader.core.model.context.AppContext;
+import com.sismics.reader.core.model.jpa.Config;
+import com.sismics.reader.core.util.TransactionUtil;
+import com.sismics.util.context.ThreadLocalContext;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+import java.io.InputStream;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Exhaustive test of the WebSub resource.
+ */
+public class TestWebSubResource extends BaseJerseyTest {
+    /**
+     * Test of the subscription to a hub, and of the pushed content.
+     *
+     */
+    @Test
+    public void testWebSubResource() throws Exception {
+        // Enable WebSub
+        final String callbackUrl = resource().getURI().toString();
+        TransactionUtil.handle(() -> {
+            Config config = new Config();
+            config.setId(ConfigType.WEBSUB_CALLBACK_URL);
+            config.setValue(callbackUrl);
+            ThreadLocalContext.get().getEntityManager().persist(config);
+        });
+
+        // Create user websub1
+        createUser("websub1");
+        login("websub1");
+
+        // Subscribe to a feed advertising a hub
+        String topic = "http://localhost:9997/http/feeds/websub.xml";
+        PUT("/subscription", ImmutableMap.of("url", topic));
+        assertIsOk();
+        JSONObject json = getJsonResult();
+        String subscriptionId = json.optString("id");
+        AppContext.getInstance().waitForAsync();
+        webSubHub.waitForVerification();
+
+        // The hub verified our intent
+        String callback = webSubHub.getCallback(topic);
+        assertNotNull(callback);
+        String callbackPath = callback.substring(callback.indexOf("/websub/"));
+
+        // A verification for another topic is refused
+        GET(callbackPath, ImmutableMap.of(
+                "hub.mode", "subscribe",
+                "hub.topic", "http://localhost:9997/http/feeds/korben.xml",
+                "hub.challenge", "challenge"));
+        assertStatus(404, response);
+
+        // Unknown feed
+        POST("/websub/00000000-0000-0000-0000-000000000000");
+        assertStatus(410, response);
+
+        GET("/subscription/" + subscriptionId);
+        assertIsOk();
+        json = getJsonResult();
+        assertEquals(2, json.optJSONArray("articles").length());
+
+        // Content with an invalid signature is ignored
+        byte[] content = readResource("/http/feeds/websub2.xml");
+        assertEquals(200, webSubHub.publish(topic, content, "wrongsecret"));
+        GET("/subscription/" + subscriptionId);
+        assertIsOk();
+        json = getJsonResult();
+        assertEquals(2, json.optJSONArray("articles").length());
+
+        // Content larger than a feed is refused
+        assertEquals(413, webSubHub.publish(topic, new byte[5 * 1024 * 1024], null));
+
+        // New articles are pushed by the hub
+        assertEquals(200, webSubHub.publish(topic, content, null));
+        AppContext.getInstance().waitForAsync();
+        GET("/subscription/" + subscriptionId);
+        assertIsOk();
+        json = getJsonResult();
+        assertEquals(3, json.optJSONArray("articles").length());
+        assertEquals("Release 3.0", json.optJSONArray("articles").getJSONObject(0).optString("title"));
+
+        // The new article is unread
+        GET("/subscription");
+        assertIsOk();
+        json = getJsonResult();
+        assertEquals(3, json.optInt("unread_count"));
+    }
+
+    private byte[] readResource(String path) throws Exception {
+        try (InputStream is = getClass().getResourceAsStream(path)) {
+            return ByteStreams.toByteArray(is);
+        }
+    }
+}